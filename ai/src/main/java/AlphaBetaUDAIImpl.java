@@ -0,0 +1,312 @@
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+/**
+ * AlphaBetaUDAIImpl searches with iterative deepening, one ply more each
+ * iteration until maxDepth or the time limit, on a single MutableGameState
+ * with PackedMoves, scoring the leaves with sitValue.
+ * In the Paranoid mode the others are assumed to play against us together,
+ * which makes it a two-sided search with full alpha-beta pruning.
+ * In the MaxN mode everyone maximizes their own sitValue; as sitValues of
+ * the three players do not add up to a constant, no branch can be pruned
+ * there, the moves are only ordered.
+ * Both modes order the best move of the previous iteration (kept in
+ * the table, if any) first and captures next.
+ * When the time runs out, the iteration in progress is thrown away.
+ */
+public class AlphaBetaUDAIImpl extends SitValuesUDAI {
+    public enum Mode {
+        Paranoid, MaxN
+    }
+
+    public final Mode mode;
+    public final int maxDepth;
+    /**
+     * 0 if there is no time limit
+     */
+    public final long timeLimitMillis;
+
+    /**
+     * distinguishes search entries from sitValue ones in a shared table
+     */
+    private static final long SEARCH_SALT = 0x6A09E667F3BCC909L;
+    /**
+     * distinguishes the entries of the modes, as their scores mean different things
+     */
+    private static final long MODE_SALT = 0xBB67AE8584CAA73BL;
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+    /**
+     * how many nodes between checks of the time
+     */
+    private static final int CHECK_EVERY = 16;
+
+    public AlphaBetaUDAIImpl(
+            @Nullable Integer maxDepth,
+            @Nullable Long timeLimitMillis,
+            @Nullable Mode mode,
+            @Nullable Double ownedToThreatened
+    ) {
+        this(maxDepth, timeLimitMillis, mode, ownedToThreatened, null);
+    }
+
+    public AlphaBetaUDAIImpl(
+            @Nullable Integer maxDepth,
+            @Nullable Long timeLimitMillis,
+            @Nullable Mode mode,
+            @Nullable Double ownedToThreatened,
+            @Nullable TranspositionTable table
+    ) {
+        super(ownedToThreatened, table);
+        this.maxDepth = maxDepth == null ? 4 : maxDepth;
+        assert this.maxDepth > 0 && this.maxDepth < TranspositionTable.MAX_DEPTH;
+        this.timeLimitMillis = timeLimitMillis == null ? 0 : timeLimitMillis;
+        this.mode = mode == null ? Mode.Paranoid : mode;
+    }
+
+    private long searchKey(long zobrist, Color who) {
+        return zobrist ^ SEARCH_SALT ^ (who.index * 0x9E3779B97F4A7C15L) ^ (mode.ordinal() * MODE_SALT);
+    }
+
+    /**
+     * What a search came up with
+     */
+    public static final class Result {
+        /**
+         * null if there is no legal move
+         */
+        public final @Nullable DescMove move;
+        /**
+         * depth of the last completed iteration, 0 if there was only one move
+         */
+        public final int depth;
+        /**
+         * sitValue for the player to move after the move, as found at depth,
+         * NaN if depth is 0
+         */
+        public final double value;
+        public final int nodes;
+
+        Result(@Nullable DescMove move, int depth, double value, int nodes) {
+            this.move = move;
+            this.depth = depth;
+            this.value = value;
+            this.nodes = nodes;
+        }
+    }
+
+    @NotNull
+    public Result search(GameState s) {
+        final Search search = new Search(s);
+        return new Result(search.rootMove == PackedMove.NONE ? null : PackedMove.toDescMove(search.rootMove, s),
+                search.completedDepth, search.rootValue, search.nodes);
+    }
+
+    @Override
+    public DescMove decide(GameState s) {
+        return search(s).move;
+    }
+
+    /**
+     * A single search
+     */
+    private final class Search {
+        final MutableGameState state;
+        final Color me;
+        final MoveList[] lists = new MoveList[maxDepth + 1];
+        final double[][] values = new double[maxDepth + 2][3];
+        final long deadline;
+        int nodes;
+        boolean aborted;
+        int rootMove = PackedMove.NONE;
+        double rootValue = Double.NaN;
+        int completedDepth;
+        /**
+         * the value of the best move of the iteration in progress
+         */
+        double bestValue;
+
+        Search(GameState s) {
+            state = new MutableGameState(s);
+            me = s.movesNext;
+            deadline = timeLimitMillis == 0 ? Long.MAX_VALUE
+                    : System.nanoTime() + timeLimitMillis * 1_000_000;
+            for (int i = 0; i < lists.length; i++) lists[i] = new MoveList();
+            final MoveList root = new MoveList();
+            MoveGenerator.generateLegalDistinct(state, root);
+            if (root.isEmpty()) return;
+            rootMove = root.get(0);
+            if (root.size() == 1) return;
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                final int best = root(root, depth);
+                if (aborted) break;
+                rootMove = best;
+                rootValue = bestValue;
+                completedDepth = depth;
+                moveToFront(root, best);
+            }
+        }
+
+        int root(MoveList moves, int depth) {
+            double alpha = -INFINITY;
+            int best = moves.get(0);
+            for (int i = 0; i < moves.size(); i++) {
+                state.makeLegal(moves.get(i));
+                final double value;
+                if (mode == Mode.Paranoid) value = paranoid(depth - 1, 1, alpha, INFINITY);
+                else {
+                    maxN(depth - 1, 1);
+                    value = values[1][me.segm()];
+                }
+                state.unmake();
+                if (aborted) return best;
+                if (value > alpha) {
+                    alpha = value;
+                    best = moves.get(i);
+                }
+            }
+            bestValue = alpha;
+            return best;
+        }
+
+        boolean timeIsUp() {
+            if (++nodes % CHECK_EVERY == 0 && System.nanoTime() > deadline) aborted = true;
+            return aborted;
+        }
+
+        /**
+         * @return sitValue for me after searching depth plies more
+         */
+        double paranoid(int depth, int ply, double alpha, double beta) {
+            if (timeIsUp()) return 0;
+            if (depth == 0 || !state.alivePlayers().get(me)
+                    || !state.alivePlayers().get(state.movesNext()))
+                return sitValue(state.view(), me);
+            final long key = searchKey(state.zobrist(), me);
+            int tableMove = PackedMove.NONE;
+            if (table != null) {
+                final long data = table.probe(key);
+                if (data != TranspositionTable.MISS) {
+                    tableMove = TranspositionTable.move(data);
+                    if (TranspositionTable.depth(data) >= depth) {
+                        final double score = TranspositionTable.score(data);
+                        switch (TranspositionTable.bound(data)) {
+                            case Exact:
+                                return score;
+                            case Lower:
+                                alpha = Math.max(alpha, score);
+                                break;
+                            case Upper:
+                                beta = Math.min(beta, score);
+                                break;
+                        }
+                        if (alpha >= beta) return score;
+                    }
+                }
+            }
+            final MoveList moves = lists[ply];
+            moves.clear();
+            MoveGenerator.generateLegalDistinct(state, moves);
+            if (moves.isEmpty()) return sitValue(state.view(), me);
+            order(moves, tableMove);
+            final double alphaOrig = alpha;
+            final double betaOrig = beta;
+            final boolean maximizing = state.movesNext() == me;
+            double best = maximizing ? -INFINITY : INFINITY;
+            int bestMove = moves.get(0);
+            for (int i = 0; i < moves.size(); i++) {
+                final int move = moves.get(i);
+                state.makeLegal(move);
+                final double value = paranoid(depth - 1, ply + 1, alpha, beta);
+                state.unmake();
+                if (aborted) return 0;
+                if (maximizing ? value > best : value < best) {
+                    best = value;
+                    bestMove = move;
+                }
+                if (maximizing) alpha = Math.max(alpha, value);
+                else beta = Math.min(beta, value);
+                if (alpha >= beta) break;
+            }
+            if (table != null)
+                table.store(key, depth, best <= alphaOrig ? TranspositionTable.Bound.Upper
+                                : best >= betaOrig ? TranspositionTable.Bound.Lower
+                                : TranspositionTable.Bound.Exact,
+                        (float) best, PackedMove.base(bestMove));
+            return best;
+        }
+
+        /**
+         * Puts the sitValues (by segm) after searching depth plies more into values[ply]
+         */
+        void maxN(int depth, int ply) {
+            final double[] into = values[ply];
+            if (timeIsUp()) return;
+            if (depth == 0 || !state.alivePlayers().get(state.movesNext())) {
+                leaf(into);
+                return;
+            }
+            final Color who = state.movesNext();
+            final long key = searchKey(state.zobrist(), who);
+            int tableMove = PackedMove.NONE;
+            if (table != null) {
+                final long data = table.probe(key);
+                if (data != TranspositionTable.MISS) tableMove = TranspositionTable.move(data);
+            }
+            final MoveList moves = lists[ply];
+            moves.clear();
+            MoveGenerator.generateLegalDistinct(state, moves);
+            if (moves.isEmpty()) {
+                leaf(into);
+                return;
+            }
+            order(moves, tableMove);
+            final double[] child = values[ply + 1];
+            double best = -INFINITY;
+            int bestMove = moves.get(0);
+            for (int i = 0; i < moves.size(); i++) {
+                final int move = moves.get(i);
+                state.makeLegal(move);
+                maxN(depth - 1, ply + 1);
+                state.unmake();
+                if (aborted) return;
+                if (child[who.segm()] > best) {
+                    best = child[who.segm()];
+                    bestMove = move;
+                    System.arraycopy(child, 0, into, 0, 3);
+                }
+            }
+            if (table != null)
+                table.store(key, depth, TranspositionTable.Bound.Exact, (float) best, PackedMove.base(bestMove));
+        }
+
+        void leaf(double[] into) {
+            final GameState view = state.view();
+            for (final Color color : Color.colors) into[color.segm()] = sitValue(view, color);
+        }
+    }
+
+    /**
+     * Puts the move with tableBase first, then the captures
+     */
+    private static void order(MoveList moves, int tableBase) {
+        int front = 0;
+        if (tableBase != PackedMove.NONE)
+            for (int i = 0; i < moves.size(); i++)
+                if (PackedMove.base(moves.get(i)) == tableBase) {
+                    moves.swap(0, i);
+                    front = 1;
+                    break;
+                }
+        for (int i = front; i < moves.size(); i++)
+            if (PackedMove.isCapture(moves.get(i))) moves.swap(front++, i);
+    }
+
+    private static void moveToFront(MoveList moves, int move) {
+        for (int i = 0; i < moves.size(); i++)
+            if (moves.get(i) == move) {
+                for (int j = i; j > 0; j--) moves.swap(j, j - 1);
+                return;
+            }
+    }
+}
@@ -15,7 +15,15 @@ public class ConstSitValuesUDAIImpl extends SitValuesUDAI {
             @Nullable Integer depth,
             @Nullable Double ownedToThreatened
     ) {
-        super(ownedToThreatened);
+        this(depth, ownedToThreatened, null);
+    }
+
+    public ConstSitValuesUDAIImpl(
+            @Nullable Integer depth,
+            @Nullable Double ownedToThreatened,
+            @Nullable TranspositionTable table
+    ) {
+        super(ownedToThreatened, table);
         this.depth = depth == null ? 0 : depth;
     }
 
@@ -0,0 +1,237 @@
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCTSStreamingAIImpl is a Monte Carlo tree search sharing one tree among
+ * a number of threads. Every node keeps, for each of the three players,
+ * the sum of rewards of the playouts through it, so that at every node
+ * UCT picks the child best for the player moving there.
+ * A playout is a uniform Playout on the thread's MutableGameState,
+ * up to playoutPlies, rewarded with Playout.scores.
+ * A thread descending the tree adds a virtual loss, i.e. a visit without
+ * a reward, to the nodes on its way until the playout is backed up,
+ * which sends the other threads elsewhere.
+ * While thinking, the most visited move is published every publishMillis;
+ * thinking stops after the iterations or the time limit, if any, or when
+ * stopped from the outside.
+ */
+public class MCTSStreamingAIImpl implements SingleMoveStreamingAI, SingleMoveUltimateDecisionAI {
+    public final int threads;
+    /**
+     * 0 if there is no limit
+     */
+    public final int iterations;
+    /**
+     * 0 if there is no time limit
+     */
+    public final long timeLimitMillis;
+    public final double exploration;
+    public final int playoutPlies;
+    public final long publishMillis;
+
+    public MCTSStreamingAIImpl(
+            @Nullable Integer threads,
+            @Nullable Integer iterations,
+            @Nullable Long timeLimitMillis
+    ) {
+        this(threads, iterations, timeLimitMillis, null, null, null);
+    }
+
+    public MCTSStreamingAIImpl(
+            @Nullable Integer threads,
+            @Nullable Integer iterations,
+            @Nullable Long timeLimitMillis,
+            @Nullable Double exploration,
+            @Nullable Integer playoutPlies,
+            @Nullable Long publishMillis
+    ) {
+        this.threads = threads == null ? Runtime.getRuntime().availableProcessors() : threads;
+        this.iterations = iterations == null ? 0 : iterations;
+        this.timeLimitMillis = timeLimitMillis == null ? 0 : timeLimitMillis;
+        this.exploration = exploration == null ? Math.sqrt(2) : exploration;
+        this.playoutPlies = playoutPlies == null ? 30 : playoutPlies;
+        this.publishMillis = publishMillis == null ? 100 : publishMillis;
+        assert this.threads > 0 && this.iterations >= 0 && this.timeLimitMillis >= 0;
+        assert this.exploration >= 0 && this.playoutPlies >= 0 && this.publishMillis > 0;
+    }
+
+    @Override
+    public ReadAtomicThinking thinking(GameState s) {
+        final AtomicThinking thinking = new AtomicThinking();
+        new Search(s, thinking).start();
+        return new ReadAtomicThinking(thinking, true);
+    }
+
+    /**
+     * Thinks until the iterations or the time limit
+     *
+     * @throws IllegalStateException if there is neither
+     */
+    @Override
+    public DescMove decide(GameState s) {
+        if (iterations == 0 && timeLimitMillis == 0)
+            throw new IllegalStateException("neither iterations nor time limit");
+        final ReadAtomicThinking thinking = thinking(s);
+        while (!thinking.stopped()) {
+            thinking.waitForNew();
+            thinking.get();
+        }
+        return thinking.get();
+    }
+
+    private static final class Node {
+        final @Nullable Node parent;
+        final int move;
+        /**
+         * null until expanded, guarded by this
+         */
+        @Nullable Node[] children;
+        /**
+         * the statistics are guarded by parent
+         */
+        int visits;
+        int virtualLoss;
+        final double[] rewards = new double[3];
+
+        Node(@Nullable Node parent, int move) {
+            this.parent = parent;
+            this.move = move;
+        }
+    }
+
+    /**
+     * A single thinking
+     */
+    private final class Search {
+        final GameState start;
+        final AtomicThinking thinking;
+        final Node root = new Node(null, PackedMove.NONE);
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger(threads);
+        final long deadline;
+
+        Search(GameState start, AtomicThinking thinking) {
+            this.start = start;
+            this.thinking = thinking;
+            deadline = timeLimitMillis == 0 ? Long.MAX_VALUE
+                    : System.nanoTime() + timeLimitMillis * 1_000_000;
+        }
+
+        void start() {
+            final MutableGameState state = new MutableGameState(start);
+            final MoveList moves = new MoveList();
+            expand(root, state, moves);
+            assert root.children != null;
+            if (root.children.length == 0) {
+                thinking.stop();
+                return;
+            }
+            thinking.set(PackedMove.toDescMove(root.children[0].move, start));
+            final ThreadFactory factory = Execution.threadFactory(Execution.mode());
+            for (int i = 0; i < threads; i++) {
+                final boolean publishing = i == 0;
+                factory.newThread(() -> work(publishing)).start();
+            }
+        }
+
+        void work(boolean publishing) {
+            final MutableGameState state = new MutableGameState(start);
+            final MoveList moves = new MoveList();
+            final Playout playout = new Playout(Playout.Policy.Uniform);
+            final double[] reward = new double[3];
+            long nextPublish = System.nanoTime() + publishMillis * 1_000_000;
+            try {
+                while (thinking.goOn() && (iterations == 0 || started.getAndIncrement() < iterations)
+                        && System.nanoTime() < deadline) {
+                    iterate(state, moves, playout, reward);
+                    if (publishing && System.nanoTime() >= nextPublish) {
+                        publish();
+                        nextPublish = System.nanoTime() + publishMillis * 1_000_000;
+                    }
+                }
+            } finally {
+                if (running.decrementAndGet() == 0) {
+                    publish();
+                    thinking.stop();
+                }
+            }
+        }
+
+        void publish() {
+            Node best = null;
+            synchronized (root) {
+                assert root.children != null;
+                for (final Node child : root.children)
+                    if (best == null || child.visits > best.visits) best = child;
+            }
+            assert best != null;
+            thinking.set(PackedMove.toDescMove(best.move, start));
+        }
+
+        void iterate(MutableGameState state, MoveList moves, Playout playout, double[] reward) {
+            Node node = root;
+            while (true) {
+                final Node child;
+                final boolean fresh;
+                synchronized (node) {
+                    if (node.children == null) expand(node, state, moves);
+                    assert node.children != null;
+                    if (node.children.length == 0) break;
+                    child = select(node.children, state.movesNext());
+                    fresh = child.visits + child.virtualLoss == 0;
+                    child.virtualLoss++;
+                }
+                state.makeLegal(child.move);
+                node = child;
+                if (fresh) break;
+            }
+            playout.play(state, playoutPlies, ThreadLocalRandom.current());
+            Playout.scores(state, reward);
+            for (Node n = node; n.parent != null; n = n.parent)
+                synchronized (n.parent) {
+                    n.virtualLoss--;
+                    n.visits++;
+                    for (int i = 0; i < 3; i++) n.rewards[i] += reward[i];
+                }
+            while (state.depth() > 0) state.unmake();
+        }
+
+        /**
+         * @return the first child not visited, or else the one with the best UCT for who
+         */
+        @NotNull
+        Node select(@NotNull Node[] children, @NotNull Color who) {
+            int total = 0;
+            for (final Node child : children) {
+                final int n = child.visits + child.virtualLoss;
+                if (n == 0) return child;
+                total += n;
+            }
+            final double logTotal = Math.log(total);
+            Node best = children[0];
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (final Node child : children) {
+                final int n = child.visits + child.virtualLoss;
+                final double score = child.rewards[who.segm()] / n + exploration * Math.sqrt(logTotal / n);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        void expand(Node node, MutableGameState state, MoveList moves) {
+            moves.clear();
+            MoveGenerator.generateLegalDistinct(state, moves);
+            final Node[] children = new Node[moves.size()];
+            for (int i = 0; i < children.length; i++) children[i] = new Node(node, moves.get(i));
+            node.children = children;
+        }
+    }
+}
@@ -31,7 +31,9 @@ public interface SingleMoveStreamingAI {
             if (!noMore.get()) {
                 i.set(move);
                 isNew.set(true);
-                notifyAll();
+                synchronized (this) {
+                    notifyAll();
+                }
             }
         }
 
@@ -45,7 +47,9 @@ public interface SingleMoveStreamingAI {
 
         public void stop() {
             noMore.set(true);
-            noMore.notifyAll();
+            synchronized (this) {
+                notifyAll();
+            }
         }
     }
 
@@ -66,11 +70,16 @@ public interface SingleMoveStreamingAI {
             return i.isNew.get();
         }
 
+        /**
+         * Waits until there is a new move or the thinking has stopped
+         */
         public void waitForNew() {
-            while (!isNew()) {
-                try {
-                    i.wait();
-                } catch (InterruptedException ignored) {
+            synchronized (i) {
+                while (!isNew() && !stopped()) {
+                    try {
+                        i.wait();
+                    } catch (InterruptedException ignored) {
+                    }
                 }
             }
         }
@@ -1,6 +1,9 @@
 import pl.edu.platinum.archiet.jchess3man.engine.DescMove;
+import pl.edu.platinum.archiet.jchess3man.engine.Execution;
 import pl.edu.platinum.archiet.jchess3man.engine.GameState;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 /**
@@ -9,6 +12,21 @@ import java.util.function.Predicate;
 public interface SingleMoveUltimateDecisionAI {
     DescMove decide(GameState s);
 
+    /**
+     * @return decide(s) done on the executor, as a Player.yourMove future
+     */
+    default CompletableFuture<DescMove> decideLater(GameState s, Executor on) {
+        return CompletableFuture.supplyAsync(() -> decide(s), on);
+    }
+
+    /**
+     * @return decide(s) done on Execution.executor(), i.e. on a virtual thread
+     * if the virtual mode is chosen
+     */
+    default CompletableFuture<DescMove> decideLater(GameState s) {
+        return decideLater(s, Execution.executor());
+    }
+
     abstract class AfterWhat<T extends SingleMoveStreamingAI> {
         public final T of;
         public final Predicate<T> p;
@@ -23,7 +41,7 @@ public interface SingleMoveUltimateDecisionAI {
                     of.thinking(s);
             do {
                 our.waitForNew();
-                if (p.test(of)) break;
+                if (our.stopped() || p.test(of)) break;
             } while (true);
             our.stop();
             return our.get();
@@ -3,18 +3,32 @@ import org.jooq.lambda.Seq;
 import org.jooq.lambda.tuple.Tuple2;
 import pl.edu.platinum.archiet.jchess3man.engine.*;
 
+import java.util.List;
+
 /**
  * Created by Michał Krzysztof Feiler on 19.03.17.
  */
 public abstract class SitValuesUDAI implements SingleMoveUltimateDecisionAI {
     public final double ownedToThreatened;
+    /**
+     * if not null, sitValue results are remembered there with depth 0
+     */
+    public final @Nullable TranspositionTable table;
 
     public SitValuesUDAI(
             @Nullable Double ownedToThreatened
+    ) {
+        this(ownedToThreatened, null);
+    }
+
+    public SitValuesUDAI(
+            @Nullable Double ownedToThreatened,
+            @Nullable TranspositionTable table
     ) {
         this.ownedToThreatened =
                 ownedToThreatened == null ? 4 : ownedToThreatened;
         assert (this.ownedToThreatened > 0);
+        this.table = table;
     }
 
     abstract public DescMove decide(GameState s);
@@ -46,24 +60,41 @@ public abstract class SitValuesUDAI implements SingleMoveUltimateDecisionAI {
         return value(fig.type);
     }
 
+    /**
+     * @return key of the situation as seen by who
+     */
+    private static long sitKey(GameState s, Color who) {
+        return s.zobrist() ^ (who.index * 0x9E3779B97F4A7C15L);
+    }
+
     public double sitValue(GameState s, Color who) {
+        if (table == null) return computeSitValue(s, who);
+        final long key = sitKey(s, who);
+        final long data = table.probe(key);
+        if (data != TranspositionTable.MISS) return TranspositionTable.score(data);
+        final float ret = (float) computeSitValue(s, who);
+        table.store(key, 0, TranspositionTable.Bound.Exact, ret, 0);
+        return ret;
+    }
+
+    private double computeSitValue(GameState s, Color who) {
+        if (!s.alivePlayers.get(who)) return DEATH;
         Board b = s.board;
         Tuple2<Seq<Pos>, Seq<Pos>> tuple2 =
                 b.friendsAndOthers(who, s.alivePlayers);
-        Tuple2<Seq<Pos>, Seq<Pos>> friendsT = tuple2.v1.parallel().duplicate();
-        Tuple2<Seq<Pos>, Seq<Pos>> othersT = tuple2.v2.parallel().duplicate();
-        Seq<Pos> friends = friendsT.v1;
-        Seq<Pos> others = othersT.v1;
+        List<Pos> friends = tuple2.v1.toList();
+        List<Pos> others = tuple2.v2.toList();
         Tuple2<Seq<FigType>, Seq<FigType>> threateningAndThreatened = b.threateningAndThreatened(who, s.alivePlayers, s.enPassantStore,
-                friendsT.v2, othersT.v2);
+                Seq.seq(friends), Seq.seq(others));
         Seq<FigType> ing = threateningAndThreatened.v1.parallel();
         Seq<FigType> ed = threateningAndThreatened.v2.parallel();
-        int own = friends.mapToInt(o -> value(b.get(o))).sum();
-        int their = others.mapToInt(o -> value(b.get(o))).sum();
+        int own = 0;
+        for (Pos o : friends) own += value(b.get(o));
+        int their = 0;
+        for (Pos o : others) their += value(b.get(o));
         int myIch = ing.mapToInt(SitValuesUDAIImpl::value).sum();
         int oniNas = ed.mapToInt(SitValuesUDAIImpl::value).sum();
         double living = (double) (own - their) * ownedToThreatened + (double) (myIch - oniNas);
-        if (!s.alivePlayers.get(who)) return DEATH;
         for (final Color p : Color.colors)
             if (!p.equals(who) && !s.alivePlayers.get(p)) living += OPDIES;
         return living;
@@ -1,259 +1,158 @@
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jooq.lambda.Seq;
 import pl.edu.platinum.archiet.jchess3man.engine.*;
 
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.UnaryOperator;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Created by Michał Krzysztof Feiler on 18.03.17.
+ * SitValuesUDAIImpl gives every move the sum of sitValues of the states
+ * reachable after it, expanding a state while its chance, split evenly
+ * among the moves on the way, is not less than precision.
+ * The expansion runs as ForkJoin tasks on a pool of bounded parallelism:
+ * a state whose children go on expanding forks a task per child,
+ * a state whose children are all leaves goes through them in place
+ * on a single MutableGameState.
+ * The sums are added in the order of the moves, so the decision
+ * does not depend on the parallelism.
  */
 public class SitValuesUDAIImpl extends SitValuesUDAI {
     public final double precision;
     public final @Nullable FigType defPawnProm;
-    private double curFixPrec;
+    public final @NotNull ForkJoinPool pool;
 
     public SitValuesUDAIImpl(
             @Nullable Double precision,
             @Nullable Double ownedToThreatened,
             @Nullable FigType defPawnProm
     ) {
-        super(ownedToThreatened);
+        this(precision, ownedToThreatened, defPawnProm, null);
+    }
+
+    public SitValuesUDAIImpl(
+            @Nullable Double precision,
+            @Nullable Double ownedToThreatened,
+            @Nullable FigType defPawnProm,
+            @Nullable TranspositionTable table
+    ) {
+        this(precision, ownedToThreatened, defPawnProm, table, null);
+    }
+
+    /**
+     * @param pool where the tasks run, ForkJoinPool.commonPool() if null
+     */
+    public SitValuesUDAIImpl(
+            @Nullable Double precision,
+            @Nullable Double ownedToThreatened,
+            @Nullable FigType defPawnProm,
+            @Nullable TranspositionTable table,
+            @Nullable ForkJoinPool pool
+    ) {
+        super(ownedToThreatened, table);
         this.precision = precision == null ? 0.02 /*0.002*/ /*0.0002*/ : precision;
         this.defPawnProm = defPawnProm;
+        this.pool = pool == null ? ForkJoinPool.commonPool() : pool;
         assert (this.precision > 0);
     }
 
-    private void worker(double newChance, AtomicReference<Double> makeFloat, GameState after, Color movesNext, ExecutorService executor) {
-        final GameState aft = after.evaluateDeath();
-        UnaryOperator<Double> addition = d -> d + (sitValue(aft, movesNext));
-        if (!aft.alivePlayers.get(movesNext) || //if dead
-                newChance < curFixPrec) { //if too deep
-            makeFloat.getAndUpdate(addition);
-            return;
-        }
-        AtoInt wwg = new AtoInt(0);
-        ArrayList<GameState> possib = new ArrayList<>(2050);
-        for (final Pos wFrom : aft.board.friendsAndOthers(aft.movesNext, aft.alivePlayers).v1)
-            for (final Pos wTo : AMFT.getIterableFor(wFrom)) {
-                wwg.incrementAndGet();
-                executor.submit(() -> {
-                    DescMove wFromToPromMove =
-                            new DescMove(wFrom, wTo, aft);
-                    try {
-                        wFromToPromMove.generateVecs();
-                    } catch (NeedsToBePromotedException e) {
-                        wFromToPromMove =
-                                new DescMove(wFrom, wTo, aft, defPawnProm);
-                        try {
-                            wFromToPromMove.generateVecs();
-                        } catch (NeedsToBePromotedException e1) {
-                            e1.printStackTrace();
-                            throw new AssertionError(
-                                    "promotion not recognized",
-                                    e1);
-                        }
-                    }
-                    try {
-                        final Stream<DescMove.EitherStateOrIllMoveExcept>
-                                wEitherStateOrIllMoveExceptStream =
-                                wFromToPromMove.generateAfters();
-                        final Optional<GameState>
-                                wAny = wEitherStateOrIllMoveExceptStream
-                                .flatMap(DescMove.EitherStateOrIllMoveExcept::flatMapState)
-                                .findAny();
-                        if (wAny.isPresent()) {
-                            GameState wAft = wAny.get();
-                            possib.add(wAft);
-                        }
-                    } catch (NeedsToBePromotedException e) {
-                        e.printStackTrace();
-                        throw new AssertionError(
-                                "promotion not recognized",
-                                e);
-                    }
-                    wwg.decrementAndGet();
-                    wwg.notif();
-                });
-            }
-        while (wwg.get() > 0) {
-            wwg.oWait();
-        }
-        double chance = newChance / (double) (possib.size());
-        for (final GameState m : possib) {
-            wwg.incrementAndGet();
-            new Thread(() -> {
-                worker(chance, makeFloat, m, movesNext, executor);
-                wwg.decrementAndGet();
-                wwg.notif();
-            }).start();
-        }
-        while (wwg.get() > 0) {
-            wwg.oWait();
-        }
-    }
+    /**
+     * The sum of sitValues for me below a state
+     */
+    private final class Node extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        final GameState state;
+        final double chance;
+        final Color me;
+        final int move;
 
-    private static class AtoInt extends AtomicInteger {
-        AtoInt(int src) {
-            super(src);
+        Node(GameState state, double chance, Color me, int move) {
+            this.state = state;
+            this.chance = chance;
+            this.me = me;
+            this.move = move;
         }
 
-        synchronized void oWait() {
-            try {
-                wait();
-            } catch (InterruptedException ignored) {
+        @Override
+        protected Double compute() {
+            if (!state.alivePlayers.get(me) || //if dead
+                    chance < precision) //if too deep
+                return sitValue(state, me);
+            final MutableGameState mutable = new MutableGameState(state);
+            final MoveList moves = new MoveList();
+            legalMoves(mutable, moves);
+            if (moves.isEmpty()) return 0.0;
+            final double childChance = chance / moves.size();
+            double sum = 0;
+            if (childChance < precision) {
+                for (int i = 0; i < moves.size(); i++) {
+                    mutable.makeLegal(moves.get(i));
+                    sum += sitValue(mutable.view(), me);
+                    mutable.unmake();
+                }
+                return sum;
             }
-        }
-
-        synchronized void notif() {
-            notifyAll();
+            final List<Node> children = children(mutable, moves, childChance, me);
+            invokeAll(children);
+            for (final Node child : children) sum += child.join();
+            return sum;
         }
     }
 
-    private static class AtoBool extends AtomicBoolean {
-        AtoBool(boolean src) {
-            super(src);
-        }
-
-        synchronized void oWait() {
-            try {
-                wait();
-            } catch (InterruptedException ignored) {
-            }
-        }
+    @NotNull
+    private List<Node> children(MutableGameState mutable, MoveList moves, double chance, Color me) {
+        final List<Node> children = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            mutable.makeLegal(moves.get(i));
+            children.add(new Node(mutable.toGameState(), chance, me, moves.get(i)));
+            mutable.unmake();
+        }
+        return children;
+    }
 
-        synchronized void notif() {
-            notifyAll();
-        }
+    /**
+     * Fills moves with the legal moves, each from and to once,
+     * promoting to defPawnProm (or a Queen if there is none)
+     */
+    private void legalMoves(MutableGameState mutable, MoveList moves) {
+        moves.clear();
+        MoveGenerator.generateLegalDistinct(mutable, moves);
+        final FigType promotion = defPawnProm == null ? FigType.Queen : defPawnProm;
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            if (PackedMove.promotionIndex(move) == 0 || PackedMove.promotion(move) == promotion)
+                moves.set(kept++, move);
+        }
+        moves.truncate(kept);
     }
 
     @Override
     public DescMove decide(GameState s) {
-        ExecutorService executor = Executors.newCachedThreadPool();
-        curFixPrec = precision;
-        ConcurrentHashMap<FromTo, AtomicReference<Double>> thoughts =
-                new ConcurrentHashMap<>(30);
-        AtoInt countEm = new AtoInt(0);
-        AtoBool wg = new AtoBool(true);
-        AtoInt gwg = new AtoInt(0);
-        AtoBool nlas = new AtoBool(true);
-        //for(final Pos from : new AllPosIterable()) {
-        //    for(final Pos to : AMFT.getIterableFor(from)) {
-        //    }
-        //}
-        (new AllPosIterable()).forEach((Pos from) ->
-                AMFT.getIterableFor(from).forEach((Pos to) -> executor.submit(() -> {
-                    DescMove fromToPromMove =
-                            new DescMove(from, to, s);
-                    try {
-                        fromToPromMove.generateVecs();
-                    } catch (NeedsToBePromotedException e) {
-                        fromToPromMove =
-                                new DescMove(from, to, s, defPawnProm);
-                        try {
-                            fromToPromMove.generateVecs();
-                        } catch (NeedsToBePromotedException e1) {
-                            e1.printStackTrace();
-                            throw new AssertionError(
-                                    "promotion not recognized",
-                                    e1);
-                        }
-                    } catch (NullPointerException ignored) {
-                    }
-                    try {
-                        final Stream<DescMove.EitherStateOrIllMoveExcept>
-                                eitherStateOrIllMoveExceptStream =
-                                fromToPromMove.generateAftersWOEvaluatingDeath();
-                        final Optional<GameState>
-                                any = eitherStateOrIllMoveExceptStream
-                                .flatMap(DescMove.EitherStateOrIllMoveExcept::flatMapState)
-                                .findAny();
-                        if (any.isPresent()) {
-                            GameState aft = any.get();
-                            gwg.incrementAndGet();
-                            executor.submit(() -> {
-                                countEm.incrementAndGet();
-                                countEm.notif();
-                                double newChance;
-                                while (wg.get()) {
-                                    wg.oWait();
-                                }
-                                newChance = 1.0 / countEm.get();
-                                AtomicReference<Double> makeFloat = new AtomicReference<>(0.0);
-                                thoughts.put(new FromTo(from, to), makeFloat);
-                                worker(newChance, makeFloat, aft, s.movesNext, executor);
-                                gwg.decrementAndGet();
-                                gwg.notif();
-                            });
-                        } else gwg.notif();
-                    } catch (NeedsToBePromotedException e) {
-                        e.printStackTrace();
-                        throw new AssertionError(
-                                "promotion not recognized",
-                                e);
-                    } catch (NullPointerException ignored) {
-                    }
-                    if (from.equals(new Pos(1, 5))) {
-                        nlas.set(false);
-                        nlas.notif();
-                    }
-                })));
-        wg.set(false);
-        wg.notif();
-        /*
-        try {
-                gwg.oWait();
-        } catch (InterruptedException ignored) {
-        }
-        */
-        while (nlas.get()) {
-            nlas.oWait();
-        }
-        while (countEm.get() < 1) {
-            //countEm.oWait();
-            if (countEm.get() > 0) break;
-        }
-        while (gwg.get() > 0) {
-            gwg.oWait();
-        }
-        executor.shutdownNow();
-        /*
-        LinkedList<FromTo> ourfts = new LinkedList<>();
-        for (final Map.Entry<FromTo, AtomicReference<Double>> entry
-                : thoughts.entrySet()) {
-            if (entry.getValue().get() >= max-precision)
-                ourfts.add(entry.getKey());
-        }
-        */
-        Optional<FromTo> ftso =
-                Seq.seq(thoughts.entrySet()).sorted((a, b) -> {
-                    double c = a.getValue().get();
-                    double d = b.getValue().get();
-                    if (c < d) return 1;
-                    else if (c > d) return -1;
-                    return 0;
-                }).findFirst().map(Map.Entry::getKey);
-        //assert (!ourfts.isEmpty());
-        assert (ftso.isPresent());
-        //FromTo ft = ourfts.getLast();
-        FromTo ft = ftso.get();
-        DescMove m = new DescMove(ft.from, ft.to, s);
-        try {
-            m.generateVecs();
-            return m;
-        } catch (NeedsToBePromotedException e) {
-            m = new DescMove(ft.from, ft.to, s, defPawnProm);
-            return m;
+        final MutableGameState mutable = new MutableGameState(s);
+        final MoveList moves = new MoveList();
+        legalMoves(mutable, moves);
+        if (moves.isEmpty()) return null;
+        final List<Node> nodes = children(mutable, moves, 1.0 / moves.size(), s.movesNext);
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(nodes);
+            }
+        });
+        Node best = nodes.get(0);
+        double max = Double.NEGATIVE_INFINITY;
+        for (final Node node : nodes) {
+            final double value = node.join();
+            if (value > max) {
+                max = value;
+                best = node;
+            }
         }
+        return PackedMove.toDescMove(best.move, s);
     }
 
 }
@@ -0,0 +1,175 @@
+import org.jetbrains.annotations.Contract;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable is a fixed-size, lock-free table of search results
+ * indexed by Zobrist keys (see GameState.zobrist()).
+ * Every entry is a pair of longs: the data (score, depth, bound and best move
+ * packed together) and the key xor-ed with the data. Threads write and read
+ * both halves without any locking; an entry whose halves come from different
+ * writes does not verify against the key and is treated as a miss,
+ * so the table can be shared by any number of search threads.
+ * The capacity is a power of two and it never grows; on a collision an entry
+ * is replaced unless it holds the same key searched deeper.
+ */
+public class TranspositionTable {
+    /**
+     * What the stored score means
+     */
+    public enum Bound {
+        /**
+         * the score is exact
+         */
+        Exact,
+        /**
+         * the score is at least that (a cut-off happened above beta)
+         */
+        Lower,
+        /**
+         * the score is at most that (nothing reached alpha)
+         */
+        Upper;
+
+        private static final Bound[] values = values();
+
+        @Contract(pure = true)
+        int code() {
+            return ordinal() + 1;
+        }
+
+        @Contract(pure = true)
+        static Bound fromCode(int code) {
+            return values[code - 1];
+        }
+    }
+
+    /**
+     * returned by [probe] on a miss; no stored data is ever equal to it
+     * as the bound code is never 0
+     */
+    public static final long MISS = 0;
+
+    /**
+     * bytes taken by a single entry
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    private static final int MOVE_BITS = 22;
+    private static final int BOUND_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = BOUND_SHIFT + 2;
+    private static final int SCORE_SHIFT = 32;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+    public static final int MAX_DEPTH = 0xFF;
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * @param log2Capacity the table will hold 2^log2Capacity entries
+     */
+    public TranspositionTable(int log2Capacity) {
+        if (log2Capacity < 0 || log2Capacity > 29)
+            throw new IllegalArgumentException(Integer.toString(log2Capacity));
+        entries = new long[2 << log2Capacity];
+        mask = (1 << log2Capacity) - 1;
+    }
+
+    /**
+     * @param megabytes memory budget
+     * @return the biggest table that fits within the budget, at least one entry
+     */
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        final long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+        int log2 = 0;
+        while (log2 < 29 && (2L << log2) <= entries) log2++;
+        return new TranspositionTable(log2);
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    @Contract(pure = true)
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Contract(pure = true)
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+
+    /**
+     * @param depth depth searched, up to [MAX_DEPTH]
+     * @param bound what the score means
+     * @param score the score
+     * @param move  best move as a non-negative int of at most 22 bits, 0 if none
+     * @return the packed data, as returned by [probe]
+     */
+    @Contract(pure = true)
+    public static long pack(int depth, Bound bound, float score, int move) {
+        if (depth < 0 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException(Integer.toString(depth));
+        if ((move & ~MOVE_MASK) != 0)
+            throw new IllegalArgumentException(Integer.toString(move));
+        return ((long) Float.floatToRawIntBits(score) << SCORE_SHIFT)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound.code() << BOUND_SHIFT)
+                | move;
+    }
+
+    @Contract(pure = true)
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    @Contract(pure = true)
+    public static Bound bound(long data) {
+        return Bound.fromCode((int) (data >>> BOUND_SHIFT) & 3);
+    }
+
+    @Contract(pure = true)
+    public static float score(long data) {
+        return Float.intBitsToFloat((int) (data >>> SCORE_SHIFT));
+    }
+
+    @Contract(pure = true)
+    public static int move(long data) {
+        return (int) data & MOVE_MASK;
+    }
+
+    /**
+     * @param key Zobrist key
+     * @return the data stored for the key, or [MISS]
+     */
+    public long probe(long key) {
+        final int i = index(key);
+        final long data = entries[i + 1];
+        return (entries[i] ^ data) == key && data != MISS ? data : MISS;
+    }
+
+    /**
+     * Stores the result, unless there is a deeper one stored for the same key
+     *
+     * @param key   Zobrist key
+     * @param depth depth searched, up to [MAX_DEPTH]
+     * @param bound what the score means
+     * @param score the score
+     * @param move  best move as a non-negative int of at most 22 bits, 0 if none
+     */
+    public void store(long key, int depth, Bound bound, float score, int move) {
+        final long data = pack(depth, bound, score, move);
+        final int i = index(key);
+        final long old = entries[i + 1];
+        if ((entries[i] ^ old) == key && old != MISS && depth(old) > depth) return;
+        entries[i] = key ^ data;
+        entries[i + 1] = data;
+    }
+
+    /**
+     * Forgets everything; must not run concurrently with a search
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+    }
+}
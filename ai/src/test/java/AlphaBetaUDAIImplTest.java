@@ -0,0 +1,105 @@
+import org.junit.jupiter.api.Test;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphaBetaUDAIImplTest {
+    /**
+     * @return sitValue for me after depth plies of the others playing against me, without pruning
+     */
+    private static double minimax(SitValuesUDAI ai, GameState state, Color me, int depth) {
+        if (depth == 0 || !state.alivePlayers.get(me) || !state.alivePlayers.get(state.movesNext))
+            return ai.sitValue(state, me);
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+        if (moves.isEmpty()) return ai.sitValue(state, me);
+        final boolean maximizing = state.movesNext == me;
+        double best = maximizing ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < moves.size(); i++) {
+            final double value = minimax(ai, after(state, moves.get(i)), me, depth - 1);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    private static GameState after(GameState state, int move) {
+        try {
+            return new VecMove(PackedMove.toBoundVec(move), state).after();
+        } catch (IllegalMoveException | NeedsToBePromotedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Checks that result is the minimax value at depth, and that its move has that value
+     */
+    private static void assertMinimax(AlphaBetaUDAIImpl.Result result, GameState state, int depth) {
+        assertEquals(depth, result.depth);
+        assertNotNull(result.move);
+        final SitValuesUDAI ai = new AlphaBetaUDAIImpl(depth, null, null, null);
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+        double best = Double.NEGATIVE_INFINITY;
+        double ofMove = Double.NaN;
+        for (int i = 0; i < moves.size(); i++) {
+            final double value = minimax(ai, after(state, moves.get(i)), state.movesNext, depth - 1);
+            best = Math.max(best, value);
+            final DescMove move = PackedMove.toDescMove(moves.get(i), state);
+            if (move.from.equals(result.move.from) && move.to.equals(result.move.to)) ofMove = value;
+        }
+        assertEquals(best, result.value);
+        assertEquals(best, ofMove);
+    }
+
+    @Test
+    void paranoidPrunesAsMinimaxWould() {
+        final AlphaBetaUDAIImpl.Result result =
+                new AlphaBetaUDAIImpl(2, null, AlphaBetaUDAIImpl.Mode.Paranoid, null).search(GameState.newGame);
+        assertMinimax(result, GameState.newGame, 2);
+        //20 moves, each with 20 replies and a sitValue per leaf without pruning
+        assertTrue(result.nodes < 20 + 20 * 20, Integer.toString(result.nodes));
+    }
+
+    /**
+     * Within a single search the table only orders the moves, as no entry is deep enough
+     * to cut; searching again with the same table cuts on its exact scores and bounds,
+     * and neither may change what is found. The positions are sparse for speed
+     */
+    @Test
+    void paranoidWithTableAsWithout() {
+        final List<GameState> states = RandomGames.states(21, 1, 200, true);
+        for (int ply = 70; ply < states.size(); ply += 10) {
+            final GameState state = states.get(ply);
+            final AlphaBetaUDAIImpl.Result without =
+                    new AlphaBetaUDAIImpl(3, null, AlphaBetaUDAIImpl.Mode.Paranoid, null).search(state);
+            final AlphaBetaUDAIImpl withTable = new AlphaBetaUDAIImpl(3, null,
+                    AlphaBetaUDAIImpl.Mode.Paranoid, null, new TranspositionTable(16));
+            for (int search = 0; search < 2; search++) {
+                final AlphaBetaUDAIImpl.Result with = withTable.search(state);
+                assertEquals(3, with.depth);
+                //the table keeps scores as floats
+                assertEquals(without.value, with.value, Math.abs(without.value) * 1e-6, Integer.toString(ply));
+            }
+        }
+    }
+
+    @Test
+    void maxN() {
+        final AlphaBetaUDAIImpl.Result result =
+                new AlphaBetaUDAIImpl(1, null, AlphaBetaUDAIImpl.Mode.MaxN, null).search(GameState.newGame);
+        assertMinimax(result, GameState.newGame, 1);
+    }
+
+    @Test
+    void timeLimit() {
+        //without the limit this takes far longer than two seconds
+        final AlphaBetaUDAIImpl ai = new AlphaBetaUDAIImpl(6, 100L, null, null);
+        final long start = System.nanoTime();
+        final AlphaBetaUDAIImpl.Result result = ai.search(GameState.newGame);
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        assertNotNull(result.move);
+        assertTrue(result.depth < ai.maxDepth, Integer.toString(result.depth));
+    }
+}
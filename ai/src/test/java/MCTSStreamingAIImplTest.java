@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+import pl.edu.platinum.archiet.jchess3man.engine.DescMove;
+import pl.edu.platinum.archiet.jchess3man.engine.GameState;
+import pl.edu.platinum.archiet.jchess3man.engine.MoveGenerator;
+import pl.edu.platinum.archiet.jchess3man.engine.MoveList;
+import pl.edu.platinum.archiet.jchess3man.engine.PackedMove;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCTSStreamingAIImplTest {
+    private static boolean isLegal(DescMove move, GameState s) {
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(s, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            final DescMove legal = PackedMove.toDescMove(moves.get(i), s);
+            if (legal.from.equals(move.from) && legal.to.equals(move.to)) return true;
+        }
+        return false;
+    }
+
+    @Test
+    void decidesWithinIterations() {
+        final DescMove move = new MCTSStreamingAIImpl(2, 500, null).decide(GameState.newGame);
+        assertNotNull(move);
+        assertTrue(isLegal(move, GameState.newGame), move.toString());
+        assertThrows(IllegalStateException.class,
+                () -> new MCTSStreamingAIImpl(1, null, null).decide(GameState.newGame));
+    }
+
+    @Test
+    void publishesUntilStopped() {
+        final SingleMoveStreamingAI.ReadAtomicThinking thinking =
+                new MCTSStreamingAIImpl(2, null, null, null, null, 10L).thinking(GameState.newGame);
+        for (int i = 0; i < 3; i++) {
+            thinking.waitForNew();
+            assertTrue(isLegal(thinking.get(), GameState.newGame));
+        }
+        assertFalse(thinking.stopped());
+        thinking.stop();
+        assertTrue(thinking.stopped());
+        thinking.waitForNew();
+    }
+}
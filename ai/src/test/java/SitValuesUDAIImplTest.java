@@ -1,8 +1,13 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import pl.edu.platinum.archiet.jchess3man.engine.FigType;
+import pl.edu.platinum.archiet.jchess3man.engine.DescMove;
 import pl.edu.platinum.archiet.jchess3man.engine.GameState;
 
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Created by Michał Krzysztof Feiler on 18.03.17.
  */
@@ -27,4 +32,23 @@ class SitValuesUDAIImplTest {
         System.out.println(def.decide(GameState.newGame));
     }
 
+    @Test
+    void sameMoveWithAnyParallelism() {
+        final ForkJoinPool onePool = new ForkJoinPool(1);
+        final ForkJoinPool threePool = new ForkJoinPool(3);
+        final DescMove one;
+        final DescMove three;
+        try {
+            one = new SitValuesUDAIImpl(
+                    0.03, null, FigType.Queen, null, onePool).decide(GameState.newGame);
+            three = new SitValuesUDAIImpl(
+                    0.03, null, FigType.Queen, null, threePool).decide(GameState.newGame);
+        } finally {
+            onePool.shutdown();
+            threePool.shutdown();
+        }
+        assertEquals(one.from, three.from);
+        assertEquals(one.to, three.to);
+    }
+
 }
\ No newline at end of file
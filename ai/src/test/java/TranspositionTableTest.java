@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+import pl.edu.platinum.archiet.jchess3man.engine.Color;
+import pl.edu.platinum.archiet.jchess3man.engine.GameState;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+    @Test
+    void packAndProbe() {
+        final TranspositionTable table = new TranspositionTable(4);
+        assertEquals(16, table.capacity());
+        assertEquals(1 << 16, TranspositionTable.ofMegabytes(1).capacity());
+        final long key = GameState.newGame.zobrist();
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+        table.store(key, 3, TranspositionTable.Bound.Lower, -1.5f, 0x2ABCDE);
+        final long data = table.probe(key);
+        assertEquals(3, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.Bound.Lower, TranspositionTable.bound(data));
+        assertEquals(-1.5f, TranspositionTable.score(data));
+        assertEquals(0x2ABCDE, TranspositionTable.move(data));
+        table.store(key, 2, TranspositionTable.Bound.Exact, 7f, 0);
+        assertEquals(3, TranspositionTable.depth(table.probe(key)));
+        table.store(key ^ (1L << 40), 1, TranspositionTable.Bound.Upper, 0f, 0);
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+        assertEquals(1, TranspositionTable.depth(table.probe(key ^ (1L << 40))));
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(key ^ (1L << 40)));
+    }
+
+    @Test
+    void sharedByThreads() throws InterruptedException {
+        final TranspositionTable table = new TranspositionTable(6);
+        final AtomicInteger wrong = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                final SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200000; i++) {
+                    final long key = random.nextLong(1000);
+                    table.store(key, (int) (key % 200), TranspositionTable.Bound.Exact, key, 0);
+                    final long data = table.probe(key);
+                    if (data != TranspositionTable.MISS && TranspositionTable.score(data) != key)
+                        wrong.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) thread.join();
+        assertEquals(0, wrong.get());
+    }
+
+    @Test
+    void sitValueRemembered() {
+        final TranspositionTable table = new TranspositionTable(8);
+        final ConstSitValuesUDAIImpl ai = new ConstSitValuesUDAIImpl(0, null, table);
+        final double first = ai.sitValue(GameState.newGame, Color.White);
+        assertNotEquals(TranspositionTable.MISS, table.probe(GameState.newGame.zobrist()
+                ^ (Color.White.index * 0x9E3779B97F4A7C15L)));
+        assertEquals(first, ai.sitValue(GameState.newGame, Color.White));
+        assertEquals(new ConstSitValuesUDAIImpl(0, null).sitValue(GameState.newGame, Color.White),
+                first, 1e-3);
+    }
+}
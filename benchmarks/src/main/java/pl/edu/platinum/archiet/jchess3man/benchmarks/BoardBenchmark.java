@@ -0,0 +1,31 @@
+package pl.edu.platinum.archiet.jchess3man.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import pl.edu.platinum.archiet.jchess3man.engine.Board;
+import pl.edu.platinum.archiet.jchess3man.engine.GameState;
+import pl.edu.platinum.archiet.jchess3man.engine.Perft;
+
+/**
+ * BoardBenchmark runs the BoardOps on every Board implementation
+ * that can hold any position, on the Positions given.
+ * Build with mvn package in this directory (engine installed first) and run
+ * java -jar target/benchmarks.jar, adding -prof gc for the allocation rates.
+ */
+public class BoardBenchmark extends BoardOps {
+    @Param({"MutableArrayBoardImpl", "MutableHashMapBoardImpl", "FunHashMapBoardImpl",
+            "DiffNGBoardImpl", "Fun1DSeqBoardImpl", "BitBoardImpl"})
+    public String impl;
+
+    @Param({"newGame", "early", "late"})
+    public String position;
+
+    @Override
+    protected GameState state() {
+        return Positions.of(position);
+    }
+
+    @Override
+    protected Board board(GameState state) {
+        return Perft.withBoard(state, impl).board;
+    }
+}
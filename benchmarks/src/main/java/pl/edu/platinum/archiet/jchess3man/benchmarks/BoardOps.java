@@ -0,0 +1,91 @@
+package pl.edu.platinum.archiet.jchess3man.benchmarks;
+
+import org.jooq.lambda.Seq;
+import org.jooq.lambda.tuple.Tuple2;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BoardOps are the Board operations benchmarked on each implementation;
+ * the subclasses say which boards and positions to set up.
+ * put/clr takes a fig off its square and puts it back, in place for
+ * a MutableBoard and as a new board for an ImmutableBoard.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class BoardOps {
+    protected GameState state;
+    protected Board board;
+    private Pos occupied;
+    private Fig fig;
+
+    /**
+     * @return the board to benchmark, set up on [state]
+     */
+    protected abstract Board board(GameState state);
+
+    protected abstract GameState state();
+
+    @Setup
+    public void setUp() {
+        state = state();
+        board = board(state);
+        for (final Pos pos : new AllPosIterable())
+            if (!board.isEmpty(pos)) occupied = pos;
+        fig = board.get(occupied);
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (int rank = 0; rank < 6; rank++)
+            for (int file = 0; file < 24; file++)
+                blackhole.consume(board.get(rank, file));
+    }
+
+    @Benchmark
+    public Object putClr() {
+        if (board instanceof MutableBoard) {
+            final MutableBoard mutable = (MutableBoard) board;
+            mutable.clr(occupied);
+            mutable.put(occupied, fig);
+            return mutable;
+        }
+        return ((ImmutableBoard) board).clr(occupied).put(occupied, fig);
+    }
+
+    @Benchmark
+    public void whereIsKing(Blackhole blackhole) {
+        for (final Color color : Color.colors)
+            blackhole.consume(board._whereIsKing(color));
+    }
+
+    @Benchmark
+    public MutableBoard mutableCopy() {
+        return board.mutableCopy();
+    }
+
+    @Benchmark
+    public ImmutableBoard immutable() {
+        return board.immutable();
+    }
+
+    @Benchmark
+    public void friendsAndOthers(Blackhole blackhole) {
+        final Tuple2<Seq<Pos>, Seq<Pos>> friendsAndOthers =
+                board.friendsAndOthers(state.movesNext, state.alivePlayers);
+        blackhole.consume(friendsAndOthers.v1.toList());
+        blackhole.consume(friendsAndOthers.v2.toList());
+    }
+
+    @Benchmark
+    public String toHexConcatRanks() {
+        return board.toHexConcatRanks();
+    }
+}
@@ -0,0 +1,77 @@
+package pl.edu.platinum.archiet.jchess3man.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CodecBenchmark compares the binary GameStateCodec and the textual
+ * StateNotation with the hex board strings the server stores
+ * (toHexConcatRanks and Fun1DSeqBoardImpl parsing).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"newGame", "early", "late"})
+    public String position;
+
+    private GameState state;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameStateCodec.BYTES);
+    private final BitBoardImpl into = new BitBoardImpl();
+    private String hex;
+    private String notation;
+    private final StringBuilder builder = new StringBuilder(160);
+
+    @Setup
+    public void setUp() {
+        state = new GameState(Positions.of(position), new BitBoardImpl(Positions.of(position).board),
+                null, null, null, null, null, null, null);
+        GameStateCodec.write(state, buffer, 0);
+        hex = state.board.toHexConcatRanks();
+        notation = StateNotation.write(state);
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        GameStateCodec.write(state, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public GameState read() {
+        return GameStateCodec.read(buffer, 0);
+    }
+
+    @Benchmark
+    public long readInto() {
+        return GameStateCodec.readInto(buffer, 0, into);
+    }
+
+    @Benchmark
+    public String writeHex() {
+        return state.board.toHexConcatRanks();
+    }
+
+    @Benchmark
+    public Board readHex() {
+        return new Fun1DSeqBoardImpl(hex, true);
+    }
+
+    @Benchmark
+    public StringBuilder writeNotation() {
+        builder.setLength(0);
+        StateNotation.write(state.board, state.header(), builder);
+        return builder;
+    }
+
+    @Benchmark
+    public long parseNotationInto() {
+        return StateNotation.parseInto(notation, into);
+    }
+}
@@ -0,0 +1,22 @@
+package pl.edu.platinum.archiet.jchess3man.benchmarks;
+
+import pl.edu.platinum.archiet.jchess3man.engine.Board;
+import pl.edu.platinum.archiet.jchess3man.engine.GameState;
+import pl.edu.platinum.archiet.jchess3man.engine.NewGameBoardImpl;
+
+/**
+ * NewGameBoardBenchmark runs the BoardOps on NewGameBoardImpl,
+ * which only ever holds the new game, to compare with
+ * the newGame position of BoardBenchmark.
+ */
+public class NewGameBoardBenchmark extends BoardOps {
+    @Override
+    protected GameState state() {
+        return GameState.newGame;
+    }
+
+    @Override
+    protected Board board(GameState state) {
+        return NewGameBoardImpl.c;
+    }
+}
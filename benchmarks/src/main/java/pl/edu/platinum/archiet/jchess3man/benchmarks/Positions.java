@@ -0,0 +1,37 @@
+package pl.edu.platinum.archiet.jchess3man.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import pl.edu.platinum.archiet.jchess3man.engine.*;
+
+import java.util.List;
+
+/**
+ * Positions are the game states the benchmarks are run on,
+ * reached by random legal moves from a fixed seed, so the same on every run:
+ * early is a few moves into the game with all the figs on the board,
+ * late is a long game preferring captures, so that the board is sparse.
+ */
+public final class Positions {
+    private Positions() {
+    }
+
+    @NotNull
+    public static GameState of(@NotNull String name) {
+        switch (name) {
+            case "newGame":
+                return GameState.newGame;
+            case "early":
+                return play(9, false, 1);
+            case "late":
+                return play(150, true, 2);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    @NotNull
+    private static GameState play(int plies, boolean preferCaptures, long seed) {
+        final List<GameState> game = RandomGames.states(seed, 1, plies, preferCaptures);
+        return game.get(game.size() - 1);
+    }
+}
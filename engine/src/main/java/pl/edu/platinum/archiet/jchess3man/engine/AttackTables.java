@@ -0,0 +1,510 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.WORDS;
+
+/**
+ * AttackTables holds the geometry of the board that does not depend
+ * on what stands where. For every square and each of the eight directions
+ * there is a ray of the squares reached by a ContinuousVector of abs 1, 2, …
+ * (file rays wrap around the 24 files, inward rank and diagonal rays go
+ * thru the center), the moats crossed up to every step of the ray
+ * and the squares strictly between the start and every step as 144-bit masks.
+ * Knight jumps and king steps are there too, with their moats.
+ * Everything is computed once from addTo of the respective vectors,
+ * so that geometry queries made for every candidate move are just lookups.
+ * Squares are indexed as in BitBoard, moats are masks of bits {@code 1 << color.segm()},
+ * where the moat of a color is the one between that color and the next one.
+ */
+public final class AttackTables {
+    public static final int FILE_PLUS = 0;
+    public static final int FILE_MINUS = 1;
+    public static final int RANK_INWARD = 2;
+    public static final int RANK_OUTWARD = 3;
+    public static final int DIAG_IN_PLUS = 4;
+    public static final int DIAG_IN_MINUS = 5;
+    public static final int DIAG_OUT_PLUS = 6;
+    public static final int DIAG_OUT_MINUS = 7;
+    /**
+     * how many ray directions are there
+     */
+    public static final int DIRECTIONS = 8;
+    /**
+     * the longest ray, i.e. a file ray all around the board but the start
+     */
+    public static final int MAX_ABS = 23;
+
+    private AttackTables() {
+    }
+
+    private static final Pos[] poses = new Pos[SQUARES];
+    /**
+     * [dir * MAX_ABS + abs - 1]
+     */
+    private static final ContinuousVector[] vectors = new ContinuousVector[DIRECTIONS * MAX_ABS];
+    /**
+     * [square * DIRECTIONS + dir], squares reached with abs 1, 2, …
+     */
+    private static final int[][] rays = new int[SQUARES * DIRECTIONS][];
+    /**
+     * [square * DIRECTIONS + dir], moats crossed up to abs 1, 2, …
+     */
+    private static final int[][] rayMoats = new int[SQUARES * DIRECTIONS][];
+    /**
+     * [((square * DIRECTIONS + dir) * MAX_ABS + abs - 1) * WORDS + word]
+     */
+    private static final long[] between = new long[SQUARES * DIRECTIONS * MAX_ABS * WORDS];
+    /**
+     * [(square * DIRECTIONS + dir) * MAX_ABS + abs - 1]
+     */
+    private static final List<Pos>[] betweenLists;
+    private static final List<AxisVector>[] axisTo;
+    private static final List<DiagonalVector>[] diagonalTo;
+    private static final List<ContinuousVector>[] continuousTo;
+    private static final KnightVector[] knightTo = new KnightVector[SQUARES * SQUARES];
+    private static final int[][] knights = new int[SQUARES][];
+    private static final int[][] knightMoats = new int[SQUARES][];
+    private static final long[] knightMasks = new long[SQUARES * WORDS];
+    private static final ContinuousVector[] kingTo = new ContinuousVector[SQUARES * SQUARES];
+    private static final int[][] kings = new int[SQUARES][];
+    private static final long[] kingMasks = new long[SQUARES * WORDS];
+    private static final List<Pos>[] reachable;
+    private static final List<Color>[] moatLists;
+
+    @Contract(pure = true)
+    private static int maxAbs(int dir, int rank) {
+        switch (dir) {
+            case FILE_PLUS:
+            case FILE_MINUS:
+                return MAX_ABS;
+            case RANK_INWARD:
+            case DIAG_IN_PLUS:
+            case DIAG_IN_MINUS:
+                return 11 - rank;
+            default:
+                return rank;
+        }
+    }
+
+    @NotNull
+    private static ContinuousVector newVector(int dir, int abs) {
+        switch (dir) {
+            case FILE_PLUS:
+                return new FileVector(abs, true);
+            case FILE_MINUS:
+                return new FileVector(abs, false);
+            case RANK_INWARD:
+                return new RankVector(abs, true);
+            case RANK_OUTWARD:
+                return new RankVector(abs, false);
+            case DIAG_IN_PLUS:
+                return new DiagonalVector(abs, true, true);
+            case DIAG_IN_MINUS:
+                return new DiagonalVector(abs, true, false);
+            case DIAG_OUT_PLUS:
+                return new DiagonalVector(abs, false, true);
+            case DIAG_OUT_MINUS:
+                return new DiagonalVector(abs, false, false);
+        }
+        throw new IllegalArgumentException(Integer.toString(dir));
+    }
+
+    /**
+     * @return the moat crossed by a single step between adjacent squares,
+     * that is only on rank 0 (or from/to it) and between two segments
+     */
+    @Contract(pure = true)
+    private static int stepMoat(int from, int to) {
+        if (from >= 24 && to >= 24) return 0;
+        final int fromSegm = (from % 24) >> 3;
+        final int toSegm = (to % 24) >> 3;
+        if (fromSegm == toSegm) return 0;
+        return 1 << (toSegm == (fromSegm + 1) % 3 ? fromSegm : toSegm);
+    }
+
+    private static void setBit(long[] masks, int offset, int square) {
+        masks[offset + BitBoard.word(square)] |= BitBoard.bit(square);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T>[] newListArray(int length) {
+        return (List<T>[]) new List<?>[length];
+    }
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) poses[sq] = new Pos(sq / 24, sq % 24);
+        for (int dir = 0; dir < DIRECTIONS; dir++)
+            for (int abs = 1; abs <= Math.max(maxAbs(dir, 0), maxAbs(dir, 5)); abs++)
+                vectors[dir * MAX_ABS + abs - 1] = newVector(dir, abs);
+        betweenLists = newListArray(SQUARES * DIRECTIONS * MAX_ABS);
+        for (int sq = 0; sq < SQUARES; sq++)
+            for (int dir = 0; dir < DIRECTIONS; dir++) {
+                final int ri = sq * DIRECTIONS + dir;
+                final int len = maxAbs(dir, sq / 24);
+                final int[] ray = new int[len];
+                final int[] moats = new int[len];
+                final Pos[] rayPoses = new Pos[len];
+                int prev = sq;
+                int moat = 0;
+                for (int abs = 1; abs <= len; abs++) {
+                    final Pos to;
+                    try {
+                        to = vectors[dir * MAX_ABS + abs - 1].addTo(poses[sq]);
+                    } catch (VectorAdditionFailedException e) {
+                        throw new AssertionError(e);
+                    }
+                    final int cur = to.toInt();
+                    moat |= stepMoat(prev, cur);
+                    ray[abs - 1] = cur;
+                    moats[abs - 1] = moat;
+                    rayPoses[abs - 1] = poses[cur];
+                    final int bi = ri * MAX_ABS + abs - 1;
+                    if (abs > 1) {
+                        System.arraycopy(between, (bi - 1) * WORDS, between, bi * WORDS, WORDS);
+                        setBit(between, bi * WORDS, prev);
+                    }
+                    betweenLists[bi] = Collections.unmodifiableList(
+                            Arrays.asList(Arrays.copyOf(rayPoses, abs - 1)));
+                    prev = cur;
+                }
+                rays[ri] = ray;
+                rayMoats[ri] = moats;
+            }
+
+        final KnightVector[] knightVectors = new KnightVector[8];
+        int i = 0;
+        for (final boolean inward : new boolean[]{false, true})
+            for (final boolean plusFile : new boolean[]{false, true})
+                for (final boolean centerOneCloser : new boolean[]{false, true})
+                    knightVectors[i++] = new KnightVector(inward, plusFile, centerOneCloser);
+        final int[] kingDirs = {FILE_PLUS, FILE_MINUS, RANK_INWARD, RANK_OUTWARD,
+                DIAG_IN_PLUS, DIAG_OUT_MINUS, DIAG_IN_MINUS, DIAG_OUT_PLUS};
+        final int[] temp = new int[8];
+        final int[] tempMoats = new int[8];
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int n = 0;
+            for (final KnightVector vec : knightVectors) {
+                final Pos to = vec.addTo(poses[sq]);
+                if (to.rank < 0 || to.rank > 5) continue;
+                final int t = to.toInt();
+                if (knightTo[sq * SQUARES + t] != null) continue;
+                knightTo[sq * SQUARES + t] = vec;
+                final Color m = vec.moat(poses[sq]);
+                tempMoats[n] = m == null ? 0 : 1 << m.segm();
+                temp[n++] = t;
+                setBit(knightMasks, sq * WORDS, t);
+            }
+            knights[sq] = Arrays.copyOf(temp, n);
+            knightMoats[sq] = Arrays.copyOf(tempMoats, n);
+            n = 0;
+            for (final int dir : kingDirs) {
+                final int[] ray = rays[sq * DIRECTIONS + dir];
+                if (ray.length == 0) continue;
+                final int t = ray[0];
+                if (kingTo[sq * SQUARES + t] != null) continue;
+                kingTo[sq * SQUARES + t] = vectors[dir * MAX_ABS];
+                temp[n++] = t;
+                setBit(kingMasks, sq * WORDS, t);
+            }
+            kings[sq] = Arrays.copyOf(temp, n);
+        }
+
+        axisTo = newListArray(SQUARES * SQUARES);
+        diagonalTo = newListArray(SQUARES * SQUARES);
+        continuousTo = newListArray(SQUARES * SQUARES);
+        reachable = newListArray(SQUARES);
+        final Comparator<ContinuousVector> byAbs = Comparator.comparingInt(v -> v.abs);
+        for (int sq = 0; sq < SQUARES; sq++) {
+            final List<List<RankVector>> ranks = new ArrayList<>(SQUARES);
+            final List<List<FileVector>> files = new ArrayList<>(SQUARES);
+            final List<List<DiagonalVector>> diagonals = new ArrayList<>(SQUARES);
+            for (int t = 0; t < SQUARES; t++) {
+                ranks.add(new ArrayList<>(1));
+                files.add(new ArrayList<>(2));
+                diagonals.add(new ArrayList<>(2));
+            }
+            final boolean[] any = new boolean[SQUARES];
+            for (int dir = 0; dir < DIRECTIONS; dir++) {
+                final int[] ray = rays[sq * DIRECTIONS + dir];
+                for (int abs = 1; abs <= ray.length; abs++) {
+                    final int t = ray[abs - 1];
+                    if (t == sq) continue;
+                    any[t] = true;
+                    final ContinuousVector vec = vectors[dir * MAX_ABS + abs - 1];
+                    if (vec instanceof RankVector) ranks.get(t).add((RankVector) vec);
+                    else if (vec instanceof FileVector) files.get(t).add((FileVector) vec);
+                    else diagonals.get(t).add((DiagonalVector) vec);
+                }
+            }
+            for (final int t : knights[sq]) any[t] = true;
+            final List<Pos> reach = new ArrayList<>();
+            for (int t = 0; t < SQUARES; t++) {
+                if (any[t]) reach.add(poses[t]);
+                final int pi = sq * SQUARES + t;
+                final List<AxisVector> axis = new ArrayList<>(ranks.get(t));
+                files.get(t).sort(byAbs);
+                axis.addAll(files.get(t));
+                diagonals.get(t).sort(byAbs);
+                final List<ContinuousVector> continuous = new ArrayList<>(axis);
+                continuous.addAll(diagonals.get(t));
+                axisTo[pi] = axis.isEmpty() ? Collections.emptyList()
+                        : Collections.unmodifiableList(axis);
+                diagonalTo[pi] = diagonals.get(t).isEmpty() ? Collections.emptyList()
+                        : Collections.unmodifiableList(diagonals.get(t));
+                continuousTo[pi] = continuous.isEmpty() ? Collections.emptyList()
+                        : Collections.unmodifiableList(continuous);
+            }
+            reachable[sq] = Collections.unmodifiableList(reach);
+        }
+
+        moatLists = newListArray(8);
+        for (int mask = 0; mask < 8; mask++) {
+            final List<Color> list = new ArrayList<>(3);
+            for (final Color color : Color.colors)
+                if ((mask & moatBit(color)) != 0) list.add(color);
+            moatLists[mask] = Collections.unmodifiableList(list);
+        }
+    }
+
+    /**
+     * @param square square index
+     * @return shared Pos of that square
+     */
+    @Contract(pure = true)
+    public static Pos pos(int square) {
+        return poses[square];
+    }
+
+    @Contract(pure = true)
+    public static boolean isAxis(int dir) {
+        return dir < DIAG_IN_PLUS;
+    }
+
+    @Contract(pure = true)
+    public static boolean isDiagonal(int dir) {
+        return dir >= DIAG_IN_PLUS;
+    }
+
+    /**
+     * @param dir direction
+     * @param abs how many steps
+     * @return shared ContinuousVector of that direction and abs,
+     * null if there is no such one on the board
+     */
+    @Contract(pure = true)
+    public static @Nullable ContinuousVector vector(int dir, int abs) {
+        if (abs < 1 || abs > MAX_ABS) return null;
+        return vectors[dir * MAX_ABS + abs - 1];
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @return squares reached from [square] with abs 1, 2, …; do not modify
+     */
+    @Contract(pure = true)
+    public static int[] ray(int square, int dir) {
+        return rays[square * DIRECTIONS + dir];
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @return moats crossed up to abs 1, 2, … on the [ray]; do not modify
+     */
+    @Contract(pure = true)
+    public static int[] rayMoats(int square, int dir) {
+        return rayMoats[square * DIRECTIONS + dir];
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @param abs    how many steps
+     * @return whether such a vector fits in the tables (and in the board)
+     */
+    @Contract(pure = true)
+    public static boolean inRange(int square, int dir, int abs) {
+        return abs >= 1 && abs <= rays[square * DIRECTIONS + dir].length;
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @param abs    how many steps, must be [inRange]
+     * @return the mask of moats crossed by such a vector
+     */
+    @Contract(pure = true)
+    public static int moatsAt(int square, int dir, int abs) {
+        return rayMoats[square * DIRECTIONS + dir][abs - 1];
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @param abs    how many steps, must be [inRange]
+     * @param word   which word, 0 to WORDS-1
+     * @return the squares strictly between the start and the destination
+     */
+    @Contract(pure = true)
+    public static long betweenWord(int square, int dir, int abs, int word) {
+        return between[((square * DIRECTIONS + dir) * MAX_ABS + abs - 1) * WORDS + word];
+    }
+
+    /**
+     * @param square starting square
+     * @param dir    direction
+     * @param abs    how many steps
+     * @return the squares strictly between the start and the destination,
+     * null if not [inRange]
+     */
+    @Contract(pure = true)
+    public static @Nullable List<Pos> between(int square, int dir, int abs) {
+        if (!inRange(square, dir, abs)) return null;
+        return betweenLists[(square * DIRECTIONS + dir) * MAX_ABS + abs - 1];
+    }
+
+    /**
+     * @param board  the board
+     * @param square starting square
+     * @param dir    direction
+     * @param abs    how many steps, must be [inRange]
+     * @return whether all the squares strictly between are empty
+     */
+    public static boolean areEmptiesBetween(@NotNull Board board, int square, int dir, int abs) {
+        if (board instanceof BitBoard) {
+            final BitBoard b = (BitBoard) board;
+            final int bi = ((square * DIRECTIONS + dir) * MAX_ABS + abs - 1) * WORDS;
+            for (int w = 0; w < WORDS; w++)
+                if ((b.occupiedWord(w) & between[bi + w]) != 0) return false;
+            return true;
+        }
+        final int[] ray = rays[square * DIRECTIONS + dir];
+        for (int i = 0; i < abs - 1; i++)
+            if (!board.isEmpty(ray[i] / 24, ray[i] % 24)) return false;
+        return true;
+    }
+
+    /**
+     * Adds to [into] the squares that a slider standing on [square]
+     * could capture on in direction [dir]: up to and including the first
+     * occupied one, but never past a moat.
+     *
+     * @param board  the board
+     * @param square where the slider stands
+     * @param dir    direction
+     * @param into   WORDS longs to OR the squares into
+     */
+    public static void sliderAttacks(@NotNull BitBoard board, int square, int dir, long[] into) {
+        final int[] ray = rays[square * DIRECTIONS + dir];
+        final int[] moats = rayMoats[square * DIRECTIONS + dir];
+        for (int i = 0; i < ray.length && moats[i] == 0; i++) {
+            final int t = ray[i];
+            into[BitBoard.word(t)] |= BitBoard.bit(t);
+            if (!board.isEmpty(t)) return;
+        }
+    }
+
+    /**
+     * @return the axis (rook) vectors from [from] to [to], short ones first
+     */
+    @Contract(pure = true)
+    public static List<AxisVector> axisVectors(@NotNull Pos from, @NotNull Pos to) {
+        return axisTo[from.toInt() * SQUARES + to.toInt()];
+    }
+
+    /**
+     * @return the diagonal (bishop) vectors from [from] to [to], short ones first
+     */
+    @Contract(pure = true)
+    public static List<DiagonalVector> diagonalVectors(@NotNull Pos from, @NotNull Pos to) {
+        return diagonalTo[from.toInt() * SQUARES + to.toInt()];
+    }
+
+    /**
+     * @return the axis vectors and then the diagonal vectors from [from] to [to]
+     */
+    @Contract(pure = true)
+    public static List<ContinuousVector> continuousVectors(@NotNull Pos from, @NotNull Pos to) {
+        return continuousTo[from.toInt() * SQUARES + to.toInt()];
+    }
+
+    /**
+     * @return the KnightVector from [from] to [to] or null if there is none
+     */
+    @Contract(pure = true)
+    public static @Nullable KnightVector knightVector(int from, int to) {
+        return knightTo[from * SQUARES + to];
+    }
+
+    /**
+     * @return squares a knight can jump to from [square]; do not modify
+     */
+    @Contract(pure = true)
+    public static int[] knightJumps(int square) {
+        return knights[square];
+    }
+
+    /**
+     * @return moats crossed by the respective [knightJumps]; do not modify
+     */
+    @Contract(pure = true)
+    public static int[] knightMoats(int square) {
+        return knightMoats[square];
+    }
+
+    @Contract(pure = true)
+    public static long knightWord(int square, int word) {
+        return knightMasks[square * WORDS + word];
+    }
+
+    /**
+     * @return the unit ContinuousVector of a king from [from] to [to] or null
+     */
+    @Contract(pure = true)
+    public static @Nullable ContinuousVector kingStep(int from, int to) {
+        return kingTo[from * SQUARES + to];
+    }
+
+    /**
+     * @return squares a king can step to from [square] (no castling); do not modify
+     */
+    @Contract(pure = true)
+    public static int[] kingSteps(int square) {
+        return kings[square];
+    }
+
+    @Contract(pure = true)
+    public static long kingWord(int square, int word) {
+        return kingMasks[square * WORDS + word];
+    }
+
+    /**
+     * @return all the squares reachable from [square] by any fig on an empty board,
+     * pawn moves and castling aside
+     */
+    @Contract(pure = true)
+    public static List<Pos> reachable(int square) {
+        return reachable[square];
+    }
+
+    @Contract(pure = true)
+    public static int moatBit(@NotNull Color color) {
+        return 1 << color.segm();
+    }
+
+    /**
+     * @param mask mask of moats
+     * @return shared list of the moats in that mask
+     */
+    @Contract(pure = true)
+    public static List<Color> moats(int mask) {
+        return moatLists[mask];
+    }
+}
@@ -0,0 +1,332 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.WORDS;
+
+/**
+ * Attacks answers "is that square attacked by that color" on a BitBoard
+ * with table lookups instead of constructing a VecMove for every fig
+ * and every vector like Board.isThereAThreat does.
+ * A fig attacks a square if it could capture there, whatever stands there:
+ * never thru a moat, bridged or not, nor by a pawn walk or castling,
+ * exactly as a check is understood by the rest of the engine.
+ * For every pair of squares the tables hold whether a knight, a king
+ * or a pawn (with or without pawnCenter) standing on one attacks the other,
+ * and the rook-like and bishop-like lines from one to the other that cross
+ * no moat; only the figs of the attacking color that stand on a square
+ * from which anything could ever attack the target are looked at.
+ */
+public final class Attacks {
+    private Attacks() {
+    }
+
+    private static final int[] NO_LINES = new int[0];
+    /**
+     * [from * SQUARES + to]: lines as dir << 5 | abs, moatless ContinuousVectors only
+     */
+    private static final int[][] lines = new int[SQUARES * SQUARES][];
+    private static final long[] knightMasks = new long[SQUARES * WORDS];
+    private static final long[] kingMasks = new long[SQUARES * WORDS];
+    /**
+     * [(from * 2 + (pawnCenter ? 1 : 0)) * WORDS + word]
+     */
+    private static final long[] pawnMasks = new long[SQUARES * 2 * WORDS];
+    /**
+     * [to * WORDS + word]: squares from which any fig could attack [to]
+     */
+    private static final long[] reaching = new long[SQUARES * WORDS];
+
+    static {
+        for (int from = 0; from < SQUARES; from++) {
+            final Pos fromPos = AttackTables.pos(from);
+            for (int to = 0; to < SQUARES; to++) {
+                final List<ContinuousVector> vectors =
+                        AttackTables.continuousVectors(fromPos, AttackTables.pos(to));
+                int count = 0;
+                final int[] found = new int[vectors.size()];
+                for (final ContinuousVector vec : vectors)
+                    if (AttackTables.moatsAt(from, vec.direction(), vec.abs) == 0)
+                        found[count++] = vec.direction() << 5 | vec.abs;
+                lines[from * SQUARES + to] = count == 0 ? NO_LINES
+                        : count == found.length ? found : Arrays.copyOf(found, count);
+                if (count > 0) set(reaching, to, from);
+            }
+            final int[] jumps = AttackTables.knightJumps(from);
+            final int[] jumpMoats = AttackTables.knightMoats(from);
+            for (int i = 0; i < jumps.length; i++)
+                if (jumpMoats[i] == 0) {
+                    set(knightMasks, from, jumps[i]);
+                    set(reaching, jumps[i], from);
+                }
+            for (final int to : AttackTables.kingSteps(from)) {
+                final ContinuousVector step = AttackTables.kingStep(from, to);
+                assert step != null;
+                if (AttackTables.moatsAt(from, step.direction(), 1) == 0) {
+                    set(kingMasks, from, to);
+                    set(reaching, to, from);
+                }
+            }
+            for (final PawnCapVector cap : PawnCapVector.allCombinations)
+                try {
+                    final int to = cap.addTo(fromPos).toInt();
+                    if (to < 0) continue;
+                    set(pawnMasks, from * 2 + (cap.inward ? 0 : 1), to);
+                    set(reaching, to, from);
+                } catch (VectorAdditionFailedException ignored) {
+                }
+        }
+    }
+
+    private static void set(long[] masks, int index, int square) {
+        masks[index * WORDS + BitBoard.word(square)] |= BitBoard.bit(square);
+    }
+
+    @Contract(pure = true)
+    private static boolean has(long[] masks, int index, int square) {
+        return (masks[index * WORDS + BitBoard.word(square)] & BitBoard.bit(square)) != 0;
+    }
+
+    /**
+     * @param board the board
+     * @param from  where the fig stands
+     * @param code  seven-bit code of the fig on [from]
+     * @param to    the square attacked or not
+     * @return whether the fig could capture on [to], should there be an enemy
+     */
+    @Contract(pure = true)
+    public static boolean attacks(@NotNull BitBoard board, int from, int code, int to) {
+        return attacks(board, null, from, code, to);
+    }
+
+    /**
+     * Same as attacks(board, from, code, to), but with the lines blocked
+     * by the squares in [occupied] instead of the ones occupied on [board]
+     *
+     * @param occupied WORDS longs, null meaning the board's occupancy
+     */
+    @Contract(pure = true)
+    public static boolean attacks(@NotNull BitBoard board, @Nullable long[] occupied,
+                                  int from, int code, int to) {
+        switch (code & 7) {
+            case 1: //Rook
+                return line(board, occupied, from, to, true, false);
+            case 2: //Knight
+                return has(knightMasks, from, to);
+            case 3: //Bishop
+                return line(board, occupied, from, to, false, true);
+            case 4: //Queen
+                return line(board, occupied, from, to, true, true);
+            case 5: //King
+                return has(kingMasks, from, to);
+            case 6: //Pawn
+                return has(pawnMasks, from * 2 + ((code & (1 << 6)) != 0 ? 1 : 0), to);
+        }
+        return false;
+    }
+
+    /**
+     * @param board the board
+     * @param from  where the fig stands, must not be empty
+     * @param to    the square attacked or not
+     * @return whether the fig on [from] could capture on [to],
+     * false if there is a fig of its own color there
+     */
+    @Contract(pure = true)
+    public static boolean attacks(@NotNull BitBoard board, int from, int to) {
+        final int code = board.sevenBit(from);
+        final int there = board.sevenBit(to);
+        return (there == 0 || ((there ^ code) & (3 << 3)) != 0) && attacks(board, from, code, to);
+    }
+
+    @Contract(pure = true)
+    private static boolean line(@NotNull BitBoard board, @Nullable long[] occupied,
+                                int from, int to, boolean axis, boolean diagonal) {
+        for (final int line : lines[from * SQUARES + to]) {
+            final int dir = line >>> 5;
+            if (!(AttackTables.isAxis(dir) ? axis : diagonal)) continue;
+            final int abs = line & 0x1F;
+            boolean empty = true;
+            for (int w = 0; w < WORDS && empty; w++)
+                empty = (AttackTables.betweenWord(from, dir, abs, w)
+                        & (occupied == null ? board.occupiedWord(w) : occupied[w])) == 0;
+            if (empty) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param board the board
+     * @param to    the square
+     * @param by    the attacking color
+     * @return whether any fig of [by] attacks [to]
+     */
+    @Contract(pure = true)
+    public static boolean isAttackedBy(@NotNull BitBoard board, int to, @NotNull Color by) {
+        for (int w = 0; w < WORDS; w++)
+            for (long s = board.colorWord(by, w) & reaching[to * WORDS + w]; s != 0; s &= s - 1) {
+                final int from = BitBoard.squareOf(w, Long.numberOfTrailingZeros(s));
+                if (attacks(board, from, board.sevenBit(from), to)) return true;
+            }
+        return false;
+    }
+
+    /**
+     * @param board    the board
+     * @param to       the square
+     * @param defender the color that is not attacking
+     * @param pa       which players are alive; the dead do not attack
+     * @return whether any living enemy of [defender] attacks [to]
+     */
+    @Contract(pure = true)
+    public static boolean isAttacked(@NotNull BitBoard board, int to,
+                                     @NotNull Color defender, @NotNull PlayersAlive pa) {
+        for (final Color by : Color.colors)
+            if (by != defender && pa.get(by) && isAttackedBy(board, to, by)) return true;
+        return false;
+    }
+
+    /**
+     * Whether [to] would be attacked after a move of [defender] that changed
+     * the occupancy to [occupied] and maybe captured an enemy fig
+     *
+     * @param occupied WORDS longs, the occupancy after the move
+     * @param captured square of the enemy fig captured by the move, -1 if none
+     * @return whether any living enemy of [defender] attacks [to]
+     */
+    @Contract(pure = true)
+    public static boolean isAttacked(@NotNull BitBoard board, @NotNull long[] occupied, int to,
+                                     @NotNull Color defender, @NotNull PlayersAlive pa,
+                                     int captured) {
+        for (int w = 0; w < WORDS; w++) {
+            long enemies = board.occupiedWord(w) & ~board.colorWord(defender, w)
+                    & reaching[to * WORDS + w];
+            if (captured >= 0 && BitBoard.word(captured) == w) enemies &= ~BitBoard.bit(captured);
+            for (final Color by : Color.colors)
+                if (!pa.get(by)) enemies &= ~board.colorWord(by, w);
+            for (long s = enemies; s != 0; s &= s - 1) {
+                final int from = BitBoard.squareOf(w, Long.numberOfTrailingZeros(s));
+                if (attacks(board, occupied, from, board.sevenBit(from), to)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks at what stands between [king] and the living enemies of [defender]:
+     * which figs of [defender] are pinned, which enemy figs give check and,
+     * if there is exactly one of them, where a fig other than the king
+     * has to go to get out of the check.
+     *
+     * @param pinned   WORDS longs, overwritten: [defender]'s figs that are
+     *                 the only fig on some line from an enemy slider to [king]
+     * @param checkers WORDS longs, overwritten: enemy figs attacking [king]
+     * @param resolve  WORDS longs, overwritten: if there is a single checker,
+     *                 its square and the squares blocking all its lines to [king];
+     *                 otherwise empty
+     * @return how many checkers there are
+     */
+    public static int kingSafety(@NotNull BitBoard board, int king, @NotNull Color defender,
+                                 @NotNull PlayersAlive pa,
+                                 long[] pinned, long[] checkers, long[] resolve) {
+        int count = 0;
+        int checker = -1;
+        for (int w = 0; w < WORDS; w++) {
+            pinned[w] = 0;
+            checkers[w] = 0;
+            resolve[w] = 0;
+        }
+        for (int w = 0; w < WORDS; w++) {
+            long enemies = board.occupiedWord(w) & ~board.colorWord(defender, w)
+                    & reaching[king * WORDS + w];
+            for (final Color by : Color.colors)
+                if (!pa.get(by)) enemies &= ~board.colorWord(by, w);
+            for (long s = enemies; s != 0; s &= s - 1) {
+                final int from = BitBoard.squareOf(w, Long.numberOfTrailingZeros(s));
+                final int code = board.sevenBit(from);
+                final int type = code & 7;
+                boolean checks;
+                if (type == 1 || type == 3 || type == 4) {
+                    checks = false;
+                    for (final int line : lines[from * SQUARES + king]) {
+                        final int dir = line >>> 5;
+                        if (AttackTables.isAxis(dir) ? type == 3 : type == 1) continue;
+                        final int abs = line & 0x1F;
+                        int blockers = 0;
+                        int blocker = -1;
+                        for (int v = 0; v < WORDS; v++) {
+                            final long b = AttackTables.betweenWord(from, dir, abs, v)
+                                    & board.occupiedWord(v);
+                            blockers += Long.bitCount(b);
+                            if (b != 0) blocker = BitBoard.squareOf(v, Long.numberOfTrailingZeros(b));
+                        }
+                        if (blockers == 0) checks = true;
+                        else if (blockers == 1 && (board.colorWord(defender, BitBoard.word(blocker))
+                                & BitBoard.bit(blocker)) != 0)
+                            pinned[BitBoard.word(blocker)] |= BitBoard.bit(blocker);
+                    }
+                } else checks = attacks(board, from, code, king);
+                if (checks) {
+                    checkers[w] |= Long.lowestOneBit(s);
+                    checker = from;
+                    count++;
+                }
+            }
+        }
+        if (count != 1) return count;
+        final int type = board.sevenBit(checker) & 7;
+        long r0 = ~0L, r1 = ~0L, r2 = ~0L;
+        if (type == 1 || type == 3 || type == 4) {
+            for (final int line : lines[checker * SQUARES + king]) {
+                final int dir = line >>> 5;
+                if (AttackTables.isAxis(dir) ? type == 3 : type == 1) continue;
+                final int abs = line & 0x1F;
+                final long b0 = AttackTables.betweenWord(checker, dir, abs, 0);
+                final long b1 = AttackTables.betweenWord(checker, dir, abs, 1);
+                final long b2 = AttackTables.betweenWord(checker, dir, abs, 2);
+                if ((b0 & board.occupiedWord(0)) == 0 && (b1 & board.occupiedWord(1)) == 0
+                        && (b2 & board.occupiedWord(2)) == 0) {
+                    r0 &= b0;
+                    r1 &= b1;
+                    r2 &= b2;
+                }
+            }
+        } else r0 = r1 = r2 = 0;
+        resolve[0] = r0;
+        resolve[1] = r1;
+        resolve[2] = r2;
+        resolve[BitBoard.word(checker)] |= BitBoard.bit(checker);
+        return 1;
+    }
+
+    /**
+     * Puts the squares of all the living enemies of [defender] that attack [to] into [into]
+     *
+     * @param into WORDS longs, overwritten
+     * @return whether there is any
+     */
+    public static boolean attackers(@NotNull BitBoard board, int to, @NotNull Color defender,
+                                    @NotNull PlayersAlive pa, long[] into) {
+        long any = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long enemies = board.occupiedWord(w) & ~board.colorWord(defender, w)
+                    & reaching[to * WORDS + w];
+            for (final Color by : Color.colors)
+                if (!pa.get(by)) enemies &= ~board.colorWord(by, w);
+            long found = 0;
+            for (long s = enemies; s != 0; s &= s - 1) {
+                final int from = BitBoard.squareOf(w, Long.numberOfTrailingZeros(s));
+                if (attacks(board, from, board.sevenBit(from), to)) found |= Long.lowestOneBit(s);
+            }
+            into[w] = found;
+            any |= found;
+        }
+        return any != 0;
+    }
+}
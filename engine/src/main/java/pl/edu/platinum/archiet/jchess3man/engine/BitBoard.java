@@ -0,0 +1,244 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jooq.lambda.Seq;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * BitBoard is a Board that keeps its squares as 144-bit sets,
+ * each of them stored in [WORDS] primitive longs.
+ * A square is indexed the same way as Pos.toInt(), i.e. rank * 24 + file,
+ * so square 0 is [0,0] and square 143 is [5,23].
+ * Queries about occupancy, emptiness and all the pieces of a color
+ * are then just a few bitwise operations.
+ */
+public interface BitBoard extends Board {
+    /**
+     * how many longs make a 144-bit set
+     */
+    int WORDS = 3;
+    /**
+     * how many squares are there on the board
+     */
+    int SQUARES = 24 * 6;
+
+    /**
+     * @param rank rank of the square
+     * @param file file of the square
+     * @return square index, i.e. rank * 24 + file
+     */
+    @Contract(pure = true)
+    static int square(int rank, int file) {
+        return rank * 24 + file;
+    }
+
+    /**
+     * @param square square index
+     * @return which of the [WORDS] longs contains that square
+     */
+    @Contract(pure = true)
+    static int word(int square) {
+        return square >>> 6;
+    }
+
+    /**
+     * @param square square index
+     * @return the bit of that square within its word
+     */
+    @Contract(pure = true)
+    static long bit(int square) {
+        return 1L << (square & 63);
+    }
+
+    /**
+     * @param word   which word, 0 to WORDS-1
+     * @param bitIdx position of the bit in that word
+     * @return square index
+     */
+    @Contract(pure = true)
+    static int squareOf(int word, int bitIdx) {
+        return (word << 6) + bitIdx;
+    }
+
+    /**
+     * @param word which word, 0 to WORDS-1
+     * @return all occupied squares in that word
+     */
+    long occupiedWord(int word);
+
+    /**
+     * @param who  color of the pieces
+     * @param word which word, 0 to WORDS-1
+     * @return squares in that word occupied by [who]
+     */
+    long colorWord(@NotNull Color who, int word);
+
+    /**
+     * @param type type of the pieces
+     * @param word which word, 0 to WORDS-1
+     * @return squares in that word occupied by figs of that [type]
+     */
+    long typeWord(@NotNull FigType type, int word);
+
+    /**
+     * @param word which word, 0 to WORDS-1
+     * @return squares in that word occupied by pawns that crossed the center
+     */
+    long pawnCenterWord(int word);
+
+    /**
+     * @param who  color of the pieces
+     * @param type type of the pieces
+     * @param word which word, 0 to WORDS-1
+     * @return squares in that word occupied by [who]'s figs of that [type]
+     */
+    default long piecesWord(@NotNull Color who, @NotNull FigType type, int word) {
+        return colorWord(who, word) & typeWord(type, word);
+    }
+
+    /**
+     * @param square square index
+     * @return the seven-bit code of the fig there (as in Fig.sevenBitInt), 0 if empty
+     */
+    int sevenBit(int square);
+
+    /**
+     * @param square square index
+     * @return whether that square is empty
+     */
+    default boolean isEmpty(int square) {
+        return (occupiedWord(word(square)) & bit(square)) == 0;
+    }
+
+    /**
+     * @param who color of the king
+     * @return square index of the first king of that color, -1 if none
+     */
+    default int kingSquare(@NotNull Color who) {
+        for (int w = 0; w < WORDS; w++) {
+            final long kings = piecesWord(who, FigType.King, w);
+            if (kings != 0) return squareOf(w, Long.numberOfTrailingZeros(kings));
+        }
+        return -1;
+    }
+
+    @Override
+    @Contract(pure = true)
+    default boolean isThereAnyOnFirstRank(@NotNull Color who) {
+        return (colorWord(who, 0) & (0xFFL << (who.segm() * 8))) != 0;
+    }
+
+    /**
+     * Lists the squares of the figs of a color, by increasing square index
+     *
+     * @param who  color of the figs
+     * @param into where to put the square indices, at least count(who) long
+     * @return how many were put there
+     */
+    default int pieces(@NotNull Color who, @NotNull int[] into) {
+        int n = 0;
+        for (int w = 0; w < WORDS; w++)
+            for (long s = colorWord(who, w); s != 0; s &= s - 1)
+                into[n++] = squareOf(w, Long.numberOfTrailingZeros(s));
+        return n;
+    }
+
+    /**
+     * @param who color of the pieces
+     * @return how many pieces of that color are there
+     */
+    default int count(@NotNull Color who) {
+        int ret = 0;
+        for (int w = 0; w < WORDS; w++) ret += Long.bitCount(colorWord(who, w));
+        return ret;
+    }
+
+    @Override
+    @Contract(pure = true)
+    default boolean isEmpty(int rank, int file) {
+        return isEmpty(square(rank, file));
+    }
+
+    @Override
+    @Contract(pure = true)
+    default int getCode(int rank, int file) {
+        return sevenBit(square(rank, file));
+    }
+
+    @Override
+    @Contract(pure = true)
+    default @Nullable Fig get(int rank, int file) {
+        final int code = sevenBit(square(rank, file));
+        return code == 0 ? null : Fig.fromSevenBit(code);
+    }
+
+    @Override
+    @Contract(pure = true)
+    default @Nullable Fig get(@NotNull Pos pos) {
+        return get(pos.rank, pos.file);
+    }
+
+    @Override
+    default @Nullable Pos _whereIsKing(@NotNull Color who) {
+        final int king = kingSquare(who);
+        return king < 0 ? null : AttackTables.pos(king);
+    }
+
+    /**
+     * Looks the threat up in Attacks if there is a fig at [to]
+     */
+    @Override
+    default boolean isThereAThreat(@NotNull Pos to, @NotNull Pos from,
+                                   @NotNull PlayersAlive playersAlive,
+                                   @NotNull EnPassantStore enPassantStore) {
+        final int toSquare = to.toInt();
+        if (isEmpty(toSquare)) return Board.super.isThereAThreat(to, from, playersAlive, enPassantStore);
+        final int fromSquare = from.toInt();
+        if (isEmpty(fromSquare)) throw new NullPointerException(from.toString());
+        return Attacks.attacks(this, fromSquare, toSquare);
+    }
+
+    @Override
+    default @NotNull Stream<@NotNull Pos> threatChecking(
+            @NotNull Pos where,
+            @NotNull PlayersAlive pa, @NotNull EnPassantStore ep) {
+        final int square = where.toInt();
+        final Fig fig = get(where);
+        if (fig == null) throw new NullPointerException(where.toString());
+        final long[] attackers = new long[WORDS];
+        if (!Attacks.attackers(this, square, fig.color, pa, attackers)) return Stream.empty();
+        final ArrayList<Pos> ret = new ArrayList<>(2);
+        for (int w = 0; w < WORDS; w++)
+            for (long s = attackers[w]; s != 0; s &= s - 1)
+                ret.add(AttackTables.pos(squareOf(w, Long.numberOfTrailingZeros(s))));
+        return ret.stream();
+    }
+
+    @Override
+    default Stream<FriendOrNot> friendsAndNot(Color who, PlayersAlive pa) {
+        final ArrayList<FriendOrNot> ret = new ArrayList<>(48);
+        if (pa.get(who)) for (final Color color : Color.colors)
+            if (pa.get(color)) for (int w = 0; w < WORDS; w++)
+                for (long s = colorWord(color, w); s != 0; s &= s - 1)
+                    ret.add(new FriendOrNot(color == who, AttackTables.pos(
+                            squareOf(w, Long.numberOfTrailingZeros(s)))));
+        return ret.stream();
+    }
+
+    @Override
+    default Tuple2<Seq<Pos>, Seq<Pos>> friendsAndOthers(Color who, PlayersAlive pa) {
+        final ArrayList<Pos> friends = new ArrayList<>(16);
+        final ArrayList<Pos> others = new ArrayList<>(32);
+        if (pa.get(who)) for (final Color color : Color.colors)
+            if (pa.get(color)) for (int w = 0; w < WORDS; w++)
+                for (long s = colorWord(color, w); s != 0; s &= s - 1)
+                    (color == who ? friends : others).add(AttackTables.pos(
+                            squareOf(w, Long.numberOfTrailingZeros(s))));
+        return new Tuple2<>(Seq.seq(friends), Seq.seq(others));
+    }
+}
@@ -0,0 +1,204 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * This is a mutable implementation of BitBoard (and MutableBoard).
+ * It holds 144-bit sets in primitive longs: one per Color,
+ * one per FigType and one for pawns that crossed the center,
+ * and keeps the square of every king up to date as figs are put,
+ * so that the pieces of a color are its bits and a king is a lookup.
+ * For an immutable variant see ImmutableBitBoardImpl.
+ */
+public class BitBoardImpl implements BitBoard, MutableBoard {
+    /**
+     * occupancy per color, color.segm() * WORDS + word
+     */
+    private final long[] colors = new long[3 * WORDS];
+    /**
+     * occupancy per fig type, (type.index - 1) * WORDS + word
+     */
+    private final long[] types = new long[6 * WORDS];
+    /**
+     * pawns with pawnCenter set
+     */
+    private final long[] pawnCenters = new long[WORDS];
+    /**
+     * square of the king per color.segm(), NO_KING or UNKNOWN_KING
+     * (there is more than one or one was taken away from a pair,
+     * to be looked for when asked)
+     */
+    private final int[] kings = {NO_KING, NO_KING, NO_KING};
+    /**
+     * how many kings per color.segm()
+     */
+    private final int[] kingCounts = new int[3];
+    private static final int NO_KING = -1;
+    private static final int UNKNOWN_KING = -2;
+
+    public BitBoardImpl() {
+    }
+
+    public BitBoardImpl(@NotNull Board source) {
+        fill(source);
+    }
+
+    @Override
+    public long occupiedWord(int word) {
+        return colors[word] | colors[WORDS + word] | colors[2 * WORDS + word];
+    }
+
+    @Override
+    public long colorWord(@NotNull Color who, int word) {
+        return colors[who.segm() * WORDS + word];
+    }
+
+    @Override
+    public long typeWord(@NotNull FigType type, int word) {
+        return types[(type.index - 1) * WORDS + word];
+    }
+
+    @Override
+    public long pawnCenterWord(int word) {
+        return pawnCenters[word];
+    }
+
+    @Override
+    public int sevenBit(int square) {
+        final int w = BitBoard.word(square);
+        final long bit = BitBoard.bit(square);
+        int color = 0;
+        for (int c = 0; c < 3; c++)
+            if ((colors[c * WORDS + w] & bit) != 0) {
+                color = c + 1;
+                break;
+            }
+        if (color == 0) return 0;
+        int type = 0;
+        for (int t = 0; t < 6; t++)
+            if ((types[t * WORDS + w] & bit) != 0) {
+                type = t + 1;
+                break;
+            }
+        return ((pawnCenters[w] & bit) != 0 ? 1 << 6 : 0) | color << 3 | type;
+    }
+
+    /**
+     * Puts a fig given by its seven-bit code (as in Fig.sevenBitInt) on the square
+     *
+     * @param square    square index
+     * @param sevenBit the code, 0 meaning empty
+     */
+    public void put(int square, int sevenBit) {
+        final int w = BitBoard.word(square);
+        final long bit = BitBoard.bit(square);
+        final long mask = ~bit;
+        if ((types[(FigType.King.index - 1) * WORDS + w] & bit) != 0)
+            for (int c = 0; c < 3; c++)
+                if ((colors[c * WORDS + w] & bit) != 0)
+                    kings[c] = --kingCounts[c] == 0 ? NO_KING : UNKNOWN_KING;
+        for (int i = w; i < colors.length; i += WORDS) colors[i] &= mask;
+        for (int i = w; i < types.length; i += WORDS) types[i] &= mask;
+        pawnCenters[w] &= mask;
+        if (sevenBit == 0) return;
+        colors[(((sevenBit >> 3) & 3) - 1) * WORDS + w] |= bit;
+        types[((sevenBit & 7) - 1) * WORDS + w] |= bit;
+        if ((sevenBit >> 6) != 0) pawnCenters[w] |= bit;
+        if ((sevenBit & 7) == FigType.King.index) {
+            final int c = ((sevenBit >> 3) & 3) - 1;
+            kings[c] = kingCounts[c]++ == 0 ? square : UNKNOWN_KING;
+        }
+    }
+
+    @Override
+    public int kingSquare(@NotNull Color who) {
+        final int c = who.segm();
+        if (kings[c] == UNKNOWN_KING) kings[c] = BitBoard.super.kingSquare(who);
+        return kings[c];
+    }
+
+    @Override
+    public void put(int rank, int file, @Nullable Fig fig) {
+        put(BitBoard.square(rank, file), Fig.toSevenBitInt(fig));
+    }
+
+    @Override
+    public void put(@NotNull Pos pos, @Nullable Fig fig) {
+        put(pos.rank, pos.file, fig);
+    }
+
+    @Override
+    public void clr(int rank, int file) {
+        put(BitBoard.square(rank, file), 0);
+    }
+
+    @Override
+    public void clr(@NotNull Pos pos) {
+        clr(pos.rank, pos.file);
+    }
+
+    /**
+     * Moves whatever is on [from] to [to], clearing [from]
+     *
+     * @param from square index of the source
+     * @param to   square index of the destination
+     */
+    public void move(int from, int to) {
+        put(to, sevenBit(from));
+        put(from, 0);
+    }
+
+    @Override
+    public void move(@NotNull Pos from, @NotNull Pos to) {
+        move(from.toInt(), to.toInt());
+    }
+
+    @Override
+    public void clearAll() {
+        Arrays.fill(colors, 0);
+        Arrays.fill(types, 0);
+        Arrays.fill(pawnCenters, 0);
+        Arrays.fill(kings, NO_KING);
+        Arrays.fill(kingCounts, 0);
+    }
+
+    @Override
+    public void fill(@NotNull Board source) {
+        if (source instanceof BitBoardImpl) {
+            final BitBoardImpl s = (BitBoardImpl) source;
+            System.arraycopy(s.colors, 0, colors, 0, colors.length);
+            System.arraycopy(s.types, 0, types, 0, types.length);
+            System.arraycopy(s.pawnCenters, 0, pawnCenters, 0, pawnCenters.length);
+            System.arraycopy(s.kings, 0, kings, 0, kings.length);
+            System.arraycopy(s.kingCounts, 0, kingCounts, 0, kingCounts.length);
+        } else if (source instanceof BitBoard) {
+            final BitBoard s = (BitBoard) source;
+            clearAll();
+            for (int sq = 0; sq < SQUARES; sq++) put(sq, s.sevenBit(sq));
+        } else for (int sq = 0; sq < SQUARES; sq++)
+            put(sq, source.getCode(sq / 24, sq % 24));
+    }
+
+    @NotNull
+    @Override
+    public BitBoardImpl mutableCopy() {
+        BitBoardImpl n = new BitBoardImpl();
+        n.fill(this);
+        return n;
+    }
+
+    @NotNull
+    @Override
+    public BitBoardImpl copy() {
+        return mutableCopy();
+    }
+
+    @NotNull
+    @Override
+    public ImmutableBitBoardImpl immutable() {
+        return new ImmutableBitBoardImpl(this);
+    }
+}
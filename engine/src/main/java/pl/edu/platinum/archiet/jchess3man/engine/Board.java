@@ -199,6 +199,25 @@ public interface Board {
         return new FunHashMapBoardImpl(this);
     }
 
+    /**
+     * @param rank rank of the square
+     * @param file file of the square
+     * @return the seven-bit code of the fig there (as in Fig.sevenBitInt), 0 if empty
+     */
+    @Contract(pure = true)
+    default int getCode(int rank, int file) {
+        return Fig.toSevenBitInt(get(rank, file));
+    }
+
+    /**
+     * @param pos position to check
+     * @return the seven-bit code of the fig there (as in Fig.sevenBitInt), 0 if empty
+     */
+    @Contract(pure = true)
+    default int getCode(@NotNull Pos pos) {
+        return getCode(pos.rank, pos.file);
+    }
+
     /**
      * @param pos position to check
      * @return either a fig that is there or null if it's empty
@@ -245,12 +264,26 @@ public interface Board {
      */
     @Nullable
     default Pos _whereIsKing(@NotNull Color who) {
-        final Fig.King suchKing = new Fig.King(who);
-        for (final Pos pos : new AllPosIterable())
-            if (suchKing.equals(get(pos))) return pos;
+        final int suchKing = who.index << 3 | FigType.King.index;
+        for (int rank = 0; rank < 6; rank++)
+            for (int file = 0; file < 24; file++)
+                if (getCode(rank, file) == suchKing) return new Pos(rank, file);
         return null;
     }
 
+    /**
+     * @param who color of the figs we are looking for
+     * @return whether there is any fig of that color left on its own segment of the first rank
+     */
+    @Contract(pure = true)
+    default boolean isThereAnyOnFirstRank(@NotNull Color who) {
+        for (int file = who.segm() * 8; file < (who.segm() + 1) * 8; file++) {
+            final Fig fig = get(0, file);
+            if (fig != null && fig.color == who) return true;
+        }
+        return false;
+    }
+
     /**
      * @param who color of the king we are looking for
      * @return first position where there is a king of that color or, if none found, empty Optional
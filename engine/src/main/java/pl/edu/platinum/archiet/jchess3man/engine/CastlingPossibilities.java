@@ -43,6 +43,29 @@ public class CastlingPossibilities {
         public ColorEntry offKingside() {
             return q ? QueensideOnly : No;
         }
+
+        /**
+         * @param type what type of fig of [who] moves
+         * @param who  whose entry this is
+         * @param from square index the fig moves from
+         * @return this after the move: moving the king loses both sides,
+         * moving a rook from its corner loses that side
+         */
+        public ColorEntry afterMoveFrom(FigType type, Color who, int from) {
+            switch (type) {
+                case King:
+                    return No;
+                case Rook:
+                    if (from < 24)
+                        switch (from - who.segm() * 8) {
+                            case 0:
+                                return offQueenside();
+                            case 7:
+                                return offKingside();
+                        }
+            }
+            return this;
+        }
     }
 
     public final ColorEntry w;
@@ -70,12 +93,32 @@ public class CastlingPossibilities {
         this.b = g == null ? defVal : b;
     }
 
+    private static final CastlingPossibilities[] byInt = new CastlingPossibilities[64];
+
+    static {
+        for (int i = 0; i < byInt.length; i++) byInt[i] = new CastlingPossibilities(i);
+    }
+
+    /**
+     * @param i as returned by {@link #toInt()}
+     * @return the shared instance, so that losing a castling right never allocates
+     */
+    public static CastlingPossibilities of(int i) {
+        return byInt[i & 0b111111];
+    }
+
+    public static CastlingPossibilities of(ColorEntry w, ColorEntry g, ColorEntry b) {
+        return byInt[toInt(w, 5) | toInt(g, 3) | toInt(b, 1)];
+    }
+
+    private static int toInt(ColorEntry entry, int kingsideBit) {
+        return (entry.k ? 1 << kingsideBit : 0) | (entry.q ? 1 << (kingsideBit - 1) : 0);
+    }
+
     public static final CastlingPossibilities all =
-            new CastlingPossibilities(
-                    ColorEntry.All, ColorEntry.All, ColorEntry.All);
+            of(ColorEntry.All, ColorEntry.All, ColorEntry.All);
     public static final CastlingPossibilities zero =
-            new CastlingPossibilities(
-                    ColorEntry.No, ColorEntry.No, ColorEntry.No);
+            of(ColorEntry.No, ColorEntry.No, ColorEntry.No);
 
     public ColorEntry get(Color who) {
         switch (who) {
@@ -93,15 +136,40 @@ public class CastlingPossibilities {
         if (what == null) return this; //should it be there?
         switch (c) {
             case White:
-                return new CastlingPossibilities(what, g, b);
+                return of(what, g, b);
             case Gray:
-                return new CastlingPossibilities(w, what, b);
+                return of(w, what, b);
             case Black:
-                return new CastlingPossibilities(w, g, what);
+                return of(w, g, what);
         }
         return this;
     }
 
+    /**
+     * @param who  who moves
+     * @param type what type of fig moves
+     * @param from square index it moves from
+     * @param to   square index it moves to
+     * @return the possibilities after the move: [who] loses as in
+     * ColorEntry.afterMoveFrom, and whoever owns the segment of the first rank
+     * [to] is in loses a side if it is their rook's corner, both if it is their king's square
+     */
+    public CastlingPossibilities afterMove(Color who, FigType type, int from, int to) {
+        final CastlingPossibilities ret = change(who, get(who).afterMoveFrom(type, who, from));
+        if (to < 24) {
+            final Color segm = Color.fromSegm(to / 8);
+            switch (to % 8) {
+                case 7:
+                    return ret.change(segm, ret.get(segm).offKingside());
+                case 0:
+                    return ret.change(segm, ret.get(segm).offQueenside());
+                case CastlingVector.kfm:
+                    return ret.change(segm, ColorEntry.No);
+            }
+        }
+        return ret;
+    }
+
     public CastlingPossibilities sayNoTo(Color c) {
         return change(c, ColorEntry.No);
     }
@@ -18,10 +18,10 @@ public abstract class CastlingVector implements JumpVector, KingVector {
 
     public static CastlingVector castlingVector(Pos from, Pos to) throws CannotConstructVectorException {
         if (from.rank == 0 && to.rank == 0 && from.file % 8 == kfm)
-            switch (to.file % 8) {
-                case 2:
+            switch (to.file - from.file) {
+                case -2:
                     return QueensideCastlingVector.c;
-                case 6:
+                case 2:
                     return KingsideCastlingVector.c;
             }
         throw new CannotConstructVectorException(from, to);
@@ -82,4 +82,16 @@ public abstract class CastlingVector implements JumpVector, KingVector {
     }
 
     public abstract boolean checkPossibility(CastlingPossibilities.ColorEntry c);
+
+    /**
+     * @param kingFrom square index the king castles from
+     * @return square index of the rook that castles with it
+     */
+    public abstract int rookFrom(int kingFrom);
+
+    /**
+     * @param kingFrom square index the king castles from
+     * @return square index that rook lands on
+     */
+    public abstract int rookTo(int kingFrom);
 }
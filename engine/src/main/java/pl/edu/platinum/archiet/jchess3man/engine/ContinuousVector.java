@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Created by Michał Krzysztof Feiler on 25.01.17.
@@ -35,6 +36,11 @@ public abstract class ContinuousVector implements Vector, KingVector {
         return abs <= 1;
     }
 
+    /**
+     * @return direction of the vector as in AttackTables, e.g. AttackTables.FILE_PLUS
+     */
+    public abstract int direction();
+
     Iterable<ContinuousVector> unitsContinuous(int fromRank) {
         return () -> new Iterator<ContinuousVector>() {
             private boolean headRemaining = false;
@@ -74,7 +80,34 @@ public abstract class ContinuousVector implements Vector, KingVector {
         return emptiesBetween(from);
     }
 
+    /**
+     * @param from starting position
+     * @return the squares strictly between [from] and the destination,
+     * looked up in AttackTables
+     */
     public Iterable<Pos> emptiesBetween(Pos from) {
+        List<Pos> between = AttackTables.between(from.toInt(), direction(), abs);
+        if (between != null) return between;
+        return unitsWalk(from);
+    }
+
+    /**
+     * @param board the board
+     * @param from  starting position
+     * @return whether all the squares strictly between [from] and the destination
+     * are empty on [board]
+     */
+    public boolean areEmptiesBetween(Board board, Pos from) {
+        int square = from.toInt();
+        if (AttackTables.inRange(square, direction(), abs))
+            return AttackTables.areEmptiesBetween(board, square, direction(), abs);
+        return board.checkEmpties(unitsWalk(from));
+    }
+
+    /**
+     * Walks the units of a vector that does not fit in AttackTables
+     */
+    private Iterable<Pos> unitsWalk(Pos from) {
         return () -> new Iterator<Pos>() {
             private Pos pos = from;
             private final Iterator<ContinuousVector> it =
@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.lambda.Seq;
 
+import java.util.Objects;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -198,6 +199,38 @@ public class DescMove extends Desc {
     protected Stream<EitherStateOrIllMoveExcept> generateAfters(boolean withEvalDeath,
                                                                 boolean useImmutableAfterBoard)
             throws NeedsToBePromotedException {
+        final VecMove.Outcome outcome = new VecMove.Outcome(true);
+        return vecMoves().map(move -> {
+            move.tryAfter(useImmutableAfterBoard, withEvalDeath, outcome);
+            if (outcome.status() == VecMove.NEEDS_PROMOTION) throw new AssertionError(outcome);
+            final IllegalMoveException e = outcome.illegalMoveException();
+            assert e != null || outcome.state() != null;
+            return e != null ? new EitherStateOrIllMoveExcept(e)
+                    : new EitherStateOrIllMoveExcept(outcome.state());
+        });
+    }
+
+    /**
+     * generates After states of the legal vecs only, like generateAfters
+     * but without constructing any exception nor Impossibility
+     *
+     * @param withEvalDeath          whether to evaluate death after the move
+     * @param useImmutableAfterBoard whether the boards after should be immutable
+     * @return stream of the states after
+     * @throws NeedsToBePromotedException if not areVecsGenerated _and_ the promotion is required but pawnPromotion is null
+     */
+    public Stream<GameState> generateAfterStates(boolean withEvalDeath,
+                                                 boolean useImmutableAfterBoard)
+            throws NeedsToBePromotedException {
+        final VecMove.Outcome outcome = new VecMove.Outcome();
+        return vecMoves().map(move -> {
+            move.tryAfter(useImmutableAfterBoard, withEvalDeath, outcome);
+            if (outcome.status() == VecMove.NEEDS_PROMOTION) throw new AssertionError(outcome);
+            return outcome.state();
+        }).filter(Objects::nonNull);
+    }
+
+    private Stream<VecMove> vecMoves() throws NeedsToBePromotedException {
         if (!areVecsGenerated()) generateVecs();
         assert (vecs != null);
         return StreamSupport
@@ -208,28 +241,6 @@ public class DescMove extends Desc {
                     } catch (VectorAdditionFailedException | NeedsToBePromotedException e) {
                         throw new AssertionError(e);
                     }
-                })
-                .map(withEvalDeath
-                        ? (move -> {
-                    try {
-                        GameState after = move.after(useImmutableAfterBoard);
-                        return new EitherStateOrIllMoveExcept(after);
-                    } catch (CheckInitiatedThruMoatException | ImpossibleMoveException e) {
-                        return new EitherStateOrIllMoveExcept(e);
-                    } catch (NeedsToBePromotedException e) {
-                        throw new AssertionError(e);
-                    }
-                })
-                        : (move -> {
-                    try {
-                        GameState ret = move.afterWOEvaluatingDeath(useImmutableAfterBoard);
-                        ret.throwCheck(move.who());
-                        return new EitherStateOrIllMoveExcept(ret);
-                    } catch (NeedsToBePromotedException e) {
-                        throw new AssertionError(e);
-                    } catch (ImpossibleMoveException | CheckInitiatedThruMoatException e) {
-                        return new EitherStateOrIllMoveExcept(e);
-                    }
-                }));
+                });
     }
 }
@@ -40,6 +40,13 @@ public class DiagonalVector extends ContinuousVector {
         return plusFile ? abs : -abs;
     }
 
+    @Override
+    public int direction() {
+        return inward
+                ? plusFile ? AttackTables.DIAG_IN_PLUS : AttackTables.DIAG_IN_MINUS
+                : plusFile ? AttackTables.DIAG_OUT_PLUS : AttackTables.DIAG_OUT_MINUS;
+    }
+
     @Override
     public boolean toBool() {
         return abs > 0;
@@ -80,6 +87,9 @@ public class DiagonalVector extends ContinuousVector {
 
     @Override
     public Iterable<@NotNull Color> moats(Pos from) {
+        int square = from.toInt();
+        if (AttackTables.inRange(square, direction(), abs))
+            return AttackTables.moats(AttackTables.moatsAt(square, direction(), abs));
         @Nullable Color m = moat(from);
         if (m == null) return Collections.emptyList();
         return new SingleElementIterable<>(m);
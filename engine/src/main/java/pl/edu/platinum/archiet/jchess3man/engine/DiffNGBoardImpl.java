@@ -73,7 +73,7 @@ public class DiffNGBoardImpl implements ImmutableBoard {
         final Option<Fig> inDiff = b.get(def);
         if (inDiff.isEmpty()) return Optional.of(def);
 
-        final Fig aKing = new Fig.King(who);
+        final Fig aKing = Fig.subClass(FigType.King, who);
         if (inDiff.get().equals(aKing)) return Optional.of(def);
 
         final HashMap<@NotNull Pos, @Nullable Fig> filterKingsofColor = b.filter(
@@ -123,7 +123,7 @@ public class EnPassantStore {
     }
 
     public EnPassantStore appeared(Integer p) {
-        return new EnPassantStore(last, p);
+        return of(last, p);
     }
 
     public EnPassantStore appeared(Pos p) {
@@ -131,7 +131,7 @@ public class EnPassantStore {
     }
 
     public EnPassantStore nothing() {
-        return new EnPassantStore(last, null);
+        return of(last, null);
     }
 
     public boolean match(Pos p) {
@@ -163,8 +163,31 @@ public class EnPassantStore {
         return prev != null && prev == f;
     }
 
-    public static final EnPassantStore empty =
-            new EnPassantStore();
+    /**
+     * shared instances indexed by prev*25+last, 24 standing for null
+     */
+    private static final EnPassantStore[] byFiles = new EnPassantStore[25 * 25];
+
+    static {
+        for (int prev = 0; prev <= 24; prev++)
+            for (int last = 0; last <= 24; last++)
+                byFiles[prev * 25 + last] = new EnPassantStore(
+                        prev == 24 ? null : Integer.valueOf(prev),
+                        last == 24 ? null : Integer.valueOf(last));
+    }
+
+    /**
+     * @return the shared instance for files within 0..23 (or null),
+     * a new one otherwise
+     */
+    public static EnPassantStore of(@Nullable Integer prev, @Nullable Integer last) {
+        final int p = prev == null ? 24 : prev;
+        final int l = last == null ? 24 : last;
+        if (p < 0 || p > 24 || l < 0 || l > 24) return new EnPassantStore(prev, last);
+        return byFiles[p * 25 + l];
+    }
+
+    public static final EnPassantStore empty = of(null, null);
 
     public ArrayList<Integer> toList() {
         ArrayList<Integer> ret = new ArrayList<>(2);
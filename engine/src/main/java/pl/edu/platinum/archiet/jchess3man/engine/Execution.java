@@ -0,0 +1,117 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Execution chooses what threads the work that waits, as Player.yourMove
+ * futures waiting for a human or an AI thinking in the background, runs on:
+ * platform threads, or virtual threads, which cost a few kilobytes each
+ * instead of an OS thread stack, so that thousands of idle games are cheap.
+ * Virtual threads are looked up by reflection, the sources staying Java 8,
+ * and are only used on a JDK that has them (21 or newer, or 19 and 20
+ * with preview features enabled); elsewhere the Virtual mode falls back
+ * to the Platform one.
+ * The mode is Platform unless the system property {@value PROPERTY} is "virtual".
+ * Computing work, as a search, is better done in a ForkJoinPool
+ * of the size of the machine, whatever the mode.
+ */
+public final class Execution {
+    private Execution() {
+    }
+
+    public enum Mode {
+        Platform, Virtual
+    }
+
+    public static final String PROPERTY = "jchess3man.threads";
+
+    private static final @Nullable Method newVirtualThreadPerTaskExecutor;
+    private static final @Nullable Object virtualThreadFactory;
+
+    static {
+        Method executor = null;
+        Object factory = null;
+        try {
+            executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            //throws UnsupportedOperationException on 19 and 20 without --enable-preview
+            ((ExecutorService) executor.invoke(null)).shutdown();
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            factory = Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | IllegalAccessException | ClassNotFoundException
+                | InvocationTargetException | UnsupportedOperationException e) {
+            executor = null;
+            factory = null;
+        }
+        newVirtualThreadPerTaskExecutor = executor;
+        virtualThreadFactory = factory;
+    }
+
+    private static volatile @Nullable ExecutorService shared;
+
+    @Contract(pure = true)
+    public static boolean virtualThreadsAvailable() {
+        return newVirtualThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * @return the mode asked for by {@value PROPERTY}, Platform if virtual threads are not available
+     */
+    @NotNull
+    public static Mode mode() {
+        return "virtual".equalsIgnoreCase(System.getProperty(PROPERTY)) && virtualThreadsAvailable()
+                ? Mode.Virtual : Mode.Platform;
+    }
+
+    /**
+     * @return an executor starting a new thread per task in the Virtual mode,
+     * a cached thread pool in the Platform one
+     */
+    @NotNull
+    public static ExecutorService newExecutor(@NotNull Mode mode) {
+        if (mode == Mode.Virtual && newVirtualThreadPerTaskExecutor != null) {
+            try {
+                return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return Executors.newCachedThreadPool(threadFactory(Mode.Platform));
+    }
+
+    /**
+     * @return a factory of virtual threads in the Virtual mode,
+     * of daemon platform threads in the Platform one
+     */
+    @NotNull
+    public static ThreadFactory threadFactory(@NotNull Mode mode) {
+        if (mode == Mode.Virtual && virtualThreadFactory != null)
+            return (ThreadFactory) virtualThreadFactory;
+        final ThreadFactory platform = Executors.defaultThreadFactory();
+        return r -> {
+            final Thread thread = platform.newThread(r);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return an executor of mode(), shared by the whole program and never shut down
+     */
+    @NotNull
+    public static ExecutorService executor() {
+        ExecutorService ret = shared;
+        if (ret == null) synchronized (Execution.class) {
+            ret = shared;
+            if (ret == null) shared = ret = newExecutor(mode());
+        }
+        return ret;
+    }
+}
@@ -30,10 +30,9 @@ public abstract class Fig extends Piece implements VecsInterface {
     }
 
     /**
-     * //@noinspection SameReturnValue
-     * @return null
+     * @return null, unless it is a Pawn
      */
-    @Contract("->null")
+    @Contract(pure = true)
     public Boolean pawnCenter() {
         return null;
     }
@@ -75,9 +74,51 @@ public abstract class Fig extends Piece implements VecsInterface {
         return fromSevenBit((int) sb);
     }
 
+    /**
+     * the canonical Figs by their seven-bit codes, null where the type is 0 or 7;
+     * a Fig never changes, so a single instance of each may be shared
+     * by all the boards instead of allocating one on every read
+     */
+    private static final Fig[] bySevenBit = new Fig[128];
+
+    static {
+        for (int code = 0; code < bySevenBit.length; code++) {
+            final FigType type = (code & 7) < FigType.vals.length ? FigType.fromIndex(code & 7) : null;
+            if (type == null) continue;
+            final Color color = Color.byIndex((code >> 3) & 3);
+            final boolean pawnCenter = code >> 6 != 0;
+            if (pawnCenter && type != FigType.Pawn) bySevenBit[code] = bySevenBit[code & 63];
+            else switch (type) {
+                case Rook:
+                    bySevenBit[code] = new Fig.Rook(color);
+                    break;
+                case Knight:
+                    bySevenBit[code] = new Fig.Knight(color);
+                    break;
+                case Bishop:
+                    bySevenBit[code] = new Fig.Bishop(color);
+                    break;
+                case King:
+                    bySevenBit[code] = new Fig.King(color);
+                    break;
+                case Pawn:
+                    bySevenBit[code] = new Fig.Pawn(color, pawnCenter);
+                    break;
+                case Queen:
+                    bySevenBit[code] = new Fig.Queen(color);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @param sb seven-bit code, as in sevenBitInt
+     * @return the canonical Fig of that code, null if 0
+     */
+    @Nullable
     public static Fig fromSevenBit(int sb) {
-        if (sb < 0) throw new IllegalArgumentException(Integer.toString(sb));
-        return subClass(sb & 7, Color.byIndex((sb >> 3) & 3), (sb >> 6 != 0));
+        if (sb < 0 || (sb & 7) == 7) throw new IllegalArgumentException(Integer.toString(sb));
+        return bySevenBit[sb >> 6 != 0 ? sb & 63 | 64 : sb];
     }
 
     public static Fig subClass(byte type, Color color, Boolean pawnCenter) {
@@ -92,26 +133,16 @@ public abstract class Fig extends Piece implements VecsInterface {
         return subClass(type, color, null);
     }
 
+    /**
+     * @return the canonical Fig of that type and color, see fromSevenBit;
+     * a null pawnCenter of a Pawn is taken as false
+     */
     @Contract("null, _, _ -> null")
     @Nullable
     public static Fig subClass(@Nullable FigType type, Color color, Boolean pawnCenter) {
         if (type == null) return null;
-        switch (type) {
-            case Rook:
-                return new Fig.Rook(color);
-            case Knight:
-                return new Fig.Knight(color);
-            case Bishop:
-                return new Fig.Bishop(color);
-            case King:
-                return new Fig.King(color);
-            case Pawn:
-                return new Fig.Pawn(color, pawnCenter);
-            case Queen:
-                return new Fig.Queen(color);
-            //case ZeroFigType: return null;
-        }
-        throw new AssertionError("" + type + color + pawnCenter);
+        return bySevenBit[(type == FigType.Pawn && beq(pawnCenter, true) ? 1 << 6 : 0)
+                | (color == null ? 0 : color.index << 3) | type.index];
     }
 
     public static class Rook extends Fig {
@@ -125,7 +156,7 @@ public abstract class Fig extends Piece implements VecsInterface {
         }
 
         public static Iterable<AxisVector> vectors(Pos from, Pos to) {
-            return from.axisVectorsTo(to);
+            return AttackTables.axisVectors(from, to);
         }
     }
 
@@ -150,7 +181,7 @@ public abstract class Fig extends Piece implements VecsInterface {
         }
 
         public static Iterable<? extends DiagonalVector> vectors(Pos from, Pos to) {
-            return from.diagonalVectorsTo(to);
+            return AttackTables.diagonalVectors(from, to);
         }
 
         @Override
@@ -165,7 +196,7 @@ public abstract class Fig extends Piece implements VecsInterface {
         }
 
         public static Iterable<? extends ContinuousVector> vectors(Pos from, Pos to) {
-            return from.continuousVectorsTo(to);
+            return AttackTables.continuousVectors(from, to);
         }
 
         @Override
@@ -215,6 +246,11 @@ public abstract class Fig extends Piece implements VecsInterface {
             this(color, false);
         }
 
+        @Override
+        public Boolean pawnCenter() {
+            return pawnCenter;
+        }
+
         public static PawnVector vector(Pos from, Pos to) throws CannotConstructVectorException {
             return from.pawnVectorTo(to);
         }
@@ -29,6 +29,11 @@ public class FileVector extends AxisVector {
         return 0;
     }
 
+    @Override
+    public int direction() {
+        return direc ? AttackTables.FILE_PLUS : AttackTables.FILE_MINUS;
+    }
+
     @NotNull
     public FileVector head() {
         if (abs > 0) {
@@ -59,7 +64,8 @@ public class FileVector extends AxisVector {
 
     public Iterable<@NotNull Color> moats(Pos from) {
         if (from.rank != 0) return Collections.emptyList();
-        return moats(from.file);
+        return AttackTables.moats(
+                AttackTables.moatsAt(from.toInt(), direction(), abs));
     }
 
     public Iterable<@NotNull Color> moats(int from) {
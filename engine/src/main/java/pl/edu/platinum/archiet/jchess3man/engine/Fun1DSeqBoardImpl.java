@@ -69,7 +69,7 @@ public class Fun1DSeqBoardImpl implements ImmutableBoard {
 
     @Override
     public Fun1DSeqBoardImpl put(int rank, int file, @Nullable Fig fig) {
-        return new Fun1DSeqBoardImpl(b.insert(idx(file, rank), fig), rnf);
+        return new Fun1DSeqBoardImpl(b.update(idx(rank, file), fig), rnf);
     }
 
     /**
@@ -100,7 +100,7 @@ public class Fun1DSeqBoardImpl implements ImmutableBoard {
     @NotNull
     @Override
     public Optional<Pos> whereIsKing(@NotNull Color who) {
-        int idx = b.indexOf(new Fig.King(who));
+        int idx = b.indexOf(Fig.subClass(FigType.King, who));
         if (idx == -1) return Optional.empty();
         return Optional.of(idx(idx));
     }
@@ -63,7 +63,7 @@ public class FunHashMapBoardImpl implements ImmutableBoard {
     @NotNull
     @Override
     public Optional<Pos> whereIsKing(@NotNull Color who) {
-        final Fig aKing = new Fig.King(who);
+        final Fig aKing = Fig.subClass(FigType.King, who);
         return b.filter(tup -> tup._2.equals(aKing))
                 .keySet().toJavaStream().findAny();
     }
@@ -0,0 +1,85 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * GameRecord is a PGN-like text format of three-player games, written by
+ * GameRecordWriter and streamed by GameRecordReader. A record is a number
+ * of tag lines, [Name "value"] with \" and \\ escaped, followed by the moves,
+ * up to the next tag line or the end of the stream:
+ * <pre>
+ * [White "a"]
+ * [Gray "b"]
+ * [Black "c"]
+ *
+ * 1. e1e3 m1m3 u1u3 2. g0f2 ...
+ * </pre>
+ * A move is its from square, its to square and, for a promotion, the letter
+ * of the FigType it is promoted to (N, B, R or Q); a square is its file
+ * as a letter a–x and then its rank, 0–5. Castling is written as the king's move.
+ * Round numbers ("2."), "*" and {comments} between moves are ignored.
+ * The game starts from the new game unless there is a Start tag
+ * holding the StateNotation of the first position.
+ */
+public final class GameRecord {
+    private GameRecord() {
+    }
+
+    public static final String START_TAG = "Start";
+
+    private static final String PROMOTIONS = "?RNBQ";
+
+    public static void appendSquare(int square, @NotNull StringBuilder into) {
+        into.append((char) ('a' + square % 24)).append((char) ('0' + square / 24));
+    }
+
+    public static void appendMove(int move, @NotNull StringBuilder into) {
+        appendSquare(PackedMove.from(move), into);
+        appendSquare(PackedMove.to(move), into);
+        final int promotion = PackedMove.promotionIndex(move);
+        if (promotion != 0) into.append(PROMOTIONS.charAt(promotion));
+    }
+
+    @NotNull
+    public static String moveText(int move) {
+        final StringBuilder builder = new StringBuilder(5);
+        appendMove(move, builder);
+        return builder.toString();
+    }
+
+    /**
+     * @param text a move as written by appendMove
+     * @return from, to and promotion index as in PackedMove.base, -1 if text is not a move
+     */
+    @Contract(pure = true)
+    public static int parseBase(@NotNull CharSequence text) {
+        if (text.length() != 4 && text.length() != 5) return -1;
+        final int from = square(text, 0);
+        final int to = square(text, 2);
+        if (from < 0 || to < 0) return -1;
+        int promotion = 0;
+        if (text.length() == 5) {
+            promotion = PROMOTIONS.indexOf(text.charAt(4));
+            if (promotion <= 0) return -1;
+        }
+        return PackedMove.base(PackedMove.of(from, to, PackedMove.CONTINUOUS, 0, 0, promotion, false));
+    }
+
+    private static int square(CharSequence text, int at) {
+        final char file = text.charAt(at);
+        final char rank = text.charAt(at + 1);
+        if (file < 'a' || file > 'x' || rank < '0' || rank > '5') return -1;
+        return (rank - '0') * 24 + file - 'a';
+    }
+
+    /**
+     * @return the first move of the list with that base, PackedMove.NONE if there is none
+     */
+    @Contract(pure = true)
+    public static int find(@NotNull MoveList moves, int base) {
+        for (int i = 0; i < moves.size(); i++)
+            if (PackedMove.base(moves.get(i)) == base) return moves.get(i);
+        return PackedMove.NONE;
+    }
+}
@@ -0,0 +1,200 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GameRecordReader streams the games of a GameRecord text, replaying each
+ * move by move on a single MutableGameState, which is reset for every game,
+ * so that no intermediate GameState is created and memory does not grow
+ * with the number of games:
+ * <pre>
+ * while (reader.nextGame())
+ *     while (reader.nextMove())
+ *         look at reader.state()
+ * </pre>
+ * A malformed record, an unknown or an illegal move is reported by
+ * an IOException telling the line. A reader is not thread-safe.
+ */
+public final class GameRecordReader implements Closeable {
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private int peek;
+    private int line = 1;
+    private final StringBuilder token = new StringBuilder(16);
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final MutableGameState state = new MutableGameState(GameState.newGame);
+    private final MoveList moves = new MoveList();
+    private boolean inGame;
+    private int move = PackedMove.NONE;
+    private int ply;
+
+    /**
+     * @param in the text, it is read char by char, so it should be buffered
+     */
+    public GameRecordReader(@NotNull Reader in) throws IOException {
+        this.in = in;
+        this.peek = in.read();
+    }
+
+    private int read() throws IOException {
+        final int c = peek;
+        if (c == '\n') line++;
+        if (c != EOF) peek = in.read();
+        return c;
+    }
+
+    private void skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            if (peek == '{') {
+                while (peek != '}' && peek != EOF) read();
+                if (read() == EOF) throw malformed("unterminated comment");
+            } else if (peek != EOF && Character.isWhitespace(peek)) read();
+            else return;
+        }
+    }
+
+    /**
+     * Skips what is left of the current game and reads the tags of the next one,
+     * then resets state() to its start
+     *
+     * @return false if there are no more games
+     */
+    public boolean nextGame() throws IOException {
+        while (inGame && nextToken()) ;
+        skipWhitespaceAndComments();
+        if (peek == EOF) return false;
+        tags.clear();
+        while (peek == '[') {
+            readTag();
+            skipWhitespaceAndComments();
+        }
+        final String start = tags.get(GameRecord.START_TAG);
+        try {
+            state.reset(start == null ? GameState.newGame : StateNotation.parse(start));
+        } catch (IllegalArgumentException e) {
+            throw malformed("bad start position: " + e.getMessage());
+        }
+        inGame = true;
+        move = PackedMove.NONE;
+        ply = 0;
+        return true;
+    }
+
+    private void readTag() throws IOException {
+        read();
+        token.setLength(0);
+        while (peek != EOF && peek != ' ' && peek != '"' && peek != ']') token.append((char) read());
+        final String name = token.toString();
+        while (peek == ' ') read();
+        if (read() != '"') throw malformed("tag " + name + " without a quoted value");
+        token.setLength(0);
+        while (peek != '"') {
+            if (peek == EOF || peek == '\n') throw malformed("unterminated tag " + name);
+            if (peek == '\\') read();
+            token.append((char) read());
+        }
+        read();
+        while (peek == ' ') read();
+        if (read() != ']') throw malformed("tag " + name + " not closed");
+        tags.put(name, token.toString());
+    }
+
+    /**
+     * Reads the next token of the moves, skipping the ignored ones
+     *
+     * @return false at the end of the game
+     */
+    private boolean nextToken() throws IOException {
+        while (true) {
+            skipWhitespaceAndComments();
+            if (peek == EOF || peek == '[') {
+                inGame = false;
+                return false;
+            }
+            token.setLength(0);
+            while (peek != EOF && peek != '{' && peek != '[' && !Character.isWhitespace(peek))
+                token.append((char) read());
+            if (token.charAt(token.length() - 1) == '.' || token.length() == 1 && token.charAt(0) == '*')
+                continue;
+            return true;
+        }
+    }
+
+    /**
+     * Makes the next move of the current game on state()
+     *
+     * @return false at the end of the game
+     */
+    public boolean nextMove() throws IOException {
+        if (!inGame || !nextToken()) return false;
+        final int base = GameRecord.parseBase(token);
+        if (base < 0) throw malformed("not a move: " + token);
+        if (!state.alivePlayers().get(state.movesNext()))
+            throw malformed("move " + token + " after the game has ended");
+        moves.clear();
+        MoveGenerator.generateLegal(state, moves);
+        final int found = GameRecord.find(moves, base);
+        if (found == PackedMove.NONE) throw malformed("illegal move " + token + " for " + state.movesNext());
+        final int status;
+        try {
+            status = state.tryMake(PackedMove.toBoundVec(found), null);
+        } catch (NeedsToBePromotedException e) {
+            throw new AssertionError(e);
+        }
+        if (status != VecMove.LEGAL) throw malformed("illegal move " + token + " for " + state.movesNext());
+        move = found;
+        ply++;
+        return true;
+    }
+
+    /**
+     * @return the tags of the current game, valid until the next nextGame
+     */
+    @NotNull
+    public Map<String, String> tags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @return the state after the last move made, shared and reset by nextGame
+     */
+    @NotNull
+    public MutableGameState state() {
+        return state;
+    }
+
+    /**
+     * @return the last move made, PackedMove.NONE before the first one
+     */
+    public int move() {
+        return move;
+    }
+
+    /**
+     * @return how many moves of the current game have been made
+     */
+    public int ply() {
+        return ply;
+    }
+
+    public int line() {
+        return line;
+    }
+
+    private IOException malformed(String what) {
+        return new IOException("line " + line + ": " + what);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
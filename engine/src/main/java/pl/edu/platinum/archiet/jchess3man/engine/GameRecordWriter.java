@@ -0,0 +1,95 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * GameRecordWriter writes games in the GameRecord format, one move at a time,
+ * numbering the rounds of three moves and wrapping the lines.
+ * It does not check the moves, GameRecordReader does.
+ */
+public final class GameRecordWriter implements Closeable, Flushable {
+    private static final int LINE = 80;
+
+    private final Writer out;
+    private final StringBuilder builder = new StringBuilder(LINE + 16);
+    private int column;
+    private int ply = -1;
+
+    public GameRecordWriter(@NotNull Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Ends the previous game, if any, and writes the tags of a new one
+     *
+     * @param tags  written in the iteration order
+     * @param start the first position, written as a Start tag if not the new game
+     */
+    public void startGame(@NotNull Map<String, String> tags, @Nullable GameState start) throws IOException {
+        endGame();
+        for (final Map.Entry<String, String> tag : tags.entrySet())
+            tag(tag.getKey(), tag.getValue());
+        if (start != null && !start.equals(GameState.newGame))
+            tag(GameRecord.START_TAG, StateNotation.write(start));
+        out.write('\n');
+        ply = 0;
+    }
+
+    private void tag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+
+    /**
+     * @param move a PackedMove of the current game
+     * @throws IllegalStateException if no game was started
+     */
+    public void move(int move) throws IOException {
+        if (ply < 0) throw new IllegalStateException("no game started");
+        builder.setLength(0);
+        if (ply % 3 == 0) builder.append(ply / 3 + 1).append(". ");
+        GameRecord.appendMove(move, builder);
+        if (column > 0 && column + 1 + builder.length() > LINE) {
+            out.write('\n');
+            column = 0;
+        } else if (column > 0) {
+            out.write(' ');
+            column++;
+        }
+        out.append(builder);
+        column += builder.length();
+        ply++;
+    }
+
+    /**
+     * Ends the current game, if any, with a blank line
+     */
+    public void endGame() throws IOException {
+        if (ply < 0) return;
+        if (column > 0) out.write('\n');
+        out.write('\n');
+        column = 0;
+        ply = -1;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        endGame();
+        out.close();
+    }
+}
@@ -5,6 +5,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jooq.lambda.Seq;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -54,6 +57,20 @@ public class GameState {
      * alivePlayers tells us which colors are still active
      */
     public final PlayersAlive alivePlayers;
+    /**
+     * Zobrist key, computed lazily unless it was given by whoever created the state;
+     * 0 stands for not known yet, so that a thread seeing the field
+     * before it was written computes the key on its own (as it does
+     * for a state whose key happens to be 0)
+     */
+    private volatile long zobrist;
+    /**
+     * squares of the figs attacking the king of each color, BitBoard.WORDS longs
+     * per color (by segm), followed by a mask of the segms known;
+     * null until the first query, then replaced by a filled-in copy on every
+     * color found, so that a reader never sees a half-written array
+     */
+    private volatile long[] kingAttackers;
 
     /**
      * Just a basic constructor for GameState
@@ -86,6 +103,26 @@ public class GameState {
         this.alivePlayers = alivePlayers;
     }
 
+    /**
+     * A basic constructor for GameState with an already known Zobrist key
+     *
+     * @param zobrist the key of the state, as Zobrist.of would compute it
+     */
+    GameState(
+            Board board,
+            MoatsState moatsState,
+            Color movesNext,
+            CastlingPossibilities castlingPossibilities,
+            EnPassantStore enPassantStore,
+            int halfMoveClock,
+            int fullMoveNumber,
+            PlayersAlive alivePlayers,
+            long zobrist) {
+        this(board, moatsState, movesNext, castlingPossibilities,
+                enPassantStore, halfMoveClock, fullMoveNumber, alivePlayers);
+        this.zobrist = zobrist;
+    }
+
     /**
      * A cloning constructor for GameState.
      * Everything will be assigned as is except Board if it
@@ -107,6 +144,7 @@ public class GameState {
                 source.fullMoveNumber,
                 source.alivePlayers
         );
+        this.zobrist = source.zobrist;
     }
 
     /**
@@ -133,7 +171,7 @@ public class GameState {
                      @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
                              Optional<PlayersAlive> withPlayersAlive
     ) {
-        this(source, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), withPlayersAlive);
+        this(source, (Board) null, null, null, null, null, null, null, withPlayersAlive.orElse(null));
     }
 
     /**
@@ -143,7 +181,10 @@ public class GameState {
      * @param withPlayersAlive new alivePlayers
      */
     public GameState(GameState source, @NotNull PlayersAlive withPlayersAlive) {
-        this(source, Optional.of(withPlayersAlive));
+        this(source, (Board) null, null, null, null, null, null, null, withPlayersAlive);
+        final long known = source.zobrist;
+        if (known != 0)
+            this.zobrist = known ^ Zobrist.alive(source.alivePlayers) ^ Zobrist.alive(withPlayersAlive);
     }
 
     /**
@@ -169,15 +210,15 @@ public class GameState {
                      @Nullable PlayersAlive withPlayersAlive
     ) {
         this(
-                source,
-                Optional.ofNullable(withBoard),
-                Optional.ofNullable(withMoatsState),
-                Optional.ofNullable(withMovesNext),
-                Optional.ofNullable(withCastlingPossibilities),
-                Optional.ofNullable(withEnPassantStore),
-                Optional.ofNullable(withHalfMoveClock),
-                Optional.ofNullable(withFullMoveNumber),
-                Optional.ofNullable(withPlayersAlive)
+                withBoard != null ? withBoard
+                        : (source.board instanceof MutableBoard) ? source.board.mutableCopy() : source.board,
+                withMoatsState != null ? withMoatsState : source.moatsState,
+                withMovesNext != null ? withMovesNext : source.movesNext,
+                withCastlingPossibilities != null ? withCastlingPossibilities : source.castlingPossibilities,
+                withEnPassantStore != null ? withEnPassantStore : source.enPassantStore,
+                withHalfMoveClock != null ? withHalfMoveClock : source.halfMoveClock,
+                withFullMoveNumber != null ? withFullMoveNumber : source.fullMoveNumber,
+                withPlayersAlive != null ? withPlayersAlive : source.alivePlayers
         );
     }
 
@@ -204,17 +245,70 @@ public class GameState {
                      Optional<Integer> withFullMoveNumber,
                      Optional<PlayersAlive> withPlayersAlive
     ) {
-        this(
-                withBoard.orElseGet(() -> (
-                        (source.board instanceof MutableBoard) ? source.board.mutableCopy() : source.board)),
-                withMoatsState.orElseGet(() -> source.moatsState),
-                withMovesNext.orElseGet(() -> source.movesNext),
-                withCastlingPossibilities.orElseGet(() -> source.castlingPossibilities),
-                withEnPassantStore.orElseGet(() -> source.enPassantStore),
-                withHalfMoveClock.orElseGet(() -> source.halfMoveClock),
-                withFullMoveNumber.orElseGet(() -> source.fullMoveNumber),
-                withPlayersAlive.orElseGet(() -> source.alivePlayers)
-        );
+        this(source, withBoard.orElse(null), withMoatsState.orElse(null),
+                withMovesNext.orElse(null), withCastlingPossibilities.orElse(null),
+                withEnPassantStore.orElse(null), withHalfMoveClock.orElse(null),
+                withFullMoveNumber.orElse(null), withPlayersAlive.orElse(null));
+    }
+
+    /**
+     * @return the 64-bit Zobrist key of this state, see [Zobrist]
+     */
+    public long zobrist() {
+        long ret = zobrist;
+        if (ret == 0) zobrist = ret = Zobrist.of(this);
+        return ret;
+    }
+
+    /**
+     * @return everything but the board packed into a long, see [PackedHeader]
+     * @throws IllegalArgumentException if a clock does not fit
+     */
+    public long header() {
+        return PackedHeader.of(this);
+    }
+
+    /**
+     * From the cached zobrist, so it is only stable while the board does not
+     * change: never hash a state whose board is still being changed,
+     * such as MutableGameState.view
+     */
+    @Override
+    public int hashCode() {
+        final long key = zobrist();
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Two states are equal if they have the same figs on the same squares
+     * and all the other fields equal, clocks included. As with hashCode,
+     * this is meaningless for a view whose board has changed since
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof GameState)) return false;
+        final GameState other = (GameState) obj;
+        if (zobrist() != other.zobrist()
+                || halfMoveClock != other.halfMoveClock
+                || fullMoveNumber != other.fullMoveNumber
+                || PackedHeader.of(moatsState, movesNext, castlingPossibilities, enPassantStore, alivePlayers)
+                != PackedHeader.of(other.moatsState, other.movesNext, other.castlingPossibilities,
+                other.enPassantStore, other.alivePlayers))
+            return false;
+        for (int square = 0; square < BitBoard.SQUARES; square++)
+            if (Zobrist.sevenBit(board, square) != Zobrist.sevenBit(other.board, square))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return a MutableGameState starting from this state, with a copy of the board,
+     * for making and unmaking moves in place
+     */
+    @NotNull
+    public MutableGameState mutable() {
+        return new MutableGameState(this);
     }
 
     /**
@@ -223,7 +317,47 @@ public class GameState {
      * @return stream of positions which are threatening our king
      */
     public Stream<Pos> amIinCheck(Color who) {
-        return board.checkChecking(who, alivePlayers);
+        final long[] attackers = kingAttackers(who);
+        final int offset = who.segm() * BitBoard.WORDS;
+        final ArrayList<Pos> ret = new ArrayList<>(2);
+        for (int w = 0; w < BitBoard.WORDS; w++)
+            for (long s = attackers[offset + w]; s != 0; s &= s - 1)
+                ret.add(AttackTables.pos(BitBoard.squareOf(w, Long.numberOfTrailingZeros(s))));
+        return ret.stream();
+    }
+
+    /**
+     * Whether the player is checked, without listing the checking figs
+     *
+     * @param who color of the player
+     * @return whether any living enemy fig attacks [who]'s king
+     */
+    public boolean isInCheck(Color who) {
+        final long[] attackers = kingAttackers(who);
+        final int offset = who.segm() * BitBoard.WORDS;
+        for (int w = 0; w < BitBoard.WORDS; w++)
+            if (attackers[offset + w] != 0) return true;
+        return false;
+    }
+
+    /**
+     * Finds the attackers of [who]'s king (unless they are already known)
+     *
+     * @return [kingAttackers] with [who]'s ones known
+     */
+    private long[] kingAttackers(Color who) {
+        final long[] known = kingAttackers;
+        if (known != null && (known[3 * BitBoard.WORDS] & (1 << who.segm())) != 0) return known;
+        final long[] ret = known == null ? new long[3 * BitBoard.WORDS + 1] : known.clone();
+        final BitBoard b = board instanceof BitBoard ? (BitBoard) board : new BitBoardImpl(board);
+        final Pos king = b._whereIsKing(who);
+        final long[] found = new long[BitBoard.WORDS];
+        if (king != null && alivePlayers.get(who))
+            Attacks.attackers(b, king.toInt(), who, alivePlayers, found);
+        System.arraycopy(found, 0, ret, who.segm() * BitBoard.WORDS, BitBoard.WORDS);
+        ret[3 * BitBoard.WORDS] |= 1 << who.segm();
+        kingAttackers = ret;
+        return ret;
     }
 
     /**
@@ -236,31 +370,29 @@ public class GameState {
 
     @Contract(pure = true)
     public boolean _canIMoveWOCheck(Color who) {
-        return _canIMoveWOCheck(who, false);
+        return _canIMoveWOCheck(who, alivePlayers);
     }
 
+    /**
+     * @param useImmutableAfterBoard has no effect, as no after-state is made any more
+     * @deprecated the flag has no effect, use {@link #_canIMoveWOCheck(Color)}
+     */
+    @Deprecated
     @Contract(pure = true)
     public boolean _canIMoveWOCheck(Color who, boolean useImmutableAfterBoard) {
-        for (final Pos from : new AllPosIterable())
-            //noinspection ConstantConditions
-            if (!board.isEmpty(from) && board.get(from).color == who)
-                for (final Pos to : AMFT.getIterableFor(from))
-                    //noinspection ConstantConditions
-                    for (final Vector vec : board.get(from).vecs(from, to))
-                        try {
-                            final VecMove m = new VecMove(vec, from, this);
-                            try {
-                                //noinspection ResultOfMethodCallIgnored
-                                m.afterWOEvaluatingDeath(useImmutableAfterBoard);
-                            } catch (IllegalMoveException ignored) {
-                                return true;
-                            }
-                        } catch (VectorAdditionFailedException e) {
-                            e.printStackTrace();
-                            throw new AssertionError(e);
-                        } catch (NeedsToBePromotedException ignored) {
-                        }
-        return false;
+        return _canIMoveWOCheck(who);
+    }
+
+    /**
+     * Whether [who] has any legal move, as if it was [who] who moves next
+     *
+     * @param pa which players are alive; the dead do not give check
+     */
+    @Contract(pure = true)
+    private boolean _canIMoveWOCheck(Color who, PlayersAlive pa) {
+        return MoveGenerator.hasLegalMove(
+                board instanceof BitBoard ? (BitBoard) board : new BitBoardImpl(board),
+                who, moatsState, castlingPossibilities, enPassantStore, pa);
     }
 
     public boolean canIMoveWOCheck(Color who, boolean mutabilitySafe) {
@@ -279,7 +411,7 @@ public class GameState {
                 if (testCheckmate)
                     if (!board.whereIsKing(player).isPresent())
                         pa = pa.die(player);
-                    else if (!_canIMoveWOCheck(player))
+                    else if (!_canIMoveWOCheck(player, pa))
                         pa = pa.die(player);
                     else {
                         testCheckmate = false;
@@ -303,40 +435,22 @@ public class GameState {
         return VecMove.evaluateDeath(this);
     }
 
-    private Seq<DescMove> genDescMoves(Pos from, Pos to) {
-        DescMove move = new DescMove(from, to, this);
-        Stream<DescMove.EitherStateOrIllMoveExcept> afters;
-        try {
-            afters = move.generateAftersWOEvaluatingDeath();
-        } catch (NeedsToBePromotedException e) {
-            move = new DescMove(from, to, this, FigType.Queen);
-            try {
-                afters = move.generateAftersWOEvaluatingDeath();
-            } catch (NeedsToBePromotedException e1) {
-                e1.printStackTrace();
-                throw new AssertionError(e1);
-            }
-        }
-        Optional<GameState> any = afters
-                .flatMap(DescMove.EitherStateOrIllMoveExcept::flatMapState)
-                .findAny();
-        if (any.isPresent()) {
-            /*
-            if (move.pawnPromotion == null)
-                //return Seq.of(new Desc(from, to));
-                return Seq.of(move);
-            else return
-                    Seq.of(FigType.Queen, FigType.Rook, FigType.Bishop, FigType.Knight)
-                            .map(prom -> new Desc(from, to, prom));
-                            */
-            return move.promPossible();
-        } else return Seq.empty();
-    }
-
+    /**
+     * @return the legal moves of the player who moves next, as given by
+     * MoveGenerator.generateLegal, each from, to and promotion once
+     */
     public Seq<DescMove> genDescMoves() {
-        Seq<Pos> ours = board.friendsAndOthers(movesNext, alivePlayers).v1.parallel();
-        return ours.flatMap(from -> Seq.seq(AMFT.getIterableFor(from)).parallel()
-                .flatMap(to -> genDescMoves(from, to)));
+        if (!alivePlayers.get(movesNext)) return Seq.empty();
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(this, moves);
+        final int[] bases = moves.toArray();
+        for (int i = 0; i < bases.length; i++) bases[i] = PackedMove.base(bases[i]);
+        Arrays.sort(bases);
+        final List<DescMove> ret = new ArrayList<>(bases.length);
+        for (int i = 0; i < bases.length; i++)
+            if (i == 0 || bases[i] != bases[i - 1])
+                ret.add(PackedMove.toDescMove(bases[i], this));
+        return Seq.seq(ret);
     }
 
     public Seq<GameState> genASAOM(Color ourColor) {
@@ -350,8 +464,7 @@ public class GameState {
         DescMove moveToApply = new DescMove(
                 only.from, only.to, this, only.pawnPromotion);
         try {
-            Optional<GameState> any = moveToApply.generateAfters()
-                    .flatMap(DescMove.EitherStateOrIllMoveExcept::flatMapState)
+            Optional<GameState> any = moveToApply.generateAfterStates(true, false)
                     .findAny();
             assert (any.isPresent());
             GameState aft = any.get();
@@ -369,8 +482,7 @@ public class GameState {
         //DescMove moveToBe = new DescMove(
         //        tft.from, tft.to, this, tft.pawnPromotion);
         try {
-            Optional<GameState> newAny = moveToBe.generateAfters()
-                    .flatMap(DescMove.EitherStateOrIllMoveExcept::flatMapState)
+            Optional<GameState> newAny = moveToBe.generateAfterStates(true, false)
                     .findAny();
             assert newAny.isPresent();
             return newAny.get();
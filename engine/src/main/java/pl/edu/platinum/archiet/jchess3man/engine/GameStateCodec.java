@@ -0,0 +1,131 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+
+/**
+ * GameStateCodec writes and reads a GameState as a fixed-length record of
+ * [BYTES] bytes straight to and from a ByteBuffer (heap, direct or mapped):
+ * SQUARES bytes of seven-bit fig codes by square index (rank*24+file, 0 if empty),
+ * then the PackedHeader long in the buffer's byte order.
+ * There is no copying through strings nor arrays; the absolute variants
+ * leave the buffer's position alone, so many threads may read one buffer.
+ */
+public final class GameStateCodec {
+    private GameStateCodec() {
+    }
+
+    public static final int HEADER_OFFSET = SQUARES;
+    public static final int BYTES = SQUARES + Long.BYTES;
+
+    /**
+     * Writes the record at the buffer's position and advances it by BYTES
+     *
+     * @throws IllegalArgumentException if a clock does not fit the header
+     */
+    public static void write(@NotNull GameState state, @NotNull ByteBuffer into) {
+        write(state, into, into.position());
+        into.position(into.position() + BYTES);
+    }
+
+    /**
+     * Writes the record at index, not changing the buffer's position
+     *
+     * @throws IllegalArgumentException if a clock does not fit the header
+     */
+    public static void write(@NotNull GameState state, @NotNull ByteBuffer into, int index) {
+        write(state.board, state.header(), into, index);
+    }
+
+    /**
+     * Writes the current state of a MutableGameState at index,
+     * not changing the buffer's position
+     *
+     * @throws IllegalArgumentException if a clock does not fit the header
+     */
+    public static void write(@NotNull MutableGameState state, @NotNull ByteBuffer into, int index) {
+        write(state.board, PackedHeader.of(state.moatsState(), state.movesNext(),
+                state.castlingPossibilities(), state.enPassantStore(),
+                state.halfMoveClock(), state.fullMoveNumber(), state.alivePlayers()),
+                into, index);
+    }
+
+    public static void write(@NotNull Board board, long header, @NotNull ByteBuffer into, int index) {
+        if (index < 0 || index > into.limit() - BYTES)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        if (board instanceof BitBoard) {
+            final BitBoard bitBoard = (BitBoard) board;
+            for (int sq = 0; sq < SQUARES; sq++) into.put(index + sq, (byte) bitBoard.sevenBit(sq));
+        } else for (int sq = 0; sq < SQUARES; sq++)
+            into.put(index + sq, (byte) board.getCode(sq / 24, sq % 24));
+        into.putLong(index + HEADER_OFFSET, header);
+    }
+
+    /**
+     * Reads the record at the buffer's position and advances it by BYTES
+     *
+     * @return a new GameState on a new BitBoardImpl
+     * @throws IllegalArgumentException if the record holds an invalid fig code
+     */
+    @NotNull
+    public static GameState read(@NotNull ByteBuffer from) {
+        final GameState state = read(from, from.position());
+        from.position(from.position() + BYTES);
+        return state;
+    }
+
+    /**
+     * Reads the record at index, not changing the buffer's position
+     *
+     * @return a new GameState on a new BitBoardImpl
+     * @throws IllegalArgumentException if the record holds an invalid fig code
+     */
+    @NotNull
+    public static GameState read(@NotNull ByteBuffer from, int index) {
+        final BitBoardImpl board = new BitBoardImpl();
+        return PackedHeader.toGameState(board, readInto(from, index, board));
+    }
+
+    /**
+     * Reads the board of the record at index into a board that is cleared first,
+     * not changing the buffer's position nor allocating
+     *
+     * @return the header of the record
+     * @throws IllegalArgumentException if the record holds an invalid fig code
+     */
+    public static long readInto(@NotNull ByteBuffer from, int index, @NotNull BitBoardImpl board) {
+        if (index < 0 || index > from.limit() - BYTES)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        board.clearAll();
+        for (int sq = 0; sq < SQUARES; sq++) {
+            final int code = from.get(index + sq);
+            if (code == 0) continue;
+            if (!isValidCode(code))
+                throw new IllegalArgumentException("square " + sq + " code " + code);
+            board.put(sq, code);
+        }
+        return from.getLong(index + HEADER_OFFSET);
+    }
+
+    /**
+     * @return the header of the record at index, not changing the buffer's position
+     */
+    public static long readHeader(@NotNull ByteBuffer from, int index) {
+        return from.getLong(index + HEADER_OFFSET);
+    }
+
+    /**
+     * @return whether code is a seven-bit code of some fig
+     */
+    @Contract(pure = true)
+    public static boolean isValidCode(int code) {
+        final int type = code & 0b111;
+        final int color = code >> 3 & 0b111;
+        return code >= 0 && code < 128 && type >= 1 && type <= 6 && color >= 1 && color <= 3
+                && (code >> 6 == 0 || type == FigType.Pawn.index);
+    }
+}
@@ -0,0 +1,104 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * This is an immutable implementation of BitBoard (and ImmutableBoard).
+ * It wraps a BitBoardImpl that is never modified after construction;
+ * every put/clr/move copies the thirty longs and changes the copy.
+ */
+public class ImmutableBitBoardImpl implements BitBoard, ImmutableBoard {
+    private final @NotNull BitBoardImpl b;
+
+    private ImmutableBitBoardImpl(@NotNull BitBoardImpl owned, boolean ignored) {
+        this.b = owned;
+    }
+
+    /**
+     * @param source board to copy squares from
+     */
+    public ImmutableBitBoardImpl(@NotNull Board source) {
+        this(new BitBoardImpl(source), false);
+    }
+
+    @Override
+    public long occupiedWord(int word) {
+        return b.occupiedWord(word);
+    }
+
+    @Override
+    public long colorWord(@NotNull Color who, int word) {
+        return b.colorWord(who, word);
+    }
+
+    @Override
+    public long typeWord(@NotNull FigType type, int word) {
+        return b.typeWord(type, word);
+    }
+
+    @Override
+    public long pawnCenterWord(int word) {
+        return b.pawnCenterWord(word);
+    }
+
+    @Override
+    public int sevenBit(int square) {
+        return b.sevenBit(square);
+    }
+
+    @Override
+    public int kingSquare(@NotNull Color who) {
+        return b.kingSquare(who);
+    }
+
+    @Override
+    public ImmutableBitBoardImpl put(int rank, int file, @Nullable Fig fig) {
+        final BitBoardImpl n = b.mutableCopy();
+        n.put(rank, file, fig);
+        return new ImmutableBitBoardImpl(n, false);
+    }
+
+    @Override
+    public ImmutableBitBoardImpl put(@NotNull Pos pos, @Nullable Fig fig) {
+        return put(pos.rank, pos.file, fig);
+    }
+
+    @Override
+    public ImmutableBitBoardImpl clr(int rank, int file) {
+        return put(rank, file, null);
+    }
+
+    @Override
+    public ImmutableBitBoardImpl clr(@NotNull Pos pos) {
+        return put(pos.rank, pos.file, null);
+    }
+
+    @Override
+    public ImmutableBitBoardImpl move(@NotNull Pos from, @NotNull Pos to) {
+        final BitBoardImpl n = b.mutableCopy();
+        n.move(from, to);
+        return new ImmutableBitBoardImpl(n, false);
+    }
+
+    /**
+     * @return not really a copy, just [this]
+     */
+    @NotNull
+    @Override
+    public ImmutableBitBoardImpl copy() {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public BitBoardImpl mutableCopy() {
+        return b.mutableCopy();
+    }
+
+    @NotNull
+    @Override
+    public ImmutableBitBoardImpl immutable() {
+        return this;
+    }
+}
@@ -11,6 +11,16 @@ public class KingsideCastlingVector extends CastlingVector {
     public static final int[] empties = {5, 6};
     public static final KingsideCastlingVector c = new KingsideCastlingVector();
 
+    @Override
+    public int rookFrom(int kingFrom) {
+        return kingFrom + 3;
+    }
+
+    @Override
+    public int rookTo(int kingFrom) {
+        return kingFrom + 1;
+    }
+
     @Override
     public boolean checkPossibility(CastlingPossibilities.ColorEntry c) {
         return c.k;
@@ -21,13 +31,13 @@ public class KingsideCastlingVector extends CastlingVector {
                                                         Pos from, EnPassantStore ep, Pos to)
             throws VectorAdditionFailedException {
         return b.move(from, to)
-                .move(new Pos(0, from.file + 3),
-                        new Pos(0, from.file + 1));
+                .move(AttackTables.pos(rookFrom(from.toInt())),
+                        AttackTables.pos(rookTo(from.toInt())));
     }
 
     @Override
     public void manipulateMutableAfterBoard(MutableBoard b, Pos from, EnPassantStore ep, Pos to) throws VectorAdditionFailedException {
         b.move(from, to);
-        b.move(new Pos(0, from.file + 3), new Pos(0, from.file + 1));
+        b.move(AttackTables.pos(rookFrom(from.toInt())), AttackTables.pos(rookTo(from.toInt())));
     }
 }
@@ -141,8 +141,7 @@ public class KnightVector implements JumpVector {
 
     public Iterable<@NotNull Color> moats(Pos from) {
         @Nullable Color m = moat(from);
-        if (m != null) return new SingleElementIterable<>(m);
-        return Collections.emptyList();
+        return AttackTables.moats(m == null ? 0 : AttackTables.moatBit(m));
     }
 
     public boolean toBool() {
@@ -36,10 +36,26 @@ public class MoatsState {
         this.gb = gb == null ? defVal : gb;
     }
 
-    public static final MoatsState allBridged =
-            new MoatsState(true, true, true);
-    public static final MoatsState noBridges =
-            new MoatsState(false, false, false);
+    private static final MoatsState[] byInt = new MoatsState[8];
+
+    static {
+        for (int i = 0; i < byInt.length; i++) byInt[i] = new MoatsState(i);
+    }
+
+    /**
+     * @param fromInt as returned by {@link #toInt()}
+     * @return the shared instance, so that changing the state never allocates
+     */
+    public static MoatsState of(int fromInt) {
+        return byInt[fromInt & 0b111];
+    }
+
+    public static MoatsState of(boolean bw, boolean wg, boolean gb) {
+        return byInt[(bw ? (1 << 2) : 0) | (wg ? (1 << 1) : 0) | (gb ? 1 : 0)];
+    }
+
+    public static final MoatsState allBridged = of(true, true, true);
+    public static final MoatsState noBridges = of(false, false, false);
 
     public boolean isBridgedBetween(Color a, Color b) {
         if (a.next() == b) return isBridgedBetweenThisAndPrevious(b);
@@ -100,11 +116,11 @@ public class MoatsState {
     public MoatsState changeBetweenThisAndPrevious(Color col, boolean to) {
         switch (col) {
             case White:
-                return new MoatsState(to, wg, gb);
+                return of(to, wg, gb);
             case Gray:
-                return new MoatsState(bw, to, gb);
+                return of(bw, to, gb);
             case Black:
-                return new MoatsState(bw, wg, to);
+                return of(bw, wg, to);
         }
         throw new IllegalArgumentException(col.toString());
     }
@@ -116,11 +132,11 @@ public class MoatsState {
     public MoatsState changeBetweenThisAndNext(Color col, boolean to) {
         switch (col) {
             case Black:
-                return new MoatsState(to, wg, gb);
+                return of(to, wg, gb);
             case White:
-                return new MoatsState(bw, to, gb);
+                return of(bw, to, gb);
             case Gray:
-                return new MoatsState(bw, wg, to);
+                return of(bw, wg, to);
         }
         throw new IllegalArgumentException(col.toString());
     }
@@ -132,11 +148,11 @@ public class MoatsState {
     public MoatsState changeOnTheOtherSide(Color col, boolean to) {
         switch (col) {
             case Gray:
-                return new MoatsState(to, wg, gb);
+                return of(to, wg, gb);
             case Black:
-                return new MoatsState(bw, to, gb);
+                return of(bw, to, gb);
             case White:
-                return new MoatsState(bw, wg, to);
+                return of(bw, wg, to);
         }
         throw new IllegalArgumentException(col.toString());
     }
@@ -148,11 +164,11 @@ public class MoatsState {
     public MoatsState changeOnBothSidesOf(Color col, boolean to) {
         switch (col) {
             case Gray:
-                return new MoatsState(bw, to, to);
+                return of(bw, to, to);
             case Black:
-                return new MoatsState(to, wg, to);
+                return of(to, wg, to);
             case White:
-                return new MoatsState(to, to, gb);
+                return of(to, to, gb);
         }
         throw new IllegalArgumentException(col.toString());
     }
@@ -161,6 +177,23 @@ public class MoatsState {
         return changeOnBothSidesOf(col, true);
     }
 
+    /**
+     * Bridges the moats on both sides of every player with no own fig left
+     * on their segment of the first rank, or dead
+     *
+     * @param afterBoard   the board after a move
+     * @param alivePlayers the players alive before it
+     * @return the moats state after the move
+     */
+    public MoatsState bridgedWhereLeft(Board afterBoard, PlayersAlive alivePlayers) {
+        MoatsState ret = this;
+        for (final Color color : Color.colors)
+            if (!ret.areBridgedOnBothSidesOf(color)
+                    && (!alivePlayers.get(color) || !afterBoard.isThereAnyOnFirstRank(color)))
+                ret = ret.bridgeOnBothSidesOf(color);
+        return ret;
+    }
+
     public int toInt() {
         return (bw ? (1 << 2) : 0) | (wg ? (1 << 1) : 0) | (gb ? 1 : 0);
     }
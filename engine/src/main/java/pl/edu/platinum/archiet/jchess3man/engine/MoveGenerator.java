@@ -0,0 +1,519 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.AttackTables.*;
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+
+/**
+ * MoveGenerator generates pseudo-legal moves as [PackedMove]s into a [MoveList],
+ * piece type by piece type, visiting only the squares the piece can reach
+ * instead of all the AMFT candidates, and without allocating anything.
+ * Pseudo-legal means VecMove.checkPossibility would not object:
+ * moats (no capturing through a moat, no passing an unbridged one),
+ * castling possibilities and empties, pawnCenter, the creeks and en passant
+ * are all taken into account; check (including the one initiated thru a moat)
+ * is not.
+ * A pawn move that requires a promotion is generated once per promotion,
+ * queen, rook, bishop and knight, like genDescMoves does.
+ * The same from and to may appear more than once, with different vectors,
+ * e.g. a rook going either way around along a file.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {
+    }
+
+    /**
+     * pawn one-step destinations: [square*2] inward, [square*2+1] outward; -1 if none
+     */
+    private static final int[] pawnWalks = new int[SQUARES * 2];
+    /**
+     * pawn capture destinations, [square*4+i] for PawnCapVector.allCombinations[i]; -1 if none
+     */
+    private static final int[] pawnCaps = new int[SQUARES * 4];
+    private static final int[] pawnCapDirs = new int[4];
+    private static final boolean[] pawnCapInward = new boolean[4];
+    private static final int[] bridgedMasks = new int[8];
+    private static final int[] promotions = {
+            FigType.Queen.index, FigType.Rook.index, FigType.Bishop.index, FigType.Knight.index};
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            final Pos from = pos(sq);
+            pawnWalks[sq * 2] = new PawnWalkVector(true).addTo(from).toInt();
+            pawnWalks[sq * 2 + 1] = from.rank > 0 ? new PawnWalkVector(false).addTo(from).toInt() : -1;
+            for (int i = 0; i < 4; i++)
+                try {
+                    pawnCaps[sq * 4 + i] = PawnCapVector.allCombinations.get(i).addTo(from).toInt();
+                } catch (VectorAdditionFailedException e) {
+                    pawnCaps[sq * 4 + i] = -1;
+                }
+        }
+        for (int i = 0; i < 4; i++) {
+            pawnCapDirs[i] = PawnCapVector.allCombinations.get(i).direction();
+            pawnCapInward[i] = PawnCapVector.allCombinations.get(i).inward;
+        }
+        for (int i = 0; i < 8; i++) {
+            final MoatsState moatsState = MoatsState.of(i);
+            for (final Color color : Color.colors)
+                if (moatsState.isBridgedBetweenThisAndNext(color))
+                    bridgedMasks[i] |= moatBit(color);
+        }
+    }
+
+    /**
+     * @param moatsState the moats state
+     * @return mask of the bridged moats, bits as in AttackTables.moatBit
+     */
+    @Contract(pure = true)
+    public static int bridgedMask(@NotNull MoatsState moatsState) {
+        return bridgedMasks[moatsState.toInt()];
+    }
+
+    /**
+     * Generates the pseudo-legal moves of the player who moves next
+     *
+     * @param state the state
+     * @param into  where to add the moves; it is not cleared
+     */
+    public static void generate(@NotNull GameState state, @NotNull MoveList into) {
+        generate(state.board instanceof BitBoard ? (BitBoard) state.board : new BitBoardImpl(state.board),
+                state.movesNext, state.moatsState, state.castlingPossibilities,
+                state.enPassantStore, into);
+    }
+
+    /**
+     * Generates the pseudo-legal moves of the player who moves next
+     *
+     * @param state the state
+     * @param into  where to add the moves; it is not cleared
+     */
+    public static void generate(@NotNull MutableGameState state, @NotNull MoveList into) {
+        generate(state.board, state.movesNext(), state.moatsState(),
+                state.castlingPossibilities(), state.enPassantStore(), into);
+    }
+
+    /**
+     * Generates the pseudo-legal moves of [who]
+     *
+     * @param into where to add the moves; it is not cleared
+     */
+    public static void generate(@NotNull BitBoard board, @NotNull Color who,
+                                @NotNull MoatsState moatsState,
+                                @NotNull CastlingPossibilities castlingPossibilities,
+                                @NotNull EnPassantStore enPassantStore,
+                                @NotNull MoveList into) {
+        final int bridged = bridgedMask(moatsState);
+        for (int w = 0; w < BitBoard.WORDS; w++)
+            for (long ours = board.colorWord(who, w); ours != 0; ours &= ours - 1)
+                figMoves(board, BitBoard.squareOf(w, Long.numberOfTrailingZeros(ours)), who,
+                        bridged, castlingPossibilities, enPassantStore, into);
+    }
+
+    /**
+     * Pseudo-legal moves of [who]'s fig standing on [from]
+     *
+     * @param bridged mask of the bridged moats, see [bridgedMask]
+     */
+    private static void figMoves(@NotNull BitBoard board, int from, @NotNull Color who, int bridged,
+                                 @NotNull CastlingPossibilities castlingPossibilities,
+                                 @NotNull EnPassantStore enPassantStore,
+                                 @NotNull MoveList into) {
+        final int code = board.sevenBit(from);
+        switch (code & 7) {
+            case 1: //Rook
+                sliderMoves(board, from, who, FILE_PLUS, RANK_OUTWARD, bridged, into);
+                break;
+            case 2: //Knight
+                knightMoves(board, from, who, bridged, into);
+                break;
+            case 3: //Bishop
+                sliderMoves(board, from, who, DIAG_IN_PLUS, DIAG_OUT_MINUS, bridged, into);
+                break;
+            case 4: //Queen
+                sliderMoves(board, from, who, FILE_PLUS, DIAG_OUT_MINUS, bridged, into);
+                break;
+            case 5: //King
+                kingMoves(board, from, who, bridged, castlingPossibilities.get(who), into);
+                break;
+            case 6: //Pawn
+                pawnMoves(board, from, who, (code & (1 << 6)) != 0, enPassantStore, into);
+                break;
+        }
+    }
+
+    /**
+     * Generates the legal moves of the player who moves next, see
+     * generateLegal(BitBoard, Color, MoatsState, CastlingPossibilities, EnPassantStore, PlayersAlive, MoveList)
+     *
+     * @param state the state
+     * @param into  where to add the moves; it is not cleared
+     */
+    public static void generateLegal(@NotNull GameState state, @NotNull MoveList into) {
+        generateLegal(state.board instanceof BitBoard ? (BitBoard) state.board : new BitBoardImpl(state.board),
+                state.movesNext, state.moatsState, state.castlingPossibilities,
+                state.enPassantStore, state.alivePlayers, into);
+    }
+
+    /**
+     * Generates the legal moves of the player who moves next, see
+     * generateLegal(BitBoard, Color, MoatsState, CastlingPossibilities, EnPassantStore, PlayersAlive, MoveList)
+     *
+     * @param state the state
+     * @param into  where to add the moves; it is not cleared
+     */
+    public static void generateLegal(@NotNull MutableGameState state, @NotNull MoveList into) {
+        generateLegal(state.board, state.movesNext(), state.moatsState(),
+                state.castlingPossibilities(), state.enPassantStore(), state.alivePlayers(), into,
+                state.legality);
+    }
+
+    /**
+     * Generates the legal moves of the player who moves next as generateLegal does,
+     * but each from, to and promotion once, and none if that player is dead,
+     * i.e. the moves a search or a playout has to choose from
+     *
+     * @param state the state
+     * @param into  where to add the moves; it is not cleared
+     */
+    public static void generateLegalDistinct(@NotNull MutableGameState state, @NotNull MoveList into) {
+        if (!state.alivePlayers().get(state.movesNext())) return;
+        final int first = into.size();
+        generateLegal(state, into);
+        int kept = first;
+        outer:
+        for (int i = first; i < into.size(); i++) {
+            final int move = into.get(i);
+            for (int j = first; j < kept; j++)
+                if (PackedMove.base(into.get(j)) == PackedMove.base(move)) continue outer;
+            into.set(kept++, move);
+        }
+        into.truncate(kept);
+    }
+
+    /**
+     * Generates the legal moves of [who], i.e. the moves VecMove.tryAfter accepts:
+     * the pseudo-legal ones that neither leave [who]'s king attacked
+     * by a living enemy nor initiate a check thru a moat.
+     * The pinned figs and the checkers are found once, up front;
+     * a move of a fig that is not pinned is then legal if there is no check,
+     * or if it captures the only checker or blocks all its lines to the king.
+     * Only the moves of the king, en passant, the moves of pinned figs,
+     * moves under a double check and moves crossing a moat are looked at
+     * one by one, by asking Attacks about the occupancy after the move.
+     *
+     * @param into where to add the moves; it is not cleared
+     */
+    public static void generateLegal(@NotNull BitBoard board, @NotNull Color who,
+                                     @NotNull MoatsState moatsState,
+                                     @NotNull CastlingPossibilities castlingPossibilities,
+                                     @NotNull EnPassantStore enPassantStore,
+                                     @NotNull PlayersAlive alivePlayers,
+                                     @NotNull MoveList into) {
+        generateLegal(board, who, moatsState, castlingPossibilities, enPassantStore, alivePlayers, into,
+                new Legality());
+    }
+
+    /**
+     * Same as the public generateLegal, with [legality] reused instead of a new one
+     */
+    static void generateLegal(@NotNull BitBoard board, @NotNull Color who,
+                              @NotNull MoatsState moatsState,
+                              @NotNull CastlingPossibilities castlingPossibilities,
+                              @NotNull EnPassantStore enPassantStore,
+                              @NotNull PlayersAlive alivePlayers,
+                              @NotNull MoveList into, @NotNull Legality legality) {
+        final int start = into.size();
+        generate(board, who, moatsState, castlingPossibilities, enPassantStore, into);
+        legality.reset(board, who, alivePlayers);
+        int kept = start;
+        for (int i = start; i < into.size(); i++) {
+            final int move = into.get(i);
+            if (legality.isLegal(move)) into.set(kept++, move);
+        }
+        into.truncate(kept);
+    }
+
+    /**
+     * Whether [who] has any legal move, as generateLegal would tell,
+     * but stopping at the first one found: the king steps are tried first,
+     * then, under a single check, only the captures of the checker and the
+     * interpositions need the pinned figs looked at; with no check the first
+     * move of a fig that is not pinned (and crosses no moat) is enough.
+     *
+     * @return whether [who] has any legal move
+     */
+    public static boolean hasLegalMove(@NotNull BitBoard board, @NotNull Color who,
+                                       @NotNull MoatsState moatsState,
+                                       @NotNull CastlingPossibilities castlingPossibilities,
+                                       @NotNull EnPassantStore enPassantStore,
+                                       @NotNull PlayersAlive alivePlayers) {
+        return hasLegalMove(board, who, moatsState, castlingPossibilities, enPassantStore, alivePlayers,
+                new Legality(), new MoveList(32));
+    }
+
+    /**
+     * Same as the public hasLegalMove, with [legality] and [moves] reused instead of new ones
+     */
+    static boolean hasLegalMove(@NotNull BitBoard board, @NotNull Color who,
+                                @NotNull MoatsState moatsState,
+                                @NotNull CastlingPossibilities castlingPossibilities,
+                                @NotNull EnPassantStore enPassantStore,
+                                @NotNull PlayersAlive alivePlayers,
+                                @NotNull Legality legality, @NotNull MoveList moves) {
+        final int bridged = bridgedMask(moatsState);
+        legality.reset(board, who, alivePlayers);
+        moves.clear();
+        if (legality.king >= 0) {
+            figMoves(board, legality.king, who, bridged, castlingPossibilities, enPassantStore, moves);
+            if (legality.anyLegal(moves)) return true;
+        }
+        for (int w = 0; w < BitBoard.WORDS; w++)
+            for (long ours = board.colorWord(who, w); ours != 0; ours &= ours - 1) {
+                final int from = BitBoard.squareOf(w, Long.numberOfTrailingZeros(ours));
+                if (from == legality.king) continue;
+                moves.clear();
+                figMoves(board, from, who, bridged, castlingPossibilities, enPassantStore, moves);
+                if (legality.anyLegal(moves)) return true;
+            }
+        return false;
+    }
+
+    /**
+     * What one needs to know to tell the legal moves of a color from the
+     * pseudo-legal ones: where the kings are, which figs are pinned,
+     * how many checkers there are and how to get out of a single check.
+     * It is [reset] for every position, so that one can be reused
+     * by a MutableGameState from ply to ply.
+     */
+    static final class Legality {
+        BitBoard board;
+        Color who;
+        PlayersAlive alivePlayers;
+        int king;
+        int previousKing;
+        int nextKing;
+        final long[] pinned = new long[BitBoard.WORDS];
+        final long[] checkers = new long[BitBoard.WORDS];
+        final long[] resolve = new long[BitBoard.WORDS];
+        final long[] occupied = new long[BitBoard.WORDS];
+        int checks;
+
+        void reset(@NotNull BitBoard board, @NotNull Color who, @NotNull PlayersAlive alivePlayers) {
+            this.board = board;
+            this.who = who;
+            this.alivePlayers = alivePlayers;
+            king = board.kingSquare(who);
+            previousKing = board.kingSquare(who.previous());
+            nextKing = board.kingSquare(who.next());
+            checks = king < 0 ? 0
+                    : Attacks.kingSafety(board, king, who, alivePlayers, pinned, checkers, resolve);
+        }
+
+        boolean anyLegal(@NotNull MoveList moves) {
+            for (int i = 0; i < moves.size(); i++)
+                if (isLegal(moves.get(i))) return true;
+            return false;
+        }
+
+        /**
+         * @param move a pseudo-legal move of [who]
+         * @return whether it is legal
+         */
+        boolean isLegal(int move) {
+            final int from = PackedMove.from(move);
+            final int to = PackedMove.to(move);
+            if (crossesMoat(move)) {
+                final int captured = occupancyAfter(board, move, occupied);
+                final int code = board.sevenBit(from);
+                return (previousKing < 0 || !Attacks.attacks(board, occupied, to, code, previousKing))
+                        && (nextKing < 0 || !Attacks.attacks(board, occupied, to, code, nextKing))
+                        && (king < 0 || !Attacks.isAttacked(board, occupied,
+                        from == king ? to : king, who, alivePlayers, captured));
+            }
+            if (king < 0) return true;
+            if (from == king || checks > 1 || PackedMove.isEnPassant(move)
+                    || (pinned[BitBoard.word(from)] & BitBoard.bit(from)) != 0) {
+                final int captured = occupancyAfter(board, move, occupied);
+                return !Attacks.isAttacked(board, occupied,
+                        from == king ? to : king, who, alivePlayers, captured);
+            }
+            return checks == 0 || (resolve[BitBoard.word(to)] & BitBoard.bit(to)) != 0;
+        }
+    }
+
+    /**
+     * @return whether a move (other than a capture, those never do) crosses a moat
+     */
+    @Contract(pure = true)
+    private static boolean crossesMoat(int move) {
+        switch (PackedMove.kind(move)) {
+            case PackedMove.CONTINUOUS:
+                return moatsAt(PackedMove.from(move), PackedMove.direction(move), PackedMove.abs(move)) != 0;
+            case PackedMove.KNIGHT:
+                final int from = PackedMove.from(move);
+                final int[] jumps = knightJumps(from);
+                for (int i = 0; i < jumps.length; i++)
+                    if (jumps[i] == PackedMove.to(move)) return knightMoats(from)[i] != 0;
+        }
+        return false;
+    }
+
+    /**
+     * Puts the occupancy after [move] into [occupied]
+     *
+     * @return square of the enemy fig captured, -1 if none
+     */
+    private static int occupancyAfter(@NotNull BitBoard board, int move, long[] occupied) {
+        for (int w = 0; w < BitBoard.WORDS; w++) occupied[w] = board.occupiedWord(w);
+        final int from = PackedMove.from(move);
+        final int to = PackedMove.to(move);
+        int captured = PackedMove.isCapture(move) ? to : -1;
+        occupied[BitBoard.word(from)] &= ~BitBoard.bit(from);
+        occupied[BitBoard.word(to)] |= BitBoard.bit(to);
+        switch (PackedMove.kind(move)) {
+            case PackedMove.EN_PASSANT:
+                captured = PawnCapVector.enPassantCaptured(to);
+                occupied[BitBoard.word(captured)] &= ~BitBoard.bit(captured);
+                break;
+            case PackedMove.KINGSIDE_CASTLING:
+            case PackedMove.QUEENSIDE_CASTLING:
+                final CastlingVector castling = PackedMove.castlingVector(move);
+                final int rookFrom = castling.rookFrom(from);
+                final int rookTo = castling.rookTo(from);
+                occupied[BitBoard.word(rookFrom)] &= ~BitBoard.bit(rookFrom);
+                occupied[BitBoard.word(rookTo)] |= BitBoard.bit(rookTo);
+                break;
+        }
+        return captured;
+    }
+
+    @Contract(pure = true)
+    private static boolean isOurs(@NotNull BitBoard board, @NotNull Color who, int square) {
+        return (board.colorWord(who, BitBoard.word(square)) & BitBoard.bit(square)) != 0;
+    }
+
+    /**
+     * Moves of a rook, bishop or queen standing on [from], in directions
+     * [firstDir] to [lastDir] inclusive
+     *
+     * @param bridged mask of the bridged moats, see [bridgedMask]
+     */
+    public static void sliderMoves(@NotNull BitBoard board, int from, @NotNull Color who,
+                                   int firstDir, int lastDir, int bridged,
+                                   @NotNull MoveList into) {
+        for (int dir = firstDir; dir <= lastDir; dir++) {
+            final int[] ray = ray(from, dir);
+            final int[] moats = rayMoats(from, dir);
+            for (int i = 0; i < ray.length; i++) {
+                if ((moats[i] & ~bridged) != 0) break;
+                final int to = ray[i];
+                if (board.isEmpty(to))
+                    into.add(PackedMove.of(from, to, PackedMove.CONTINUOUS, dir, i + 1, 0, false));
+                else {
+                    if (moats[i] == 0 && !isOurs(board, who, to))
+                        into.add(PackedMove.of(from, to, PackedMove.CONTINUOUS, dir, i + 1, 0, true));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves of a knight standing on [from]
+     *
+     * @param bridged mask of the bridged moats, see [bridgedMask]
+     */
+    public static void knightMoves(@NotNull BitBoard board, int from, @NotNull Color who,
+                                   int bridged, @NotNull MoveList into) {
+        final int[] jumps = knightJumps(from);
+        final int[] moats = knightMoats(from);
+        for (int i = 0; i < jumps.length; i++) {
+            if ((moats[i] & ~bridged) != 0) continue;
+            final int to = jumps[i];
+            if (board.isEmpty(to))
+                into.add(PackedMove.of(from, to, PackedMove.KNIGHT, 0, 0, 0, false));
+            else if (moats[i] == 0 && !isOurs(board, who, to))
+                into.add(PackedMove.of(from, to, PackedMove.KNIGHT, 0, 0, 0, true));
+        }
+    }
+
+    /**
+     * Moves of a king standing on [from], castling included
+     *
+     * @param bridged  mask of the bridged moats, see [bridgedMask]
+     * @param castling castling possibilities of [who]
+     */
+    public static void kingMoves(@NotNull BitBoard board, int from, @NotNull Color who,
+                                 int bridged, @NotNull CastlingPossibilities.ColorEntry castling,
+                                 @NotNull MoveList into) {
+        for (final int to : kingSteps(from)) {
+            final ContinuousVector step = kingStep(from, to);
+            assert step != null;
+            final int dir = step.direction();
+            final int moats = moatsAt(from, dir, 1);
+            if ((moats & ~bridged) != 0) continue;
+            if (board.isEmpty(to))
+                into.add(PackedMove.of(from, to, PackedMove.CONTINUOUS, dir, 1, 0, false));
+            else if (moats == 0 && !isOurs(board, who, to))
+                into.add(PackedMove.of(from, to, PackedMove.CONTINUOUS, dir, 1, 0, true));
+        }
+        if (from >= 24 || from % 8 != CastlingVector.kfm) return;
+        if (castling.k && board.isEmpty(from + 1) && board.isEmpty(from + 2))
+            into.add(PackedMove.of(from, from + 2, PackedMove.KINGSIDE_CASTLING, 0, 0, 0, false));
+        if (castling.q && board.isEmpty(from - 1) && board.isEmpty(from - 2)
+                && board.isEmpty(from - 3))
+            into.add(PackedMove.of(from, from - 2, PackedMove.QUEENSIDE_CASTLING, 0, 0, 0, false));
+    }
+
+    /**
+     * Moves of a pawn standing on [from]
+     *
+     * @param pawnCenter whether the pawn has already crossed the center
+     * @param ep         the EnPassantStore
+     */
+    public static void pawnMoves(@NotNull BitBoard board, int from, @NotNull Color who,
+                                 boolean pawnCenter, @NotNull EnPassantStore ep,
+                                 @NotNull MoveList into) {
+        final int walk = pawnWalks[from * 2 + (pawnCenter ? 1 : 0)];
+        if (walk >= 0 && board.isEmpty(walk)) {
+            final int dir = pawnCenter ? RANK_OUTWARD : RANK_INWARD;
+            if (pawnCenter && from / 24 == 1)
+                for (final int promotion : promotions)
+                    into.add(PackedMove.of(from, walk, PackedMove.PAWN_WALK, dir, 0, promotion, false));
+            else into.add(PackedMove.of(from, walk, PackedMove.PAWN_WALK, dir, 0, 0, false));
+        }
+        if (!pawnCenter && from / 24 == 1 && board.isEmpty(from + 24) && board.isEmpty(from + 48))
+            into.add(PackedMove.of(from, from + 48, PackedMove.PAWN_LONG_JUMP, 0, 0, 0, false));
+        for (int i = 0; i < 4; i++) {
+            if (pawnCapInward[i] == pawnCenter) continue;
+            final int to = pawnCaps[from * 4 + i];
+            if (to < 0) continue;
+            final int kind;
+            if (!board.isEmpty(to)) {
+                if (isOurs(board, who, to)) continue;
+                kind = PackedMove.PAWN_CAP;
+            } else if (to / 24 == 2 && isEnPassant(board, who, ep, to % 24))
+                kind = PackedMove.EN_PASSANT;
+            else continue;
+            if (!pawnCapInward[i] && from / 24 == 1)
+                for (final int promotion : promotions)
+                    into.add(PackedMove.of(from, to, kind, pawnCapDirs[i], 0, promotion, true));
+            else into.add(PackedMove.of(from, to, kind, pawnCapDirs[i], 0, 0, true));
+        }
+    }
+
+    /**
+     * Same as PawnCapVector.enPassant, for an empty square on rank 2
+     */
+    @Contract(pure = true)
+    private static boolean isEnPassant(@NotNull BitBoard board, @NotNull Color who,
+                                       @NotNull EnPassantStore ep, int file) {
+        final int jumped = board.sevenBit(PawnCapVector.enPassantCaptured(file));
+        if ((jumped & 7) != FigType.Pawn.index) return false;
+        final int color = (jumped >> 3) & 3;
+        return ep.last != null && ep.last == file && color == who.previous().index
+                || ep.prev != null && ep.prev == file && color == who.next().index;
+    }
+}
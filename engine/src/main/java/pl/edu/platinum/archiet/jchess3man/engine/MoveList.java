@@ -0,0 +1,125 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MoveList is a list of [PackedMove]s backed by an int array.
+ * It is meant to be allocated once per search ply and [clear]ed
+ * instead of being thrown away; it grows if it has to.
+ */
+public class MoveList {
+    private int[] moves;
+    private int size = 0;
+
+    /**
+     * more than a position in this game usually has
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity initial capacity
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    @Contract(pure = true)
+    public int size() {
+        return size;
+    }
+
+    @Contract(pure = true)
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int move) {
+        if (size == moves.length) moves = Arrays.copyOf(moves, size << 1);
+        moves[size++] = move;
+    }
+
+    @Contract(pure = true)
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        if (index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+        moves[index] = move;
+    }
+
+    /**
+     * @param size how many moves to keep, from the beginning
+     */
+    public void truncate(int size) {
+        if (size > this.size || size < 0) throw new IndexOutOfBoundsException(Integer.toString(size));
+        this.size = size;
+    }
+
+    public void swap(int i, int j) {
+        if (i >= size || j >= size) throw new IndexOutOfBoundsException();
+        final int t = moves[i];
+        moves[i] = moves[j];
+        moves[j] = t;
+    }
+
+    /**
+     * @param index index of the move to remove; the last move takes its place
+     */
+    public void removeUnordered(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+        moves[index] = moves[--size];
+    }
+
+    /**
+     * @param move move tested
+     * @return whether the list contains a move of the same [PackedMove.base]
+     */
+    @Contract(pure = true)
+    public boolean containsBase(int move) {
+        final int base = PackedMove.base(move);
+        for (int i = 0; i < size; i++)
+            if (PackedMove.base(moves[i]) == base) return true;
+        return false;
+    }
+
+    @NotNull
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * @param before the state the moves are made in
+     * @return the moves as DescMoves, for the public API
+     */
+    @NotNull
+    public List<DescMove> toDescMoves(@NotNull GameState before) {
+        final List<DescMove> ret = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) ret.add(PackedMove.toDescMove(moves[i], before));
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder ret = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) ret.append(", ");
+            ret.append(PackedMove.toString(moves[i]));
+        }
+        return ret.append(']').toString();
+    }
+}
@@ -40,6 +40,11 @@ public class MutableArrayBoardImpl implements MutableBoard {
         return b[rank][file];
     }
 
+    @Override
+    public int getCode(int rank, int file) {
+        return b[rank][file];
+    }
+
     @Override
     public @Nullable Fig get(int rank, int file) {
         return Fig.fromSevenBit(getByte(rank, file));
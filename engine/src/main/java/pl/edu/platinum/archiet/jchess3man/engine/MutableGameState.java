@@ -0,0 +1,461 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * MutableGameState is a game state that one moves on in place.
+ * [make] performs a move on its one and only board and pushes an undo record
+ * (the squares changed with what stood there, the captured fig, moats,
+ * castling, en passant, clocks and alive players); [unmake] pops it
+ * and restores everything as it was before the move.
+ * The Zobrist key is kept up to date along the way.
+ * That way a tree search needs a single board per thread instead of
+ * a copy of the board and a new GameState per node.
+ * It is not thread-safe; the undo records are reused between plies.
+ */
+public class MutableGameState {
+    /**
+     * the board, changed in place by [make] and [unmake]
+     */
+    public final BitBoardImpl board;
+    private MoatsState moatsState;
+    private Color movesNext;
+    private CastlingPossibilities castlingPossibilities;
+    private EnPassantStore enPassantStore;
+    private int halfMoveClock;
+    private int fullMoveNumber;
+    private PlayersAlive alivePlayers;
+    private long zobrist;
+
+    private final ArrayList<Undo> undos = new ArrayList<>();
+    private int depth = 0;
+    private final Journal journal = new Journal();
+    /**
+     * reused by MoveGenerator for the legal moves and by [makeLegal] for death
+     */
+    final MoveGenerator.Legality legality = new MoveGenerator.Legality();
+    private final MoveList deathMoves = new MoveList(32);
+
+    /**
+     * Undo record of a single [make]
+     */
+    static final class Undo {
+        /**
+         * castling touches four squares, no move touches more;
+         * the arrays grow only for a Journal.clearAll
+         */
+        static final int MAX_TOUCHED = 8;
+        int[] squares = new int[MAX_TOUCHED];
+        int[] codes = new int[MAX_TOUCHED];
+        int touched;
+        int captured;
+        MoatsState moatsState;
+        Color movesNext;
+        CastlingPossibilities castlingPossibilities;
+        EnPassantStore enPassantStore;
+        int halfMoveClock;
+        int fullMoveNumber;
+        PlayersAlive alivePlayers;
+        long zobrist;
+    }
+
+    /**
+     * MutableBoard that records what stood on every square before
+     * it was first changed within the current [make]
+     */
+    private final class Journal implements MutableBoard {
+        Undo undo;
+
+        @Override
+        public void put(int rank, int file, @Nullable Fig fig) {
+            put(BitBoard.square(rank, file), Fig.toSevenBitInt(fig));
+        }
+
+        void put(int square, int code) {
+            int i = 0;
+            while (i < undo.touched && undo.squares[i] != square) i++;
+            if (i == undo.touched) {
+                if (i == undo.squares.length) {
+                    undo.squares = Arrays.copyOf(undo.squares, 2 * i);
+                    undo.codes = Arrays.copyOf(undo.codes, 2 * i);
+                }
+                undo.squares[i] = square;
+                undo.codes[i] = board.sevenBit(square);
+                undo.touched++;
+            }
+            zobrist ^= Zobrist.piece(square, board.sevenBit(square)) ^ Zobrist.piece(square, code);
+            board.put(square, code);
+        }
+
+        @Override
+        public void put(@NotNull Pos pos, @Nullable Fig fig) {
+            put(pos.rank, pos.file, fig);
+        }
+
+        @Override
+        public int getCode(int rank, int file) {
+            return board.getCode(rank, file);
+        }
+
+        @Override
+        public @Nullable Fig get(int rank, int file) {
+            return board.get(rank, file);
+        }
+
+        @Override
+        public @Nullable Fig get(@NotNull Pos pos) {
+            return board.get(pos);
+        }
+
+        @Override
+        public boolean isEmpty(int rank, int file) {
+            return board.isEmpty(rank, file);
+        }
+
+        /**
+         * Empties every occupied square one by one, so that unmake puts them back
+         */
+        @Override
+        public void clearAll() {
+            for (int square = 0; square < BitBoard.SQUARES; square++)
+                if (board.sevenBit(square) != 0) put(square / 24, square % 24, null);
+        }
+
+        @NotNull
+        @Override
+        public MutableBoard copy() {
+            return board.mutableCopy();
+        }
+    }
+
+    /**
+     * @param source the state to start from; its board is copied
+     */
+    public MutableGameState(@NotNull GameState source) {
+        board = new BitBoardImpl();
+        reset(source);
+    }
+
+    /**
+     * Starts over from another state, keeping the board and the undo records
+     * allocated, as when replaying many games one after another
+     *
+     * @param source the state to start from; its board is copied
+     */
+    public void reset(@NotNull GameState source) {
+        board.fill(source.board);
+        depth = 0;
+        moatsState = source.moatsState;
+        movesNext = source.movesNext;
+        castlingPossibilities = source.castlingPossibilities;
+        enPassantStore = source.enPassantStore;
+        halfMoveClock = source.halfMoveClock;
+        fullMoveNumber = source.fullMoveNumber;
+        alivePlayers = source.alivePlayers;
+        zobrist = source.zobrist();
+    }
+
+    public MoatsState moatsState() {
+        return moatsState;
+    }
+
+    public Color movesNext() {
+        return movesNext;
+    }
+
+    public CastlingPossibilities castlingPossibilities() {
+        return castlingPossibilities;
+    }
+
+    public EnPassantStore enPassantStore() {
+        return enPassantStore;
+    }
+
+    public int halfMoveClock() {
+        return halfMoveClock;
+    }
+
+    public int fullMoveNumber() {
+        return fullMoveNumber;
+    }
+
+    public PlayersAlive alivePlayers() {
+        return alivePlayers;
+    }
+
+    /**
+     * @return the Zobrist key of the current state, see [Zobrist]
+     */
+    public long zobrist() {
+        return zobrist;
+    }
+
+    /**
+     * @return how many moves are there to [unmake]
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @return the seven-bit code of the fig captured by the last move, 0 if none
+     * @throws IllegalStateException if there is no move to unmake
+     */
+    public int lastCaptured() {
+        if (depth == 0) throw new IllegalStateException();
+        return undos.get(depth - 1).captured;
+    }
+
+    /**
+     * @return a GameState sharing [board] with this one; it is only valid
+     * until the next [make] or [unmake]. It is transient: never keep it
+     * as a key of a hash map or set, nor keep it for comparing later,
+     * for its cached zobrist and its content go stale with the board;
+     * use toGameState for that
+     */
+    @NotNull
+    public GameState view() {
+        return new GameState(board, moatsState, movesNext, castlingPossibilities,
+                enPassantStore, halfMoveClock, fullMoveNumber, alivePlayers, zobrist);
+    }
+
+    /**
+     * @return a GameState with a copy of the board, independent of this one
+     */
+    @NotNull
+    public GameState toGameState() {
+        return new GameState(board.mutableCopy(), moatsState, movesNext,
+                castlingPossibilities, enPassantStore, halfMoveClock,
+                fullMoveNumber, alivePlayers, zobrist);
+    }
+
+    @NotNull
+    private Undo push() {
+        if (depth == undos.size()) undos.add(new Undo());
+        final Undo undo = undos.get(depth++);
+        undo.touched = 0;
+        undo.moatsState = moatsState;
+        undo.movesNext = movesNext;
+        undo.castlingPossibilities = castlingPossibilities;
+        undo.enPassantStore = enPassantStore;
+        undo.halfMoveClock = halfMoveClock;
+        undo.fullMoveNumber = fullMoveNumber;
+        undo.alivePlayers = alivePlayers;
+        undo.zobrist = zobrist;
+        return undo;
+    }
+
+    /**
+     * Performs the move in place, as VecMove.afterWOEvaluatingDeath would,
+     * without evaluating death nor checking check.
+     * If it throws, nothing is changed.
+     *
+     * @param boundVec the move
+     */
+    public void makeWOEvaluatingDeath(@NotNull BoundVec boundVec) throws
+            NeedsToBePromotedException, ImpossibleMoveException, CheckInitiatedThruMoatException {
+        final VecMove.Outcome outcome = new VecMove.Outcome(true);
+        tryMakeWOEvaluatingDeath(boundVec, outcome);
+        outcome.rethrow();
+    }
+
+    /**
+     * Exception-free counterpart of makeWOEvaluatingDeath.
+     * Unless it returns LEGAL, nothing is changed.
+     *
+     * @param boundVec the move
+     * @param into     where to record the outcome, or null; no state is put there
+     * @return LEGAL, IMPOSSIBLE, NEEDS_PROMOTION or CHECK_INITIATED_THRU_MOAT
+     */
+    public int tryMakeWOEvaluatingDeath(@NotNull BoundVec boundVec, @Nullable VecMove.Outcome into) {
+        final GameState before = view();
+        final VecMove move = new VecMove(boundVec, before);
+        final int status = move.status(into);
+        if (status != VecMove.LEGAL) return status;
+        final Color who = move.who();
+        final Fig captured = move.toSquare();
+        final boolean pawn = move.what().type == FigType.Pawn;
+        final CastlingPossibilities afterCastling = move.afterCastling();
+        final EnPassantStore afterEnPassant = move.afterEnPassantStore();
+        final boolean thruMoats = boundVec.moats().iterator().hasNext();
+        final Pos previousKing = thruMoats ? board._whereIsKing(who.previous()) : null;
+        final Pos nextKing = thruMoats ? board._whereIsKing(who.next()) : null;
+        final Undo undo = push();
+        undo.captured = Fig.toSevenBitInt(captured);
+        journal.undo = undo;
+        try {
+            boundVec.vec.manipulateMutableAfterBoard(
+                    journal, boundVec.from, before.enPassantStore, boundVec.to);
+        } catch (VectorAdditionFailedException e) {
+            e.printStackTrace();
+            throw new AssertionError(e);
+        }
+        if (thruMoats && (isThreat(previousKing, boundVec.to, afterEnPassant)
+                || isThreat(nextKing, boundVec.to, afterEnPassant))) {
+            unmake();
+            return into == null ? VecMove.CHECK_INITIATED_THRU_MOAT
+                    : into.fail(VecMove.CHECK_INITIATED_THRU_MOAT, null);
+        }
+        moatsState = move.afterMoatsState(board);
+        movesNext = alivePlayers.get(movesNext.next()) ? movesNext.next() : movesNext.previous();
+        castlingPossibilities = afterCastling;
+        enPassantStore = afterEnPassant;
+        halfMoveClock = pawn || captured != null ? 0 : halfMoveClock + 1;
+        fullMoveNumber++;
+        zobrist ^= Zobrist.header(undo.moatsState, undo.movesNext,
+                undo.castlingPossibilities, undo.enPassantStore, alivePlayers)
+                ^ Zobrist.header(moatsState, movesNext,
+                castlingPossibilities, enPassantStore, alivePlayers);
+        return VecMove.LEGAL;
+    }
+
+    @Contract(pure = true)
+    private boolean isThreat(@Nullable Pos king, @NotNull Pos from, EnPassantStore ep) {
+        return king != null && board.isThereAThreat(king, from, alivePlayers, ep);
+    }
+
+    /**
+     * Performs the move in place, as VecMove.after would,
+     * i.e. also checking whether we are not in check afterwards
+     * and evaluating death. If it throws, nothing is changed.
+     *
+     * @param boundVec the move
+     */
+    public void make(@NotNull BoundVec boundVec) throws
+            NeedsToBePromotedException, ImpossibleMoveException, CheckInitiatedThruMoatException {
+        final VecMove.Outcome outcome = new VecMove.Outcome(true);
+        tryMake(boundVec, outcome);
+        outcome.rethrow();
+    }
+
+    /**
+     * Exception-free counterpart of make.
+     * Unless it returns LEGAL, nothing is changed.
+     *
+     * @param boundVec the move
+     * @param into     where to record the outcome, or null; no state is put there
+     * @return one of the VecMove status codes
+     */
+    public int tryMake(@NotNull BoundVec boundVec, @Nullable VecMove.Outcome into) {
+        final Color who = movesNext;
+        final int status = tryMakeWOEvaluatingDeath(boundVec, into);
+        if (status != VecMove.LEGAL) return status;
+        if (into != null && into.diagnostic) {
+            if (VecMove.checkStatus(view(), who, into) != VecMove.LEGAL) {
+                unmake();
+                return VecMove.WE_IN_CHECK;
+            }
+        } else if (isInCheck(who)) {
+            unmake();
+            return into == null ? VecMove.WE_IN_CHECK : into.fail(VecMove.WE_IN_CHECK, null);
+        }
+        final PlayersAlive afterDeath = afterDeath();
+        zobrist ^= Zobrist.alive(alivePlayers) ^ Zobrist.alive(afterDeath);
+        alivePlayers = afterDeath;
+        return VecMove.LEGAL;
+    }
+
+    /**
+     * Performs a move MoveGenerator.generateLegal gave for the current state,
+     * as tryMake would, but straight on [board], without checking it again
+     * and without allocating anything: no BoundVec, no VecMove, no view.
+     * Only death is evaluated after the move, with [Attacks] and
+     * MoveGenerator.hasLegalMove on the board.
+     *
+     * @param move the PackedMove, legal in the current state
+     */
+    public void makeLegal(int move) {
+        final int from = PackedMove.from(move);
+        final int to = PackedMove.to(move);
+        final int kind = PackedMove.kind(move);
+        final int code = board.sevenBit(from);
+        final Color who = movesNext;
+        assert ((code >> 3) & 7) == who.index : PackedMove.toString(move);
+        final int captured = board.sevenBit(to);
+        final Undo undo = push();
+        undo.captured = captured;
+        journal.undo = undo;
+        final boolean pawn = PackedMove.isPawnMove(move);
+        journal.put(from, 0);
+        journal.put(to, pawn ? PawnVector.afterPawnCode(code,
+                from / 24 == 5 && to / 24 == 5, PackedMove.promotionIndex(move)) : code);
+        if (kind == PackedMove.EN_PASSANT)
+            journal.put(PawnCapVector.enPassantCaptured(to), 0);
+        else if (PackedMove.isCastling(move)) {
+            final CastlingVector castling = PackedMove.castlingVector(move);
+            journal.put(castling.rookTo(from), board.sevenBit(castling.rookFrom(from)));
+            journal.put(castling.rookFrom(from), 0);
+        } else if (!pawn || PackedMove.promotionIndex(move) != 0)
+            moatsState = moatsState.bridgedWhereLeft(board, alivePlayers);
+        movesNext = alivePlayers.get(who.next()) ? who.next() : who.previous();
+        castlingPossibilities =
+                castlingPossibilities.afterMove(who, FigType.fromIndex(code & 7), from, to);
+        enPassantStore = kind == PackedMove.PAWN_LONG_JUMP
+                ? enPassantStore.appeared(from % 24) : enPassantStore.nothing();
+        halfMoveClock = (code & 7) == FigType.Pawn.index || captured != 0 ? 0 : halfMoveClock + 1;
+        fullMoveNumber++;
+        final PlayersAlive afterDeath = afterDeath();
+        zobrist ^= Zobrist.header(undo.moatsState, undo.movesNext,
+                undo.castlingPossibilities, undo.enPassantStore, undo.alivePlayers)
+                ^ Zobrist.header(moatsState, movesNext,
+                castlingPossibilities, enPassantStore, afterDeath);
+        alivePlayers = afterDeath;
+    }
+
+    /**
+     * As GameState.isInCheck, on [board]
+     */
+    @Contract(pure = true)
+    private boolean isInCheck(@NotNull Color who) {
+        final int king = board.kingSquare(who);
+        return king >= 0 && alivePlayers.get(who) && Attacks.isAttacked(board, king, who, alivePlayers);
+    }
+
+    /**
+     * As GameState.evalDeath, on [board]: from the player to move on,
+     * the players with no king die, and so do the ones with no legal move
+     * until the first one who has one
+     */
+    @NotNull
+    private PlayersAlive afterDeath() {
+        boolean testCheckmate = true;
+        Color player = movesNext;
+        PlayersAlive pa = alivePlayers;
+        for (int i = 0; i < 3; i++) {
+            if (pa.get(player))
+                if (board.kingSquare(player) < 0) pa = pa.die(player);
+                else if (testCheckmate)
+                    if (MoveGenerator.hasLegalMove(board, player, moatsState, castlingPossibilities,
+                            enPassantStore, pa, legality, deathMoves))
+                        testCheckmate = false;
+                    else pa = pa.die(player);
+            player = player.next();
+        }
+        return pa;
+    }
+
+    /**
+     * Takes back the last move made
+     *
+     * @throws IllegalStateException if there is no move to unmake
+     */
+    public void unmake() {
+        if (depth == 0) throw new IllegalStateException();
+        final Undo undo = undos.get(--depth);
+        for (int i = undo.touched - 1; i >= 0; i--)
+            board.put(undo.squares[i], undo.codes[i]);
+        moatsState = undo.moatsState;
+        movesNext = undo.movesNext;
+        castlingPossibilities = undo.castlingPossibilities;
+        enPassantStore = undo.enPassantStore;
+        halfMoveClock = undo.halfMoveClock;
+        fullMoveNumber = undo.fullMoveNumber;
+        alivePlayers = undo.alivePlayers;
+        zobrist = undo.zobrist;
+    }
+}
@@ -60,7 +60,7 @@ public class MutableHashMapBoardImpl implements MutableBoard {
     @NotNull
     @Override
     public Optional<Pos> whereIsKing(@NotNull Color who) {
-        return whereIsSuchPiece(new Fig.King(who));
+        return whereIsSuchPiece(Fig.subClass(FigType.King, who));
     }
 
     @Override
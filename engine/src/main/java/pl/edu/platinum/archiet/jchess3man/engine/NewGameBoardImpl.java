@@ -28,14 +28,13 @@ public class NewGameBoardImpl implements ImmutableBoard {
     }
 
     /**
-     * @return filled MutableHashMapBoardImpl
+     * @return filled BitBoardImpl, so that the games started from here
+     * get their checks looked up in Attacks
      */
     @NotNull
     @Override
     public MutableBoard mutableCopy() {
-        MutableBoard mut = new MutableHashMapBoardImpl();
-        mut.fill(c);
-        return mut;
+        return new BitBoardImpl(c);
     }
 
     @Override
@@ -0,0 +1,209 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * PackedHeader encodes everything in a GameState but the board as a single
+ * long, so that headers can be compared, hashed and stored without looking
+ * at five objects and two ints. Bits, from the lowest:
+ * 0–2 MoatsState.toInt, 3–4 movesNext index (0 if null),
+ * 5–10 CastlingPossibilities.toInt, 11–15 en passant prev file (24 if none),
+ * 16–20 en passant last file (24 if none), 21–23 PlayersAlive.toInt,
+ * 24–43 halfMoveClock, 44–63 fullMoveNumber.
+ * The lowest 24 bits ([position]) are what Zobrist keys, i.e. all but the clocks.
+ * Decoding returns the shared instances of MoatsState, CastlingPossibilities,
+ * EnPassantStore and PlayersAlive, so it does not allocate.
+ */
+public final class PackedHeader {
+    private PackedHeader() {
+    }
+
+    private static final int MOVES_NEXT_SHIFT = 3;
+    private static final int CASTLING_SHIFT = 5;
+    private static final int EP_PREV_SHIFT = 11;
+    private static final int EP_LAST_SHIFT = 16;
+    private static final int ALIVE_SHIFT = 21;
+    private static final int HALF_MOVE_SHIFT = 24;
+    private static final int FULL_MOVE_SHIFT = 44;
+    /**
+     * file value standing for no en passant entry
+     */
+    private static final int NO_FILE = 24;
+    private static final long POSITION_MASK = (1L << HALF_MOVE_SHIFT) - 1;
+    /**
+     * each clock must be within 0..MAX_CLOCK
+     */
+    public static final int MAX_CLOCK = (1 << 20) - 1;
+
+    /**
+     * @return the header without clocks, see [position]
+     */
+    @Contract(pure = true)
+    public static long of(@NotNull MoatsState moatsState,
+                          @Nullable Color movesNext,
+                          @NotNull CastlingPossibilities castlingPossibilities,
+                          @NotNull EnPassantStore enPassantStore,
+                          @NotNull PlayersAlive alivePlayers) {
+        return moatsState.toInt()
+                | (movesNext == null ? 0 : movesNext.index) << MOVES_NEXT_SHIFT
+                | castlingPossibilities.toInt() << CASTLING_SHIFT
+                | file(enPassantStore.prev) << EP_PREV_SHIFT
+                | file(enPassantStore.last) << EP_LAST_SHIFT
+                | alivePlayers.toInt() << ALIVE_SHIFT;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a clock is not within 0..MAX_CLOCK
+     */
+    @Contract(pure = true)
+    public static long of(@NotNull MoatsState moatsState,
+                          @Nullable Color movesNext,
+                          @NotNull CastlingPossibilities castlingPossibilities,
+                          @NotNull EnPassantStore enPassantStore,
+                          int halfMoveClock,
+                          int fullMoveNumber,
+                          @NotNull PlayersAlive alivePlayers) {
+        return withClocks(of(moatsState, movesNext, castlingPossibilities,
+                enPassantStore, alivePlayers), halfMoveClock, fullMoveNumber);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a clock is not within 0..MAX_CLOCK
+     */
+    @Contract(pure = true)
+    public static long of(@NotNull GameState state) {
+        return of(state.moatsState, state.movesNext, state.castlingPossibilities,
+                state.enPassantStore, state.halfMoveClock, state.fullMoveNumber,
+                state.alivePlayers);
+    }
+
+    private static int file(@Nullable Integer file) {
+        if (file == null) return NO_FILE;
+        if (file < 0 || file >= NO_FILE) throw new IllegalArgumentException(file.toString());
+        return file;
+    }
+
+    @Contract(pure = true)
+    @Nullable
+    private static Integer file(int packed) {
+        return packed == NO_FILE ? null : packed;
+    }
+
+    /**
+     * @return the header with its clocks cleared, the part that Zobrist keys
+     */
+    @Contract(pure = true)
+    public static long position(long header) {
+        return header & POSITION_MASK;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public static MoatsState moatsState(long header) {
+        return MoatsState.of((int) header & 0b111);
+    }
+
+    @Contract(pure = true)
+    @Nullable
+    public static Color movesNext(long header) {
+        final int index = (int) (header >>> MOVES_NEXT_SHIFT) & 0b11;
+        return index == 0 ? null : Color.byIndex(index);
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public static CastlingPossibilities castlingPossibilities(long header) {
+        return CastlingPossibilities.of((int) (header >>> CASTLING_SHIFT) & 0b111111);
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public static EnPassantStore enPassantStore(long header) {
+        return EnPassantStore.of(
+                file((int) (header >>> EP_PREV_SHIFT) & 0b11111),
+                file((int) (header >>> EP_LAST_SHIFT) & 0b11111));
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public static PlayersAlive alivePlayers(long header) {
+        return PlayersAlive.of((int) (header >>> ALIVE_SHIFT) & 0b111);
+    }
+
+    @Contract(pure = true)
+    public static int halfMoveClock(long header) {
+        return (int) (header >>> HALF_MOVE_SHIFT) & MAX_CLOCK;
+    }
+
+    @Contract(pure = true)
+    public static int fullMoveNumber(long header) {
+        return (int) (header >>> FULL_MOVE_SHIFT) & MAX_CLOCK;
+    }
+
+    @Contract(pure = true)
+    public static long withMoatsState(long header, @NotNull MoatsState moatsState) {
+        return header & ~0b111L | moatsState.toInt();
+    }
+
+    @Contract(pure = true)
+    public static long withMovesNext(long header, @Nullable Color movesNext) {
+        return header & ~(0b11L << MOVES_NEXT_SHIFT)
+                | (long) (movesNext == null ? 0 : movesNext.index) << MOVES_NEXT_SHIFT;
+    }
+
+    @Contract(pure = true)
+    public static long withCastlingPossibilities(long header,
+                                                 @NotNull CastlingPossibilities castlingPossibilities) {
+        return header & ~(0b111111L << CASTLING_SHIFT)
+                | (long) castlingPossibilities.toInt() << CASTLING_SHIFT;
+    }
+
+    @Contract(pure = true)
+    public static long withEnPassantStore(long header, @NotNull EnPassantStore enPassantStore) {
+        return header & ~(0b11111_11111L << EP_PREV_SHIFT)
+                | (long) file(enPassantStore.prev) << EP_PREV_SHIFT
+                | (long) file(enPassantStore.last) << EP_LAST_SHIFT;
+    }
+
+    @Contract(pure = true)
+    public static long withAlivePlayers(long header, @NotNull PlayersAlive alivePlayers) {
+        return header & ~(0b111L << ALIVE_SHIFT) | (long) alivePlayers.toInt() << ALIVE_SHIFT;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a clock is not within 0..MAX_CLOCK
+     */
+    @Contract(pure = true)
+    public static long withClocks(long header, int halfMoveClock, int fullMoveNumber) {
+        if (halfMoveClock < 0 || halfMoveClock > MAX_CLOCK)
+            throw new IllegalArgumentException("halfMoveClock " + halfMoveClock);
+        if (fullMoveNumber < 0 || fullMoveNumber > MAX_CLOCK)
+            throw new IllegalArgumentException("fullMoveNumber " + fullMoveNumber);
+        return position(header)
+                | (long) halfMoveClock << HALF_MOVE_SHIFT
+                | (long) fullMoveNumber << FULL_MOVE_SHIFT;
+    }
+
+    /**
+     * @return a new GameState of the given board and the decoded header
+     */
+    @NotNull
+    public static GameState toGameState(@NotNull Board board, long header) {
+        return new GameState(board, moatsState(header), movesNext(header),
+                castlingPossibilities(header), enPassantStore(header),
+                halfMoveClock(header), fullMoveNumber(header), alivePlayers(header));
+    }
+
+    @NotNull
+    public static String toString(long header) {
+        return "moats " + moatsState(header).toInt()
+                + " movesNext " + movesNext(header)
+                + " castling " + Integer.toBinaryString(castlingPossibilities(header).toInt())
+                + " ep " + enPassantStore(header).legacyHex()
+                + " half " + halfMoveClock(header)
+                + " full " + fullMoveNumber(header)
+                + " alive " + alivePlayers(header).toInt();
+    }
+}
@@ -0,0 +1,261 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * PackedMove encodes a move as a single non-negative int, so that search
+ * and move generation need not allocate a DescMove, its Poses, a BoundVec
+ * and a Vector for every candidate. Bits, from the lowest:
+ * 0–7 from square, 8–15 to square, 16–18 promotion FigType index (0 if none),
+ * 19–21 kind, 22–24 direction (as in AttackTables; continuous and pawn one-step
+ * kinds only), 25–29 abs (continuous kind only), 30 capture flag.
+ * The lowest 19 bits ([base]) identify a move within a position.
+ * There are static methods only; [vector], [toBoundVec] and [toDescMove]
+ * convert back for the public API.
+ */
+public final class PackedMove {
+    private PackedMove() {
+    }
+
+    /**
+     * rook, bishop, queen and king moves other than castling
+     */
+    public static final int CONTINUOUS = 0;
+    public static final int KNIGHT = 1;
+    public static final int PAWN_WALK = 2;
+    public static final int PAWN_LONG_JUMP = 3;
+    /**
+     * pawn capture, other than en passant
+     */
+    public static final int PAWN_CAP = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int KINGSIDE_CASTLING = 6;
+    public static final int QUEENSIDE_CASTLING = 7;
+
+    /**
+     * no move; no encoded move is ever equal to it, as from and to differ
+     */
+    public static final int NONE = 0;
+
+    private static final int TO_SHIFT = 8;
+    private static final int PROM_SHIFT = 16;
+    private static final int KIND_SHIFT = 19;
+    private static final int DIR_SHIFT = 22;
+    private static final int ABS_SHIFT = 25;
+    private static final int CAPTURE_BIT = 1 << 30;
+    private static final int BASE_MASK = (1 << KIND_SHIFT) - 1;
+
+    /**
+     * @param from      from square index
+     * @param to        to square index
+     * @param kind      one of the kind constants
+     * @param dir       direction, 0 if not applicable
+     * @param abs       abs, 0 if not applicable
+     * @param promotion promotion FigType index, 0 if none
+     * @param capture   whether something is captured
+     * @return the move
+     */
+    @Contract(pure = true)
+    public static int of(int from, int to, int kind, int dir, int abs, int promotion, boolean capture) {
+        return from | (to << TO_SHIFT) | (promotion << PROM_SHIFT) | (kind << KIND_SHIFT)
+                | (dir << DIR_SHIFT) | (abs << ABS_SHIFT) | (capture ? CAPTURE_BIT : 0);
+    }
+
+    /**
+     * @return a CONTINUOUS move from [from] in direction [dir] by [abs] steps
+     */
+    @Contract(pure = true)
+    public static int continuous(int from, int dir, int abs, boolean capture) {
+        return of(from, AttackTables.ray(from, dir)[abs - 1], CONTINUOUS, dir, abs, 0, capture);
+    }
+
+    @Contract(pure = true)
+    public static int from(int move) {
+        return move & 0xFF;
+    }
+
+    @Contract(pure = true)
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @return promotion FigType index, 0 if none
+     */
+    @Contract(pure = true)
+    public static int promotionIndex(int move) {
+        return (move >>> PROM_SHIFT) & 7;
+    }
+
+    @Contract(pure = true)
+    public static @Nullable FigType promotion(int move) {
+        return FigType.fromIndex(promotionIndex(move));
+    }
+
+    @Contract(pure = true)
+    public static int kind(int move) {
+        return (move >>> KIND_SHIFT) & 7;
+    }
+
+    @Contract(pure = true)
+    public static int direction(int move) {
+        return (move >>> DIR_SHIFT) & 7;
+    }
+
+    @Contract(pure = true)
+    public static int abs(int move) {
+        return (move >>> ABS_SHIFT) & 0x1F;
+    }
+
+    @Contract(pure = true)
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_BIT) != 0;
+    }
+
+    @Contract(pure = true)
+    public static boolean isEnPassant(int move) {
+        return kind(move) == EN_PASSANT;
+    }
+
+    @Contract(pure = true)
+    public static boolean isCastling(int move) {
+        return kind(move) >= KINGSIDE_CASTLING;
+    }
+
+    @Contract(pure = true)
+    public static boolean isPawnMove(int move) {
+        final int kind = kind(move);
+        return kind >= PAWN_WALK && kind <= EN_PASSANT;
+    }
+
+    /**
+     * @return from, to and promotion only, i.e. the lowest 19 bits
+     */
+    @Contract(pure = true)
+    public static int base(int move) {
+        return move & BASE_MASK;
+    }
+
+    /**
+     * @return the same move promoting to [promotion] instead
+     */
+    @Contract(pure = true)
+    public static int withPromotion(int move, @NotNull FigType promotion) {
+        return (move & ~(7 << PROM_SHIFT)) | (promotion.index << PROM_SHIFT);
+    }
+
+    /**
+     * @param boundVec the move
+     * @param before   the board before the move, to tell captures
+     * @return the move encoded
+     */
+    public static int of(@NotNull BoundVec boundVec, @NotNull Board before) {
+        final Vector vec = boundVec.vec;
+        final int from = boundVec.from.toInt();
+        final int to = boundVec.to.toInt();
+        final boolean capture = !before.isEmpty(boundVec.to);
+        final int promotion = vec instanceof PawnPromVector
+                ? FigType.toInt(((PawnPromVector) vec).promTo()) : 0;
+        if (vec instanceof PawnCapVector)
+            return of(from, to, capture ? PAWN_CAP : EN_PASSANT,
+                    ((PawnCapVector) vec).direction(), 0, promotion, true);
+        if (vec instanceof PawnWalkVector)
+            return of(from, to, PAWN_WALK, ((PawnWalkVector) vec).direction(), 0, promotion, capture);
+        if (vec instanceof PawnLongJumpVector)
+            return of(from, to, PAWN_LONG_JUMP, 0, 0, 0, capture);
+        if (vec instanceof KingsideCastlingVector)
+            return of(from, to, KINGSIDE_CASTLING, 0, 0, 0, false);
+        if (vec instanceof QueensideCastlingVector)
+            return of(from, to, QUEENSIDE_CASTLING, 0, 0, 0, false);
+        if (vec instanceof KnightVector)
+            return of(from, to, KNIGHT, 0, 0, 0, capture);
+        if (vec instanceof ContinuousVector)
+            return of(from, to, CONTINUOUS, ((ContinuousVector) vec).direction(),
+                    ((ContinuousVector) vec).abs, 0, capture);
+        throw new IllegalArgumentException(vec.toString());
+    }
+
+    /**
+     * @return the CastlingVector of a castling move, without allocating
+     */
+    @NotNull
+    public static CastlingVector castlingVector(int move) {
+        assert isCastling(move) : toString(move);
+        return kind(move) == KINGSIDE_CASTLING ? KingsideCastlingVector.c : QueensideCastlingVector.c;
+    }
+
+    /**
+     * @return the Vector of the move
+     */
+    @NotNull
+    public static Vector vector(int move) {
+        final Vector ret;
+        switch (kind(move)) {
+            case CONTINUOUS:
+                ret = AttackTables.vector(direction(move), abs(move));
+                break;
+            case KNIGHT:
+                ret = AttackTables.knightVector(from(move), to(move));
+                break;
+            case PAWN_WALK:
+                ret = new PawnWalkVector(direction(move) == AttackTables.RANK_INWARD);
+                break;
+            case PAWN_LONG_JUMP:
+                ret = new PawnLongJumpVector();
+                break;
+            case PAWN_CAP:
+            case EN_PASSANT:
+                final int dir = direction(move);
+                ret = new PawnCapVector(
+                        dir == AttackTables.DIAG_IN_PLUS || dir == AttackTables.DIAG_IN_MINUS,
+                        dir == AttackTables.DIAG_IN_PLUS || dir == AttackTables.DIAG_OUT_PLUS);
+                break;
+            case KINGSIDE_CASTLING:
+            case QUEENSIDE_CASTLING:
+                ret = castlingVector(move);
+                break;
+            default:
+                ret = null;
+        }
+        if (ret == null) throw new IllegalArgumentException(toString(move));
+        final FigType promotion = promotion(move);
+        return promotion == null ? ret
+                : (Vector) PawnPromVector.fromPawnVector((PawnVector) ret, promotion);
+    }
+
+    /**
+     * @return the BoundVec of the move
+     * @throws NeedsToBePromotedException if a pawn reaches the last rank without promotion
+     */
+    @NotNull
+    public static BoundVec toBoundVec(int move) throws NeedsToBePromotedException {
+        try {
+            return new BoundVec(vector(move), AttackTables.pos(from(move)));
+        } catch (VectorAdditionFailedException e) {
+            throw new IllegalArgumentException(toString(move), e);
+        }
+    }
+
+    /**
+     * @param move   the move
+     * @param before the state the move is made in
+     * @return DescMove of the move
+     */
+    @NotNull
+    public static DescMove toDescMove(int move, @NotNull GameState before) {
+        return new DescMove(AttackTables.pos(from(move)), AttackTables.pos(to(move)),
+                before, promotion(move));
+    }
+
+    /**
+     * @return string representation like [1,3]→[3,3]:3Þþt0
+     */
+    @NotNull
+    public static String toString(int move) {
+        return AttackTables.pos(from(move)).toString() + "→" + AttackTables.pos(to(move)).toString()
+                + ":" + kind(move) + (isCapture(move) ? "x" : "")
+                + "Þþ" + FigType.string(promotion(move));
+    }
+}
@@ -33,6 +33,11 @@ public class PawnCapVector extends DiagonalVector implements PawnVector {
         return inward && fromRank == 5;
     }
 
+    @Override
+    public Fig afterPawn(Fig pawn, Pos from) {
+        return Fig.fromSevenBit(PawnVector.afterPawnCode(pawn.sevenBitInt(), thruCenter(from.rank), 0));
+    }
+
     public Iterable<Color> moats(int ignored) {
         return moats();
     }
@@ -112,6 +117,42 @@ public class PawnCapVector extends DiagonalVector implements PawnVector {
         return new PawnCapVector(!inward, !plusFile);
     }
 
+    /**
+     * Whether a pawn of color [col] capturing onto the empty square [to]
+     * captures en passant: [to] is on rank 2, on a file in [ep], and behind it
+     * stands a pawn of the player who made that long jump, i.e. [col].previous()
+     * for ep.last or [col].next() for ep.prev
+     *
+     * @param b   the board before the move
+     * @param col color of the capturing pawn
+     * @param ep  the EnPassantStore before the move
+     * @param to  destination of the capture
+     * @return whether it is an en passant capture
+     */
+    @Contract(pure = true)
+    public static boolean enPassant(Board b, Color col, EnPassantStore ep, Pos to) {
+        if (to.rank != 2 || !b.isEmpty(to)) return false;
+        final Fig jumped = b.get(enPassantCaptured(to));
+        if (jumped == null || jumped.type != FigType.Pawn) return false;
+        return ep.matchLast(to) && jumped.color == col.previous()
+                || ep.matchPrev(to) && jumped.color == col.next();
+    }
+
+    /**
+     * @param to square index an en passant capture lands on
+     * @return square index of the pawn it captures, right behind [to]
+     */
+    @Contract(pure = true)
+    public static int enPassantCaptured(int to) {
+        return 3 * 24 + to % 24;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public static Pos enPassantCaptured(@NotNull Pos to) {
+        return AttackTables.pos(enPassantCaptured(to.toInt()));
+    }
+
     @Override
     public Iterable<Pos> emptiesFrom(Pos ignored) {
         return Collections.emptyList();
@@ -121,29 +162,18 @@ public class PawnCapVector extends DiagonalVector implements PawnVector {
     public ImmutableBoard manipulateImmutableAfterBoard(ImmutableBoard b,
                                                         Pos from, EnPassantStore ep, Pos to)
             throws VectorAdditionFailedException, NullPointerException {
-        Color col = b.get(from).color;
         //emptying if enpassant
-        //if(before.enPassantStore.matchLast(boundVec.to))
-        //    return !before.board.get(boundVec.to)
-        //            .color.equals(who().previous());
-        if (Boolean.logicalOr(
-                ep.matchLast(to) && b.get(3, to.file).color == col.previous(),
-                ep.matchPrev(to) && b.get(3, to.file).color == col.next()))
-            return b.clr(3, to.file);
-        return b.move(from, to);
+        final Fig pawn = b.get(from);
+        if (enPassant(b, pawn.color, ep, to)) b = b.clr(enPassantCaptured(to));
+        return b.clr(from).put(to, afterPawn(pawn, from));
     }
 
     @Override
     public void manipulateMutableAfterBoard(MutableBoard b, Pos from, EnPassantStore ep, Pos to) throws VectorAdditionFailedException, NullPointerException {
-        Color col = b.get(from).color;
         //emptying if enpassant
-        //if(before.enPassantStore.matchLast(boundVec.to))
-        //    return !before.board.get(boundVec.to)
-        //            .color.equals(who().previous());
-        if (Boolean.logicalOr(
-                ep.matchLast(to) && b.get(3, to.file).color == col.previous(),
-                ep.matchPrev(to) && b.get(3, to.file).color == col.next()))
-            b.clr(3, to.file);
-        b.move(from, to);
+        final Fig pawn = b.get(from);
+        if (enPassant(b, pawn.color, ep, to)) b.clr(enPassantCaptured(to));
+        b.clr(from);
+        b.put(to, afterPawn(pawn, from));
     }
 }
@@ -59,6 +59,11 @@ interface PawnPromVector extends PawnVector {
             return new PawnWalkVector(direc);
         }
 
+        @Override
+        public Fig afterPawn(Fig pawn, Pos from) {
+            return Fig.fromSevenBit(PawnVector.afterPawnCode(pawn.sevenBitInt(), false, promTo.index));
+        }
+
         @Override
         public Walk withProm(FigType what) {
             return new Walk(basedOn(), what);
@@ -92,6 +97,11 @@ interface PawnPromVector extends PawnVector {
             return new PawnCapVector(inward, plusFile);
         }
 
+        @Override
+        public Fig afterPawn(Fig pawn, Pos from) {
+            return Fig.fromSevenBit(PawnVector.afterPawnCode(pawn.sevenBitInt(), false, promTo.index));
+        }
+
         @Override
         public Cap withProm(FigType what) {
             return new Cap(basedOn(), what);
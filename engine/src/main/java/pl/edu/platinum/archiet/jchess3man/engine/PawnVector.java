@@ -8,4 +8,25 @@ public interface PawnVector extends Vector {
 
     boolean reqProm(int rank);
 
+    /**
+     * @param pawn the pawn that moves
+     * @param from where it moves from
+     * @return what stands on the destination after the move: the pawn itself,
+     * the pawn with pawnCenter set if it crosses the center, or the fig it is promoted to
+     */
+    default Fig afterPawn(Fig pawn, Pos from) {
+        return pawn;
+    }
+
+    /**
+     * @param pawn           seven-bit code of the pawn that moves
+     * @param thruCenter     whether it crosses the center
+     * @param promotionIndex index of the FigType it is promoted to, 0 if none
+     * @return seven-bit code of what stands on the destination after the move
+     */
+    static int afterPawnCode(int pawn, boolean thruCenter, int promotionIndex) {
+        if (promotionIndex != 0) return (pawn & (7 << 3)) | promotionIndex;
+        return thruCenter ? pawn | (1 << 6) : pawn;
+    }
+
 }
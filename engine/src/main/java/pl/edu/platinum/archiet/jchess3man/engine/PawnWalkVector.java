@@ -20,7 +20,25 @@ public class PawnWalkVector extends RankVector implements PawnVector {
 
     @Override
     public boolean reqProm(int rank) {
-        return false;
+        return !direc && rank == 1;
+    }
+
+    @Override
+    public Fig afterPawn(Fig pawn, Pos from) {
+        return Fig.fromSevenBit(PawnVector.afterPawnCode(pawn.sevenBitInt(), thruCenter(from.rank), 0));
+    }
+
+    @Override
+    public ImmutableBoard manipulateImmutableAfterBoard(ImmutableBoard b,
+                                                        Pos from, EnPassantStore ep, Pos to) {
+        return b.clr(from).put(to, afterPawn(b.get(from), from));
+    }
+
+    @Override
+    public void manipulateMutableAfterBoard(MutableBoard b, Pos from, EnPassantStore ep, Pos to) {
+        final Fig pawn = b.get(from);
+        b.clr(from);
+        b.put(to, afterPawn(pawn, from));
     }
 
     @Override
@@ -0,0 +1,371 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft counts the leaf nodes of the game tree to a given depth.
+ * A move is a from, to and promotion, as in genDescMoves: the vecs leading
+ * to the very same square are a single move; a player who is dead
+ * (or just died and still moves next) has no moves.
+ * [perft] and [divide] run on a MutableGameState and MoveGenerator.generateLegal,
+ * optionally in a ForkJoinPool and with a [Hash] of subtree counts;
+ * [reference] and [referenceDivide] go the old way, a DescMove per AMFT destination
+ * and generateAfterStates, on whatever Board implementation the state has,
+ * so that the two can be compared and timed against each other.
+ */
+public final class Perft {
+    private Perft() {
+    }
+
+    /**
+     * below this depth the parallel perft does not fork any more
+     */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private static final FigType[] promotions = {
+            FigType.Queen, FigType.Rook, FigType.Bishop, FigType.Knight};
+
+    /**
+     * Hash table of subtree counts, keyed by the Zobrist key and depth.
+     * It is lock-free and may be shared between threads: an entry torn
+     * by a concurrent write does not verify and is taken as a miss.
+     */
+    public static final class Hash {
+        private final long[] checks;
+        private final long[] counts;
+        private final int mask;
+
+        /**
+         * @param megabytes how much memory to take, rounded down to a power of two entries
+         */
+        public Hash(int megabytes) {
+            final int entries = Integer.highestOneBit(Math.max(1, (megabytes << 20) >>> 4));
+            checks = new long[entries];
+            counts = new long[entries];
+            mask = entries - 1;
+        }
+
+        @Contract(pure = true)
+        private static long key(long zobrist, int depth) {
+            return zobrist + depth * 0x9E3779B97F4A7C15L;
+        }
+
+        /**
+         * @return the count stored for the position and depth, or -1 if none
+         */
+        public long get(long zobrist, int depth) {
+            final long key = key(zobrist, depth);
+            final int i = (int) (key >>> 32) & mask;
+            final long count = counts[i];
+            return (checks[i] ^ count) == key ? count : -1;
+        }
+
+        public void put(long zobrist, int depth, long count) {
+            final long key = key(zobrist, depth);
+            final int i = (int) (key >>> 32) & mask;
+            counts[i] = count;
+            checks[i] = key ^ count;
+        }
+    }
+
+    /**
+     * @param state the position to start from
+     * @param depth how many plies to go
+     * @return the number of leaf nodes
+     */
+    public static long perft(@NotNull GameState state, int depth) {
+        return perft(new MutableGameState(state), depth, null);
+    }
+
+    /**
+     * @param state the position to start from, left as it was
+     * @param depth how many plies to go
+     * @param hash  where to look the subtree counts up and store them, or null
+     * @return the number of leaf nodes
+     */
+    public static long perft(@NotNull MutableGameState state, int depth, @Nullable Hash hash) {
+        return perft(state, depth, hash, lists(depth));
+    }
+
+    /**
+     * @param state the position to start from
+     * @param depth how many plies to go
+     * @param pool  where to fork the subtrees
+     * @param hash  subtree counts shared by all the threads, or null
+     * @return the number of leaf nodes
+     */
+    public static long perft(@NotNull GameState state, int depth,
+                             @NotNull ForkJoinPool pool, @Nullable Hash hash) {
+        return pool.invoke(new Task(state, depth, hash));
+    }
+
+    /**
+     * @param state  the position to start from
+     * @param depth  how many plies to go, at least 1
+     * @param pool   where to fork the subtrees, or null to count sequentially
+     * @param hash   subtree counts, or null
+     * @return the number of leaf nodes after each move, in the order of generation
+     */
+    public static Map<Desc, Long> divide(@NotNull GameState state, int depth,
+                                         @Nullable ForkJoinPool pool, @Nullable Hash hash) {
+        if (depth < 1) throw new IllegalArgumentException("depth " + depth);
+        final MutableGameState mutable = new MutableGameState(state);
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegalDistinct(mutable, moves);
+        final Map<Desc, Long> ret = new LinkedHashMap<>();
+        final List<Task> tasks = new ArrayList<>(moves.size());
+        final MoveList[] lists = lists(depth - 1);
+        for (int i = 0; i < moves.size(); i++) {
+            mutable.makeLegal(moves.get(i));
+            if (pool == null) ret.put(desc(moves.get(i)), perft(mutable, depth - 1, hash, lists));
+            else tasks.add(new Task(mutable.toGameState(), depth - 1, hash));
+            mutable.unmake();
+        }
+        if (pool != null) {
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    invokeAll(tasks);
+                    return null;
+                }
+            });
+            for (int i = 0; i < moves.size(); i++) ret.put(desc(moves.get(i)), tasks.get(i).join());
+        }
+        return ret;
+    }
+
+    private static final class Task extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final GameState state;
+        private final int depth;
+        private final @Nullable Hash hash;
+
+        Task(@NotNull GameState state, int depth, @Nullable Hash hash) {
+            this.state = state;
+            this.depth = depth;
+            this.hash = hash;
+        }
+
+        @Override
+        protected Long compute() {
+            final MutableGameState mutable = new MutableGameState(state);
+            if (depth <= SEQUENTIAL_DEPTH) return perft(mutable, depth, hash);
+            if (hash != null) {
+                final long stored = hash.get(mutable.zobrist(), depth);
+                if (stored >= 0) return stored;
+            }
+            final MoveList moves = new MoveList();
+            MoveGenerator.generateLegalDistinct(mutable, moves);
+            final List<Task> tasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                mutable.makeLegal(moves.get(i));
+                tasks.add(new Task(mutable.toGameState(), depth - 1, hash));
+                mutable.unmake();
+            }
+            long nodes = 0;
+            for (final Task task : invokeAll(tasks)) nodes += task.join();
+            if (hash != null) hash.put(mutable.zobrist(), depth, nodes);
+            return nodes;
+        }
+    }
+
+    private static long perft(@NotNull MutableGameState state, int depth,
+                              @Nullable Hash hash, @NotNull MoveList[] lists) {
+        if (depth == 0) return 1;
+        if (hash != null && depth > 1) {
+            final long stored = hash.get(state.zobrist(), depth);
+            if (stored >= 0) return stored;
+        }
+        final MoveList moves = lists[depth];
+        moves.clear();
+        MoveGenerator.generateLegalDistinct(state, moves);
+        if (depth == 1) return moves.size();
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            state.makeLegal(moves.get(i));
+            nodes += perft(state, depth - 1, hash, lists);
+            state.unmake();
+        }
+        if (hash != null) hash.put(state.zobrist(), depth, nodes);
+        return nodes;
+    }
+
+    @NotNull
+    private static MoveList[] lists(int depth) {
+        final MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) lists[i] = new MoveList();
+        return lists;
+    }
+
+    @NotNull
+    private static Desc desc(int move) {
+        return new Desc(AttackTables.pos(PackedMove.from(move)), AttackTables.pos(PackedMove.to(move)),
+                PackedMove.promotion(move));
+    }
+
+    /**
+     * @param state the position to start from, its board of any implementation
+     * @param depth how many plies to go
+     * @return the number of leaf nodes, counted via DescMove.generateAfterStates
+     */
+    public static long reference(@NotNull GameState state, int depth) {
+        if (depth == 0) return 1;
+        long nodes = 0;
+        for (final GameState after : referenceAfters(state).values())
+            nodes += depth == 1 ? 1 : reference(after, depth - 1);
+        return nodes;
+    }
+
+    /**
+     * @param state the position to start from, its board of any implementation
+     * @param depth how many plies to go, at least 1
+     * @return the number of leaf nodes after each move, counted via DescMove.generateAfterStates
+     */
+    public static Map<Desc, Long> referenceDivide(@NotNull GameState state, int depth) {
+        if (depth < 1) throw new IllegalArgumentException("depth " + depth);
+        final Map<Desc, Long> ret = new LinkedHashMap<>();
+        for (final Map.Entry<Desc, GameState> entry : referenceAfters(state).entrySet())
+            ret.put(entry.getKey(), reference(entry.getValue(), depth - 1));
+        return ret;
+    }
+
+    /**
+     * @return the state after each legal move, found the way genDescMoves once did
+     */
+    private static Map<Desc, GameState> referenceAfters(@NotNull GameState state) {
+        final Map<Desc, GameState> ret = new LinkedHashMap<>();
+        if (!state.alivePlayers.get(state.movesNext)) return ret;
+        final boolean immutable = state.board instanceof ImmutableBoard;
+        for (final Pos from : new AllPosIterable()) {
+            final Fig fig = state.board.get(from);
+            if (fig == null || fig.color != state.movesNext) continue;
+            for (final Pos to : AMFT.getIterableFor(from))
+                try {
+                    referenceAfter(new DescMove(from, to, state), immutable, ret);
+                } catch (NeedsToBePromotedException e) {
+                    for (final FigType promotion : promotions)
+                        try {
+                            referenceAfter(new DescMove(from, to, state, promotion), immutable, ret);
+                        } catch (NeedsToBePromotedException e1) {
+                            e1.printStackTrace();
+                            throw new AssertionError(e1);
+                        }
+                }
+        }
+        return ret;
+    }
+
+    private static void referenceAfter(@NotNull DescMove move, boolean immutable,
+                                       @NotNull Map<Desc, GameState> into)
+            throws NeedsToBePromotedException {
+        final Optional<GameState> after = move.generateAfterStates(true, immutable).findFirst();
+        after.ifPresent(state -> into.put(new Desc(move.from, move.to, move.pawnPromotion), state));
+    }
+
+    /**
+     * @param state a state
+     * @param board the board implementation to use: BitBoardImpl, ImmutableBitBoardImpl,
+     *              MutableArrayBoardImpl, MutableHashMapBoardImpl, FunHashMapBoardImpl,
+     *              Fun1DSeqBoardImpl or DiffNGBoardImpl
+     * @return the same state on a board of that implementation
+     */
+    @NotNull
+    public static GameState withBoard(@NotNull GameState state, @NotNull String board) {
+        final Board b;
+        switch (board) {
+            case "BitBoardImpl":
+                b = new BitBoardImpl(state.board);
+                break;
+            case "ImmutableBitBoardImpl":
+                b = new ImmutableBitBoardImpl(state.board);
+                break;
+            case "MutableArrayBoardImpl":
+                final MutableArrayBoardImpl array = new MutableArrayBoardImpl();
+                array.fill(state.board);
+                b = array;
+                break;
+            case "MutableHashMapBoardImpl":
+                final MutableHashMapBoardImpl hashMap = new MutableHashMapBoardImpl();
+                hashMap.fill(state.board);
+                b = hashMap;
+                break;
+            case "FunHashMapBoardImpl":
+                b = new FunHashMapBoardImpl(state.board);
+                break;
+            case "Fun1DSeqBoardImpl":
+                b = new Fun1DSeqBoardImpl(state.board, true);
+                break;
+            case "DiffNGBoardImpl":
+                ImmutableBoard diff = DiffNGBoardImpl.empty();
+                for (final Pos pos : new AllPosIterable()) diff = diff.put(pos, state.board.get(pos));
+                b = diff;
+                break;
+            default:
+                throw new IllegalArgumentException(board);
+        }
+        return new GameState(state, b, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Usage: Perft depth [-divide] [-parallel] [-hash megabytes] [-reference board]
+     * from the new game; with -reference it counts the old way on a board
+     * of the implementation given, see [withBoard].
+     * Prints the number of leaf nodes and nodes per second.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: Perft depth [-divide] [-parallel] [-hash megabytes] [-reference board]");
+            System.exit(2);
+        }
+        final int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        ForkJoinPool pool = null;
+        Hash hash = null;
+        String reference = null;
+        for (int i = 1; i < args.length; i++)
+            switch (args[i]) {
+                case "-divide":
+                    divide = true;
+                    break;
+                case "-parallel":
+                    pool = ForkJoinPool.commonPool();
+                    break;
+                case "-hash":
+                    hash = new Hash(Integer.parseInt(args[++i]));
+                    break;
+                case "-reference":
+                    reference = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException(args[i]);
+            }
+        final long start = System.nanoTime();
+        final long nodes;
+        if (divide) {
+            final Map<Desc, Long> counts = reference != null
+                    ? referenceDivide(withBoard(GameState.newGame, reference), depth)
+                    : divide(GameState.newGame, depth, pool, hash);
+            long sum = 0;
+            for (final Map.Entry<Desc, Long> entry : counts.entrySet()) {
+                System.out.println(entry.getKey() + " " + entry.getValue());
+                sum += entry.getValue();
+            }
+            nodes = sum;
+        } else if (reference != null) nodes = reference(withBoard(GameState.newGame, reference), depth);
+        else if (pool != null) nodes = perft(GameState.newGame, depth, pool, hash);
+        else nodes = perft(new MutableGameState(GameState.newGame), depth, hash);
+        final long nanos = System.nanoTime() - start;
+        System.out.println("nodes " + nodes + " time " + nanos / 1000000 + " ms nps "
+                + (long) (nodes / (nanos / 1e9)));
+    }
+}
@@ -53,10 +53,26 @@ public class PlayersAlive {
         this.b = b == null ? defVal : b;
     }
 
-    public static final PlayersAlive all =
-            new PlayersAlive(true, true, true);
-    public static final PlayersAlive zero =
-            new PlayersAlive(false, false, false);
+    private static final PlayersAlive[] byInt = new PlayersAlive[8];
+
+    static {
+        for (int i = 0; i < byInt.length; i++) byInt[i] = new PlayersAlive(i);
+    }
+
+    /**
+     * @param bin as returned by {@link #toInt()}
+     * @return the shared instance, so that a death never allocates
+     */
+    public static PlayersAlive of(int bin) {
+        return byInt[bin & 0b111];
+    }
+
+    public static PlayersAlive of(boolean w, boolean g, boolean b) {
+        return byInt[(w ? 0b100 : 0) | (g ? 0b10 : 0) | (b ? 0b1 : 0)];
+    }
+
+    public static final PlayersAlive all = of(true, true, true);
+    public static final PlayersAlive zero = of(false, false, false);
 
     public boolean get(Color who) {
         switch (who) {
@@ -73,11 +89,11 @@ public class PlayersAlive {
     public PlayersAlive change(Color c, boolean what) {
         switch (c) {
             case White:
-                return new PlayersAlive(what, g, b);
+                return of(what, g, b);
             case Gray:
-                return new PlayersAlive(w, what, b);
+                return of(w, what, b);
             case Black:
-                return new PlayersAlive(w, g, what);
+                return of(w, g, what);
         }
         return this;
     }
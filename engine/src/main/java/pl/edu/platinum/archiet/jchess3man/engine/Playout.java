@@ -0,0 +1,298 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Playout plays a game on from a position with random legal moves,
+ * either uniformly or weighted towards captures and promotions,
+ * in place on a single MutableGameState, with a single MoveList,
+ * until the game is over (the player to move is dead or has no moves)
+ * or up to a number of plies.
+ * [scores] tells how well each player did: 1 for the last player alive,
+ * or else the material of each player alive as a share of the material
+ * of all of them.
+ * [batch] runs many playouts from a position, optionally in a ForkJoinPool,
+ * in chunks of CHUNK playouts each with its own Random seeded from the seed
+ * given, so that the aggregated [Result] does not depend on the pool.
+ * Neither a ply nor [scores] allocates: the moves are made with
+ * MutableGameState.makeLegal on its BitBoardImpl, without GameState views.
+ * A Playout is not thread-safe.
+ */
+public final class Playout {
+    public enum Policy {
+        Uniform, Weighted
+    }
+
+    /**
+     * how many times more likely than a quiet move a capture
+     * or a promotion is in the Weighted policy
+     */
+    public static final int CAPTURE_WEIGHT = 4;
+    public static final int PROMOTION_WEIGHT = 4;
+    private static final int CHUNK = 64;
+
+    /**
+     * material by the type of a seven-bit code, as valued by SitValuesUDAI in ai
+     */
+    private static final int[] values = {0, 6, 3, 5, 10, 3, 1};
+
+    public final Policy policy;
+    private final MoveList moves = new MoveList();
+
+    public Playout(@NotNull Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @param state    where to play, the moves are left made on it
+     * @param maxPlies how many moves to make at most
+     * @param random   where the choices come from
+     * @return how many moves were made, i.e. how many times to unmake to go back
+     */
+    public int play(@NotNull MutableGameState state, int maxPlies, @NotNull Random random) {
+        int plies = 0;
+        for (; plies < maxPlies; plies++) {
+            moves.clear();
+            MoveGenerator.generateLegalDistinct(state, moves);
+            if (moves.isEmpty()) break;
+            state.makeLegal(choose(random));
+        }
+        return plies;
+    }
+
+    private int choose(Random random) {
+        if (policy == Policy.Uniform) return moves.get(random.nextInt(moves.size()));
+        int total = 0;
+        for (int i = 0; i < moves.size(); i++) total += weight(moves.get(i));
+        int left = random.nextInt(total);
+        for (int i = 0; i < moves.size(); i++) {
+            left -= weight(moves.get(i));
+            if (left < 0) return moves.get(i);
+        }
+        throw new AssertionError();
+    }
+
+    @Contract(pure = true)
+    private static int weight(int move) {
+        if (PackedMove.promotionIndex(move) != 0) return PROMOTION_WEIGHT;
+        if (PackedMove.isCapture(move)) return CAPTURE_WEIGHT;
+        return 1;
+    }
+
+    /**
+     * Puts into [into] (by segm) how well each player did in state
+     */
+    public static void scores(@NotNull MutableGameState state, @NotNull double[] into) {
+        final PlayersAlive alive = state.alivePlayers();
+        for (int i = 0; i < 3; i++) into[i] = 0;
+        int count = 0;
+        Color last = null;
+        for (final Color color : Color.colors)
+            if (alive.get(color)) {
+                count++;
+                last = color;
+            }
+        if (count == 1) {
+            into[last.segm()] = 1;
+            return;
+        }
+        double sum = 0;
+        for (int square = 0; square < 6 * 24; square++) {
+            final int code = state.board.sevenBit(square);
+            if (code == 0) continue;
+            final Color color = Color.byIndex((code >> 3) & 7);
+            if (!alive.get(color)) continue;
+            into[color.segm()] += values[code & 7];
+            sum += values[code & 7];
+        }
+        if (sum > 0) for (int i = 0; i < 3; i++) into[i] /= sum;
+    }
+
+    /**
+     * Outcomes of a number of playouts, aggregated per Color
+     */
+    public static final class Result {
+        private int playouts;
+        private long plies;
+        private final int[] wins = new int[3];
+        private final int[] survivals = new int[3];
+        private final double[] scores = new double[3];
+
+        public int playouts() {
+            return playouts;
+        }
+
+        public long plies() {
+            return plies;
+        }
+
+        /**
+         * @return in how many playouts who was the last player alive
+         */
+        public int wins(@NotNull Color who) {
+            return wins[who.segm()];
+        }
+
+        /**
+         * @return in how many playouts who was alive at the end
+         */
+        public int survivals(@NotNull Color who) {
+            return survivals[who.segm()];
+        }
+
+        /**
+         * @return the mean of the scores of who, 0 if there were no playouts
+         */
+        public double score(@NotNull Color who) {
+            return playouts == 0 ? 0 : scores[who.segm()] / playouts;
+        }
+
+        void add(@NotNull MutableGameState end, int plies, @NotNull double[] scores) {
+            playouts++;
+            this.plies += plies;
+            final PlayersAlive alive = end.alivePlayers();
+            final boolean won = alive.listEm().size() == 1;
+            for (final Color color : Color.colors) {
+                final int segm = color.segm();
+                if (alive.get(color)) {
+                    survivals[segm]++;
+                    if (won) wins[segm]++;
+                }
+                this.scores[segm] += scores[segm];
+            }
+        }
+
+        void add(@NotNull Result b) {
+            playouts += b.playouts;
+            plies += b.plies;
+            for (int i = 0; i < 3; i++) {
+                wins[i] += b.wins[i];
+                survivals[i] += b.survivals[i];
+                scores[i] += b.scores[i];
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append("playouts ").append(playouts).append(" plies ").append(plies);
+            for (final Color color : Color.colors)
+                builder.append('\n').append(color).append(" wins ").append(wins(color))
+                        .append(" survivals ").append(survivals(color))
+                        .append(" score ").append(score(color));
+            return builder.toString();
+        }
+    }
+
+    /**
+     * @param start    the position to start every playout from
+     * @param playouts how many playouts to run
+     * @param maxPlies how many moves to make at most in each
+     * @param policy   how to choose the moves
+     * @param seed     where the Randoms of the chunks are seeded from
+     * @param pool     where to run the chunks, or null to run them sequentially
+     * @return the aggregated outcomes
+     */
+    @NotNull
+    public static Result batch(@NotNull GameState start, int playouts, int maxPlies, @NotNull Policy policy,
+                               long seed, @Nullable ForkJoinPool pool) {
+        if (playouts < 0) throw new IllegalArgumentException("playouts " + playouts);
+        final List<Chunk> chunks = new ArrayList<>(playouts / CHUNK + 1);
+        for (int first = 0; first < playouts; first += CHUNK)
+            chunks.add(new Chunk(start, Math.min(CHUNK, playouts - first), maxPlies, policy,
+                    seed ^ (first / CHUNK) * 0x9E3779B97F4A7C15L));
+        final Result ret = new Result();
+        if (pool == null) for (final Chunk chunk : chunks) ret.add(chunk.compute());
+        else {
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    invokeAll(chunks);
+                    return null;
+                }
+            });
+            for (final Chunk chunk : chunks) ret.add(chunk.join());
+        }
+        return ret;
+    }
+
+    private static final class Chunk extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+        private final GameState start;
+        private final int playouts;
+        private final int maxPlies;
+        private final Policy policy;
+        private final long seed;
+
+        Chunk(GameState start, int playouts, int maxPlies, Policy policy, long seed) {
+            this.start = start;
+            this.playouts = playouts;
+            this.maxPlies = maxPlies;
+            this.policy = policy;
+            this.seed = seed;
+        }
+
+        @Override
+        protected Result compute() {
+            final MutableGameState state = new MutableGameState(start);
+            final Playout playout = new Playout(policy);
+            final Random random = new Random(seed);
+            final double[] scores = new double[3];
+            final Result ret = new Result();
+            for (int i = 0; i < playouts; i++) {
+                final int plies = playout.play(state, maxPlies, random);
+                scores(state, scores);
+                ret.add(state, plies, scores);
+                for (int j = 0; j < plies; j++) state.unmake();
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Usage: Playout playouts [-plies n] [-weighted] [-parallel] [-seed n]
+     * from the new game.
+     * Prints the aggregated outcomes and plies per second.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("usage: Playout playouts [-plies n] [-weighted] [-parallel] [-seed n]");
+            System.exit(2);
+        }
+        final int playouts = Integer.parseInt(args[0]);
+        int plies = 200;
+        Policy policy = Policy.Uniform;
+        ForkJoinPool pool = null;
+        long seed = 0;
+        for (int i = 1; i < args.length; i++)
+            switch (args[i]) {
+                case "-plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "-weighted":
+                    policy = Policy.Weighted;
+                    break;
+                case "-parallel":
+                    pool = ForkJoinPool.commonPool();
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException(args[i]);
+            }
+        final long start = System.nanoTime();
+        final Result result = batch(GameState.newGame, playouts, plies, policy, seed, pool);
+        final long nanos = System.nanoTime() - start;
+        System.out.println(result);
+        System.out.println("time " + nanos / 1000000 + " ms plies/s " + (long) (result.plies() / (nanos / 1e9)));
+    }
+}
@@ -77,23 +77,23 @@ public class Pos {
     }
 
     public static @Nullable Fig getNewGame(int rank, int file) {
-        if (rank == 1) return new Fig.Pawn(Color.fromSegm(file / 8));
+        if (rank == 1) return Fig.subClass(FigType.Pawn, Color.fromSegm(file / 8), false);
         if (rank == 0) {
             final Color theColor = Color.fromSegm(file / 8);
             switch (file % 8) {
                 case 0:
                 case 7:
-                    return new Fig.Rook(theColor);
+                    return Fig.subClass(FigType.Rook, theColor);
                 case 1:
                 case 6:
-                    return new Fig.Knight(theColor);
+                    return Fig.subClass(FigType.Knight, theColor);
                 case 2:
                 case 5:
-                    return new Fig.Bishop(theColor);
+                    return Fig.subClass(FigType.Bishop, theColor);
                 case 3:
-                    return new Fig.Queen(theColor);
+                    return Fig.subClass(FigType.Queen, theColor);
                 case 4:
-                    return new Fig.King(theColor);
+                    return Fig.subClass(FigType.King, theColor);
                 default:
                     throw new IllegalArgumentException(file + " ");
             }
@@ -160,15 +160,13 @@ public class Pos {
 
     public KnightVector knightVectorTo(Pos ano)
             throws CannotConstructVectorException {
-        return KnightVector.knightVector(this, ano);
+        KnightVector vec = AttackTables.knightVector(toInt(), ano.toInt());
+        if (vec == null) throw new CannotConstructVectorException(this, ano);
+        return vec;
     }
 
     Optional<KnightVector> optionalKnightVectorTo(Pos ano) {
-        try {
-            return Optional.of(knightVectorTo(ano));
-        } catch (CannotConstructVectorException ignored) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(AttackTables.knightVector(toInt(), ano.toInt()));
     }
 
     public RankVector rankVectorTo(Pos ano) throws CannotConstructVectorException {
@@ -201,20 +199,7 @@ public class Pos {
     }
 
     public ArrayList<AxisVector> axisVectorsTo(Pos ano) {
-        ArrayList<AxisVector> arr = new ArrayList<>();
-        try {
-            arr.add(rankVectorTo(ano));
-        } catch (CannotConstructVectorException ignored) {
-        }
-        try {
-            arr.add(fileVectorTo(ano));
-        } catch (CannotConstructVectorException ignored) {
-        }
-        try {
-            arr.add(fileVectorLongTo(ano));
-        } catch (CannotConstructVectorException ignored) {
-        }
-        return arr;
+        return new ArrayList<>(AttackTables.axisVectors(this, ano));
     }
 
     public FileVector kingFileVectorTo(Pos ano) throws CannotConstructVectorException {
@@ -273,11 +258,9 @@ public class Pos {
 
     public ContinuousVector kingContinuousVectorTo(Pos ano)
             throws CannotConstructVectorException {
-        try {
-            return kingAxisVectorTo(ano);
-        } catch (CannotConstructVectorException ignored) {
-            return kingDiagonalVectorTo(ano);
-        }
+        ContinuousVector vec = AttackTables.kingStep(toInt(), ano.toInt());
+        if (vec == null) throw new CannotConstructVectorException(this, ano);
+        return vec;
     }
 
     public CastlingVector castlingVectorTo(Pos ano) throws CannotConstructVectorException {
@@ -293,27 +276,11 @@ public class Pos {
     }
 
     public LinkedList<DiagonalVector> diagonalVectorsTo(Pos ano) {
-        LinkedList<DiagonalVector> ret = new LinkedList<>();
-        int fileDiff = wrappedFileVector(file, ano.file);
-        boolean plusFile = fileDiff > 0;
-        int absFileDiff = plusFile ? fileDiff : -fileDiff;
-        boolean inwardShort = ano.rank > rank;
-        int absRankDiff = (inwardShort ? ano.rank - rank : rank - ano.rank);
-        //if the move is not to the same rank
-        if (rank != ano.rank && absFileDiff == absRankDiff)
-            ret.add(new DiagonalVector(absFileDiff, inwardShort, plusFile));
-        int rankSum = ano.rank + rank;
-        if (absFileDiff != 0 && absFileDiff == rankSum)
-            ret.add(new DiagonalVector(
-                    5 + 5 + 1 - rankSum /*(5-s)+1+(5-r)*/, true, !plusFile));
-        return ret;
+        return new LinkedList<>(AttackTables.diagonalVectors(this, ano));
     }
 
     public ArrayList<ContinuousVector> continuousVectorsTo(Pos ano) {
-        ArrayList<ContinuousVector> ret = new ArrayList<>();
-        ret.addAll(axisVectorsTo(ano));
-        ret.addAll(diagonalVectorsTo(ano));
-        return ret;
+        return new ArrayList<>(AttackTables.continuousVectors(this, ano));
     }
 
     public PawnWalkVector pawnWalkVectorTo(Pos ano) throws CannotConstructVectorException {
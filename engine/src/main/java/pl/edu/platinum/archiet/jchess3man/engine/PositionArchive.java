@@ -0,0 +1,322 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+
+/**
+ * PositionArchive is an append-only file of distinct GameStates, memory-mapped
+ * so that millions of them can be stored and looked up without holding them
+ * on the heap, and kept across restarts.
+ * The data file holds GameStateCodec records, the first record's place taken
+ * by a file header (magic, version, count). The index file, next to it with
+ * ".idx" appended, is an open-addressing table with linear probing of
+ * (Zobrist key, record number + 1) slots, at most half full, doubled when needed;
+ * it is derived from the data and rebuilt if missing or behind.
+ * Two states are the same record if they are equal, clocks included,
+ * so states differing only by clocks get a record each.
+ * Files are mapped in segments, so neither is limited to 2 GiB.
+ * An archive is not thread-safe.
+ */
+public final class PositionArchive implements Closeable {
+    private static final long DATA_MAGIC = 0x334D_4152_4348_4956L;
+    private static final long INDEX_MAGIC = 0x334D_4152_4348_4958L;
+    private static final int VERSION = 1;
+    /**
+     * records per data file segment
+     */
+    private static final long SEGMENT_RECORDS = 1 << 16;
+    private static final long INDEX_SEGMENT_BYTES = 1 << 24;
+    private static final int INDEX_HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final long INITIAL_CAPACITY = 1 << 12;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final FileChannel dataChannel;
+    private final Mapping data;
+    private FileChannel indexChannel;
+    private Mapping index;
+    private long capacity;
+    private long count;
+    private final BitBoardImpl scratch = new BitBoardImpl();
+
+    private PositionArchive(Path dataPath, FileChannel dataChannel) throws IOException {
+        this.dataPath = dataPath;
+        this.indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+        this.dataChannel = dataChannel;
+        this.data = new Mapping(dataChannel, SEGMENT_RECORDS * GameStateCodec.BYTES);
+    }
+
+    /**
+     * Opens the archive at path, creating it if it does not exist
+     *
+     * @param path the data file; the index is path with ".idx" appended
+     * @throws IOException if a file cannot be opened or is not an archive
+     */
+    @NotNull
+    public static PositionArchive open(@NotNull Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final PositionArchive archive = new PositionArchive(path, channel);
+        try {
+            archive.openData();
+            archive.openIndex();
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+        return archive;
+    }
+
+    private void openData() throws IOException {
+        final boolean created = dataChannel.size() == 0;
+        data.ensure(GameStateCodec.BYTES);
+        if (created) {
+            data.putLong(0, DATA_MAGIC);
+            data.putLong(8, VERSION);
+            data.putLong(16, 0);
+        } else if (data.getLong(0) != DATA_MAGIC || data.getLong(8) != VERSION)
+            throw new IOException(dataPath + " is not a position archive");
+        count = data.getLong(16);
+        data.ensure(offset(count));
+    }
+
+    private void openIndex() throws IOException {
+        long indexed = 0;
+        if (Files.exists(indexPath)) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = new Mapping(indexChannel, INDEX_SEGMENT_BYTES);
+            if (indexChannel.size() >= INDEX_HEADER_BYTES) {
+                index.ensure(INDEX_HEADER_BYTES);
+                if (index.getLong(0) == INDEX_MAGIC && index.getLong(8) == VERSION) {
+                    capacity = index.getLong(16);
+                    indexed = index.getLong(24);
+                    index.ensure(INDEX_HEADER_BYTES + capacity * SLOT_BYTES);
+                }
+            }
+        }
+        if (capacity == 0 || indexed > count) {
+            if (indexChannel != null) indexChannel.close();
+            createIndex(INITIAL_CAPACITY);
+            indexed = 0;
+        }
+        for (long record = indexed; record < count; record++) {
+            growIfNeeded(record + 1);
+            insert(zobristOf(record), record);
+        }
+        index.putLong(24, count);
+    }
+
+    /**
+     * Replaces the index by an empty one of that capacity, via a temporary file
+     */
+    private void createIndex(long capacity) throws IOException {
+        final Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final Mapping mapping = new Mapping(channel, INDEX_SEGMENT_BYTES);
+        mapping.ensure(INDEX_HEADER_BYTES + capacity * SLOT_BYTES);
+        mapping.putLong(0, INDEX_MAGIC);
+        mapping.putLong(8, VERSION);
+        mapping.putLong(16, capacity);
+        mapping.putLong(24, 0);
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChannel = channel;
+        index = mapping;
+        this.capacity = capacity;
+    }
+
+    private void growIfNeeded(long records) throws IOException {
+        if (records * 2 <= capacity) return;
+        final Mapping old = index;
+        final FileChannel oldChannel = indexChannel;
+        final long oldCapacity = capacity;
+        createIndex(capacity * 2);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            final long value = old.getLong(slotOffset(slot) + 8);
+            if (value != 0) insert(old.getLong(slotOffset(slot)), value - 1);
+        }
+        index.putLong(24, old.getLong(24));
+        oldChannel.close();
+    }
+
+    private void insert(long key, long record) {
+        long slot = key & (capacity - 1);
+        while (index.getLong(slotOffset(slot) + 8) != 0) slot = (slot + 1) & (capacity - 1);
+        index.putLong(slotOffset(slot), key);
+        index.putLong(slotOffset(slot) + 8, record + 1);
+    }
+
+    private static long slotOffset(long slot) {
+        return INDEX_HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * @return byte offset of the record in the data file, past the file header
+     */
+    private static long offset(long record) {
+        return (record + 1) * GameStateCodec.BYTES;
+    }
+
+    private long zobristOf(long record) {
+        final long header = GameStateCodec.readInto(data.segment(offset(record)),
+                data.index(offset(record)), scratch);
+        return PackedHeader.toGameState(scratch, header).zobrist();
+    }
+
+    /**
+     * @return how many records there are
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return the record number of a state equal to this one, -1 if there is none
+     */
+    public long find(@NotNull GameState state) {
+        final long key = state.zobrist();
+        final long header = state.header();
+        for (long slot = key & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            final long value = index.getLong(slotOffset(slot) + 8);
+            if (value == 0) return -1;
+            if (index.getLong(slotOffset(slot)) == key && matches(value - 1, state.board, header))
+                return value - 1;
+        }
+    }
+
+    public boolean contains(@NotNull GameState state) {
+        return find(state) >= 0;
+    }
+
+    private boolean matches(long record, Board board, long header) {
+        final ByteBuffer buffer = data.segment(offset(record));
+        final int at = data.index(offset(record));
+        if (GameStateCodec.readHeader(buffer, at) != header) return false;
+        if (board instanceof BitBoard) {
+            final BitBoard bitBoard = (BitBoard) board;
+            for (int sq = 0; sq < SQUARES; sq++)
+                if (buffer.get(at + sq) != bitBoard.sevenBit(sq)) return false;
+        } else for (int sq = 0; sq < SQUARES; sq++)
+            if (buffer.get(at + sq) != board.getCode(sq / 24, sq % 24)) return false;
+        return true;
+    }
+
+    /**
+     * Appends the state unless an equal one is there already
+     *
+     * @return the record number of the state
+     * @throws IOException              if a file could not be grown
+     * @throws IllegalArgumentException if a clock does not fit the header
+     */
+    public long add(@NotNull GameState state) throws IOException {
+        final long found = find(state);
+        if (found >= 0) return found;
+        final long record = count;
+        growIfNeeded(record + 1);
+        data.ensure(offset(record + 1));
+        GameStateCodec.write(state.board, state.header(),
+                data.segment(offset(record)), data.index(offset(record)));
+        count = record + 1;
+        data.putLong(16, count);
+        insert(state.zobrist(), record);
+        index.putLong(24, count);
+        return record;
+    }
+
+    /**
+     * @return a new GameState of the record on a new BitBoardImpl
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    @NotNull
+    public GameState get(long record) {
+        if (record < 0 || record >= count) throw new IndexOutOfBoundsException(Long.toString(record));
+        return GameStateCodec.read(data.segment(offset(record)), data.index(offset(record)));
+    }
+
+    /**
+     * Reads the record's board into a board without allocating
+     *
+     * @return the header of the record
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public long readInto(long record, @NotNull BitBoardImpl board) {
+        if (record < 0 || record >= count) throw new IndexOutOfBoundsException(Long.toString(record));
+        return GameStateCodec.readInto(data.segment(offset(record)), data.index(offset(record)), board);
+    }
+
+    /**
+     * Writes the changes through to the storage device
+     */
+    public void force() {
+        data.force();
+        if (index != null) index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            force();
+        } finally {
+            dataChannel.close();
+            if (indexChannel != null) indexChannel.close();
+        }
+    }
+
+    /**
+     * A file mapped read-write in segments of segmentBytes each,
+     * mapped as they are needed; a long never spans two segments
+     * as long as segmentBytes and its offset are multiples of 8
+     */
+    private static final class Mapping {
+        private final FileChannel channel;
+        private final long segmentBytes;
+        private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+        Mapping(FileChannel channel, long segmentBytes) {
+            this.channel = channel;
+            this.segmentBytes = segmentBytes;
+        }
+
+        /**
+         * Maps (and so grows the file to) whole segments covering bytes 0 until bytes
+         */
+        void ensure(long bytes) throws IOException {
+            while (segments.size() * segmentBytes < bytes)
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                        segments.size() * segmentBytes, segmentBytes));
+        }
+
+        ByteBuffer segment(long offset) {
+            return segments.get((int) (offset / segmentBytes));
+        }
+
+        int index(long offset) {
+            return (int) (offset % segmentBytes);
+        }
+
+        long getLong(long offset) {
+            return segment(offset).getLong(index(offset));
+        }
+
+        void putLong(long offset, long value) {
+            segment(offset).putLong(index(offset), value);
+        }
+
+        void force() {
+            for (final MappedByteBuffer segment : segments) segment.force();
+        }
+    }
+}
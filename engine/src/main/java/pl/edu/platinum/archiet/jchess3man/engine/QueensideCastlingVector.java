@@ -12,6 +12,16 @@ public class QueensideCastlingVector extends CastlingVector {
 
     public static final QueensideCastlingVector c = new QueensideCastlingVector();
 
+    @Override
+    public int rookFrom(int kingFrom) {
+        return kingFrom - 4;
+    }
+
+    @Override
+    public int rookTo(int kingFrom) {
+        return kingFrom - 1;
+    }
+
     @Override
     public boolean checkPossibility(CastlingPossibilities.ColorEntry c) {
         return c.q;
@@ -22,13 +32,13 @@ public class QueensideCastlingVector extends CastlingVector {
                                                         Pos from, EnPassantStore ep, Pos to)
             throws VectorAdditionFailedException {
         return b.move(from, to)
-                .move(new Pos(0, from.file - 4),
-                        new Pos(0, from.file - 1));
+                .move(AttackTables.pos(rookFrom(from.toInt())),
+                        AttackTables.pos(rookTo(from.toInt())));
     }
 
     @Override
     public void manipulateMutableAfterBoard(MutableBoard b, Pos from, EnPassantStore ep, Pos to) throws VectorAdditionFailedException {
         b.move(from, to);
-        b.move(new Pos(0, from.file - 4), new Pos(0, from.file - 1));
+        b.move(AttackTables.pos(rookFrom(from.toInt())), AttackTables.pos(rookTo(from.toInt())));
     }
 }
@@ -65,6 +65,11 @@ public class RankVector extends AxisVector {
         return direc;
     }
 
+    @Override
+    public int direction() {
+        return direc ? AttackTables.RANK_INWARD : AttackTables.RANK_OUTWARD;
+    }
+
     /**
      * @return Heading unit. As RankVector is a ContinuousVector,
      * if abs==1 returns this, if not abs ≤ 1 returns new RankVector(1, inward).
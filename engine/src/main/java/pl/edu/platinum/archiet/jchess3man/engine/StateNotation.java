@@ -0,0 +1,232 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.square;
+
+/**
+ * StateNotation is a FEN-like single-line notation of a GameState,
+ * eight fields separated by single spaces:
+ * board, movesNext, castling, en passant, moats, alive players,
+ * halfMoveClock, fullMoveNumber. E.g. the new game is (on one line)
+ * "24/24/24/24/wPwPwPwPwPwPwPwPgPgPgPgPgPgPgPgPbPbPbPbPbPbPbPbP/
+ * wRwNwBwQwKwBwNwRgRgNgBgQgKgBgNgRbRbNbBbQbKbBbNbR w wKQgKQbKQ -- - wgb 0 0".
+ * Colors are written w, g, b.
+ * The board is its ranks from the innermost (5) to the outermost (0),
+ * separated by '/', each being its 24 files in order, a run of empty squares
+ * written as its length and a fig as its color and then its type
+ * (R, N, B, Q, K, P; p for a pawn which has crossed the center).
+ * movesNext is a color or '-'. Castling lists each color having any right
+ * followed by K and/or Q, '-' if nobody can castle.
+ * En passant is the prev and the last file, each a letter a–x or '-'.
+ * Moats lists the colors next to (after) each bridged moat, i.e. w for
+ * the black-white one, g for white-gray, b for gray-black, '-' if none;
+ * alive players is a list of colors too.
+ * Writing and parsing do not go through Figs nor Poses, parsing
+ * fills a BitBoardImpl and returns the header as a PackedHeader.
+ */
+public final class StateNotation {
+    private StateNotation() {
+    }
+
+    private static final String TYPES = "RNBQKP";
+    private static final String COLORS = "wgb";
+
+    @NotNull
+    public static String write(@NotNull GameState state) {
+        final StringBuilder builder = new StringBuilder(160);
+        write(state.board, state.header(), builder);
+        return builder.toString();
+    }
+
+    public static void write(@NotNull Board board, long header, @NotNull StringBuilder into) {
+        final BitBoard bitBoard = board instanceof BitBoard ? (BitBoard) board : null;
+        for (int rank = 5; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 24; file++) {
+                final int code = bitBoard != null
+                        ? bitBoard.sevenBit(square(rank, file)) : board.getCode(rank, file);
+                if (code == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) into.append(empty);
+                empty = 0;
+                into.append(COLORS.charAt((code >> 3 & 0b11) - 1));
+                into.append(code >> 6 != 0 ? 'p' : TYPES.charAt((code & 0b111) - 1));
+            }
+            if (empty > 0) into.append(empty);
+            if (rank > 0) into.append('/');
+        }
+        into.append(' ');
+        final Color movesNext = PackedHeader.movesNext(header);
+        into.append(movesNext == null ? '-' : color(movesNext));
+        into.append(' ');
+        final CastlingPossibilities castling = PackedHeader.castlingPossibilities(header);
+        if (castling.toInt() == 0) into.append('-');
+        else for (final Color color : Color.colors) {
+            final CastlingPossibilities.ColorEntry entry = castling.get(color);
+            if (!entry.k && !entry.q) continue;
+            into.append(color(color));
+            if (entry.k) into.append('K');
+            if (entry.q) into.append('Q');
+        }
+        into.append(' ');
+        final EnPassantStore enPassant = PackedHeader.enPassantStore(header);
+        into.append(enPassant.prev == null ? '-' : (char) ('a' + enPassant.prev));
+        into.append(enPassant.last == null ? '-' : (char) ('a' + enPassant.last));
+        into.append(' ');
+        final int moats = PackedHeader.moatsState(header).toInt();
+        //the moat before White is bw, bit 2; before Gray wg, bit 1; before Black gb, bit 0
+        if (moats == 0) into.append('-');
+        else for (int i = 0; i < 3; i++) if ((moats & 0b100 >> i) != 0) into.append(COLORS.charAt(i));
+        into.append(' ');
+        final int alive = PackedHeader.alivePlayers(header).toInt();
+        if (alive == 0) into.append('-');
+        else for (int i = 0; i < 3; i++) if ((alive & 0b100 >> i) != 0) into.append(COLORS.charAt(i));
+        into.append(' ');
+        into.append(PackedHeader.halfMoveClock(header));
+        into.append(' ');
+        into.append(PackedHeader.fullMoveNumber(header));
+    }
+
+    private static char color(@NotNull Color color) {
+        return COLORS.charAt(color.index - 1);
+    }
+
+    /**
+     * @return a new GameState on a new BitBoardImpl
+     * @throws IllegalArgumentException if the notation is malformed
+     */
+    @NotNull
+    public static GameState parse(@NotNull CharSequence notation) {
+        final BitBoardImpl board = new BitBoardImpl();
+        return PackedHeader.toGameState(board, parseInto(notation, board));
+    }
+
+    /**
+     * Parses the notation, the board into a board that is cleared first
+     *
+     * @return the header, see PackedHeader
+     * @throws IllegalArgumentException if the notation is malformed
+     */
+    public static long parseInto(@NotNull CharSequence notation, @NotNull BitBoardImpl board) {
+        board.clearAll();
+        final int length = notation.length();
+        int i = 0;
+        for (int rank = 5; rank >= 0; rank--) {
+            int file = 0;
+            while (file < 24) {
+                final char c = at(notation, i);
+                if (c >= '0' && c <= '9') {
+                    int run = 0;
+                    while (i < length && notation.charAt(i) >= '0' && notation.charAt(i) <= '9') {
+                        run = run * 10 + notation.charAt(i++) - '0';
+                        if (run > 24) throw malformed(notation, i - 1);
+                    }
+                    if (run == 0 || file + run > 24) throw malformed(notation, i);
+                    file += run;
+                    continue;
+                }
+                final int color = COLORS.indexOf(c) + 1;
+                if (color == 0) throw malformed(notation, i);
+                final char t = at(notation, i + 1);
+                final int type = t == 'p' ? FigType.Pawn.index : TYPES.indexOf(t) + 1;
+                if (type == 0) throw malformed(notation, i + 1);
+                board.put(square(rank, file++), (t == 'p' ? 1 << 6 : 0) | color << 3 | type);
+                i += 2;
+            }
+            if (rank > 0 && at(notation, i++) != '/') throw malformed(notation, i - 1);
+        }
+        i = space(notation, i);
+        final char next = at(notation, i++);
+        final int movesNext = next == '-' ? 0 : colorIndex(notation, i - 1);
+        i = space(notation, i);
+        int castling = 0;
+        if (at(notation, i) == '-') i++;
+        else do {
+            final int shift = 2 * (3 - colorIndex(notation, i));
+            if ((castling & 0b11 << shift) != 0) throw malformed(notation, i);
+            i++;
+            int rights = 0;
+            if (i < length && notation.charAt(i) == 'K') {
+                rights |= 0b10;
+                i++;
+            }
+            if (i < length && notation.charAt(i) == 'Q') {
+                rights |= 0b1;
+                i++;
+            }
+            if (rights == 0) throw malformed(notation, i);
+            castling |= rights << shift;
+        } while (i < length && notation.charAt(i) != ' ');
+        i = space(notation, i);
+        final Integer prev = file(notation, i++);
+        final Integer last = file(notation, i++);
+        i = space(notation, i);
+        int moats = 0;
+        if (at(notation, i) == '-') i++;
+        else while (i < length && notation.charAt(i) != ' ') moats |= colorBit(notation, i++, moats);
+        i = space(notation, i);
+        int alive = 0;
+        if (at(notation, i) == '-') i++;
+        else while (i < length && notation.charAt(i) != ' ') alive |= colorBit(notation, i++, alive);
+        i = space(notation, i);
+        int halfMoveClock = 0;
+        final int halfStart = i;
+        while (i < length && notation.charAt(i) != ' ') halfMoveClock = digit(notation, i++, halfMoveClock);
+        if (i == halfStart) throw malformed(notation, i);
+        i = space(notation, i);
+        int fullMoveNumber = 0;
+        final int fullStart = i;
+        while (i < length) fullMoveNumber = digit(notation, i++, fullMoveNumber);
+        if (i == fullStart) throw malformed(notation, i);
+        return PackedHeader.of(MoatsState.of(moats), Color.byIndex(movesNext),
+                CastlingPossibilities.of(castling), EnPassantStore.of(prev, last),
+                halfMoveClock, fullMoveNumber, PlayersAlive.of(alive));
+    }
+
+    private static char at(CharSequence notation, int i) {
+        if (i >= notation.length()) throw malformed(notation, i);
+        return notation.charAt(i);
+    }
+
+    private static int space(CharSequence notation, int i) {
+        if (at(notation, i) != ' ') throw malformed(notation, i);
+        return i + 1;
+    }
+
+    private static int colorIndex(CharSequence notation, int i) {
+        final int color = COLORS.indexOf(at(notation, i)) + 1;
+        if (color == 0) throw malformed(notation, i);
+        return color;
+    }
+
+    /**
+     * @param seen the bits of the colors already read
+     * @return the bit of the color at [i]
+     * @throws IllegalArgumentException if it is in [seen] already
+     */
+    private static int colorBit(CharSequence notation, int i, int seen) {
+        final int bit = 0b1000 >> colorIndex(notation, i);
+        if ((seen & bit) != 0) throw malformed(notation, i);
+        return bit;
+    }
+
+    private static Integer file(CharSequence notation, int i) {
+        final char c = at(notation, i);
+        if (c == '-') return null;
+        if (c < 'a' || c > 'x') throw malformed(notation, i);
+        return c - 'a';
+    }
+
+    private static int digit(CharSequence notation, int i, int number) {
+        final char c = notation.charAt(i);
+        if (c < '0' || c > '9' || number > PackedHeader.MAX_CLOCK) throw malformed(notation, i);
+        return number * 10 + c - '0';
+    }
+
+    private static IllegalArgumentException malformed(CharSequence notation, int i) {
+        return new IllegalArgumentException("malformed at " + i + ": " + notation);
+    }
+}
@@ -13,6 +13,138 @@ public class VecMove {
     public final BoundVec boundVec;
     public final GameState before;
 
+    /**
+     * status code: the move is legal (as far as the method called checks)
+     */
+    public static final int LEGAL = 0;
+    /**
+     * status code: checkPossibility would return an Impossibility
+     */
+    public static final int IMPOSSIBLE = 1;
+    /**
+     * status code: a pawn reaches the last rank without promotion
+     */
+    public static final int NEEDS_PROMOTION = 2;
+    /**
+     * status code: the move initiates a check thru a moat
+     */
+    public static final int CHECK_INITIATED_THRU_MOAT = 3;
+    /**
+     * status code: we would be in check after the move
+     */
+    public static final int WE_IN_CHECK = 4;
+
+    /**
+     * Outcome is a reusable result of the try… methods, an exception-free
+     * counterpart of the after… methods: it holds the status code
+     * and the state after the move, if legal.
+     * Only a diagnostic Outcome gets the Impossibility of an illegal move,
+     * as constructing it costs; the ordinary one just gets the status code.
+     */
+    public static class Outcome {
+        /**
+         * whether the Impossibility gets recorded
+         */
+        public final boolean diagnostic;
+        private int status = LEGAL;
+        private @Nullable GameState state;
+        private @Nullable BoundVec boundVec;
+        private @Nullable Impossibility impossibility;
+
+        public Outcome() {
+            this(false);
+        }
+
+        /**
+         * @param diagnostic whether to record the Impossibility of an illegal move
+         */
+        public Outcome(boolean diagnostic) {
+            this.diagnostic = diagnostic;
+        }
+
+        void reset(@NotNull BoundVec boundVec) {
+            this.boundVec = boundVec;
+            status = LEGAL;
+            state = null;
+            impossibility = null;
+        }
+
+        int fail(int status, @Nullable Impossibility impossibility) {
+            this.status = status;
+            this.impossibility = impossibility;
+            state = null;
+            return status;
+        }
+
+        @Contract(pure = true)
+        public int status() {
+            return status;
+        }
+
+        @Contract(pure = true)
+        public boolean isLegal() {
+            return status == LEGAL;
+        }
+
+        /**
+         * @return the state after the move, if it was legal and a state was made
+         */
+        @Contract(pure = true)
+        public @Nullable GameState state() {
+            return state;
+        }
+
+        /**
+         * @return why the move is illegal; null if it is legal, if it
+         * initiates a check thru a moat, needs promotion, or if not [diagnostic]
+         */
+        @Contract(pure = true)
+        public @Nullable Impossibility impossibility() {
+            return impossibility;
+        }
+
+        /**
+         * @return the IllegalMoveException the after… methods would throw,
+         * or null if the status is LEGAL or NEEDS_PROMOTION
+         * @throws IllegalStateException if it would need the Impossibility but not [diagnostic]
+         */
+        public @Nullable IllegalMoveException illegalMoveException() {
+            switch (status) {
+                case IMPOSSIBLE:
+                    return new ImpossibleMoveException(diagnosed());
+                case CHECK_INITIATED_THRU_MOAT:
+                    return new CheckInitiatedThruMoatException();
+                case WE_IN_CHECK:
+                    return new WeInCheckException((Impossibility.WeInCheck) diagnosed());
+            }
+            return null;
+        }
+
+        /**
+         * Throws what the after… methods would throw, if the move is illegal
+         *
+         * @throws IllegalStateException if it would need the Impossibility but not [diagnostic]
+         */
+        public void rethrow() throws NeedsToBePromotedException,
+                ImpossibleMoveException, CheckInitiatedThruMoatException {
+            if (status == NEEDS_PROMOTION) throw new NeedsToBePromotedException(boundVec);
+            final IllegalMoveException e = illegalMoveException();
+            if (e instanceof ImpossibleMoveException) throw (ImpossibleMoveException) e;
+            if (e instanceof CheckInitiatedThruMoatException) throw (CheckInitiatedThruMoatException) e;
+        }
+
+        @NotNull
+        private Impossibility diagnosed() {
+            if (impossibility == null) throw new IllegalStateException("not diagnostic");
+            return impossibility;
+        }
+
+        @Override
+        public String toString() {
+            return "Outcome:" + status + (impossibility == null ? "" : ":" + impossibility.msg());
+        }
+    }
+
     public VecMove(BoundVec boundVec, GameState before) {
         this.boundVec = boundVec;
         this.before = before;
@@ -59,16 +191,9 @@ public class VecMove {
     @Contract(pure = true)
     private boolean cannotWeEnPassant() {
         assert (boundVec.vec instanceof PawnCapVector);
-        if (toSquare() != null) return true;
-        if (before.enPassantStore.matchLast(boundVec.to))
-            //noinspection ConstantConditions
-            return !before.board.get(boundVec.to)
-                    .color.equals(who().previous());
-        if (before.enPassantStore.matchPrev(boundVec.to))
-            //noinspection ConstantConditions
-            return !before.board.get(boundVec.to)
-                    .color.equals(who().next());
-        return true;
+        if (toSquare() != null) return false;
+        return !PawnCapVector.enPassant(
+                before.board, who(), before.enPassantStore, boundVec.to);
     }
 
     @Contract(pure = true)
@@ -84,6 +209,11 @@ public class VecMove {
      */
     @Contract(pure = true)
     private boolean areNotAllEmpties() {
+        if (boundVec.vec instanceof PawnWalkVector && toSquare() != null)
+            return true;
+        if (boundVec.vec instanceof ContinuousVector)
+            return !((ContinuousVector) boundVec.vec)
+                    .areEmptiesBetween(before.board, boundVec.from);
         try {
             return !before.board.checkEmpties(boundVec.empties());
         } catch (VectorAdditionFailedException e) {
@@ -152,12 +282,53 @@ public class VecMove {
         return null;
     }
 
+    /**
+     * Same as checkPossibility().isPresent() negated, but not constructing
+     * the Impossibility
+     *
+     * @return whether the move is possible, check aside
+     */
+    @Contract(pure = true)
+    public boolean isPossible() {
+        return !isThereNothingToMoveHere()
+                && !doesntThatColorMoveNow()
+                && !(boundVec.vec instanceof PawnCapVector && cannotWeEnPassant())
+                && !areWeAttemptingToCapOurOwnPiece()
+                && !areNotAllEmpties()
+                && !(boundVec.vec instanceof CastlingVector && checkCastlingImpossibility())
+                && !areWeCapturingThruMoats()
+                && areWePassingAnUnbridgedMoat() == null;
+    }
+
+    @Contract(pure = true)
+    private boolean isNotPromotedDespiteSuchANeed() {
+        return (boundVec.vec instanceof PawnVector)
+                && !(boundVec.vec instanceof PawnPromVector)
+                && ((PawnVector) boundVec.vec).reqProm(boundVec.from.rank);
+    }
+
+    /**
+     * Exception-free counterpart of throwImpossibility
+     * and checkIfNotPromotedDespiteSuchANeed
+     *
+     * @param into where to put the outcome, or null
+     * @return LEGAL, IMPOSSIBLE or NEEDS_PROMOTION
+     */
+    public int status(@Nullable Outcome into) {
+        if (into != null) into.reset(boundVec);
+        if (into != null && into.diagnostic) {
+            final Impossibility impossibility = checkPossibility(true);
+            if (impossibility != null) return into.fail(IMPOSSIBLE, impossibility);
+        } else if (!isPossible()) return into == null ? IMPOSSIBLE : into.fail(IMPOSSIBLE, null);
+        if (isNotPromotedDespiteSuchANeed())
+            return into == null ? NEEDS_PROMOTION : into.fail(NEEDS_PROMOTION, null);
+        return LEGAL;
+    }
+
     @SuppressWarnings("Contract")
     @Contract(pure = true)
     public void checkIfNotPromotedDespiteSuchANeed() throws NeedsToBePromotedException {
-        if ((boundVec.vec instanceof PawnVector)
-                && !(boundVec.vec instanceof PawnPromVector)
-                && ((PawnVector) boundVec.vec).reqProm(boundVec.from.rank))
+        if (isNotPromotedDespiteSuchANeed())
             throw new NeedsToBePromotedException(boundVec);
     }
 
@@ -170,30 +341,19 @@ public class VecMove {
     }
 
     /**
+     * The moats on both sides of a player get bridged once the player
+     * has no own fig left on their segment of the first rank, or is dead
+     *
      * @param afterBoard the board after the move
      * @return MoatsState after the move
      */
     @Contract(pure = true)
     public MoatsState afterMoatsState(Board afterBoard) {
-        MoatsState moatsState = before.moatsState;
         if ((!(boundVec.vec instanceof CastlingVector))
                 && ((!(boundVec.vec instanceof PawnVector)) ||
-                (boundVec.vec instanceof PawnPromVector))) {
-            for (final Color current : Color.colors) {
-                if (moatsState.areBridgedOnBothSidesOf(current)) break;
-                if (!before.alivePlayers.get(current)) {
-                    moatsState = moatsState.bridgeOnBothSidesOf(current);
-                    break;
-                }
-                for (int i = current.segm() * 8; i < (current.segm() + 1) * 8; i++)
-                    //noinspection ConstantConditions
-                    if (afterBoard.get(0, i).color == current) {
-                        moatsState = moatsState.bridgeOnBothSidesOf(current);
-                        break;
-                    }
-            }
-        }
-        return moatsState;
+                (boundVec.vec instanceof PawnPromVector)))
+            return before.moatsState.bridgedWhereLeft(afterBoard, before.alivePlayers);
+        return before.moatsState;
     }
 
     /**
@@ -216,58 +376,18 @@ public class VecMove {
             Color who,
             Pos from
     ) {
-        switch (whatType) {
-            case King:
-                return CastlingPossibilities.ColorEntry.No;
-            case Rook:
-                if (from.rank == 0)
-                    switch (from.file - (who.segm() * 8)) {
-                        case 0:
-                            return colorCastling.offQueenside();
-                        case 7:
-                            return colorCastling.offKingside();
-                    }
-        }
-        return colorCastling;
+        return colorCastling.afterMoveFrom(whatType, who, from.toInt());
     }
 
     @Contract(pure = true)
     public CastlingPossibilities afterCastling() {
-        CastlingPossibilities castlingPossibilities =
-                before.castlingPossibilities.change(
-                        who(), afterColorCastling(
-                                before.castlingPossibilities.get(who()),
-                                what().type,
-                                who(),
-                                boundVec.from
-                        )
-                );
-        if (boundVec.to.rank == 0) switch (boundVec.to.file % 8) {
-            case 7:
-                Color segmCol = boundVec.to.colorSegm();
-                return castlingPossibilities.change(segmCol,
-                        castlingPossibilities.get(segmCol).offKingside());
-            case 0:
-                segmCol = boundVec.to.colorSegm();
-                return castlingPossibilities.change(segmCol,
-                        castlingPossibilities.get(segmCol).offQueenside());
-            case CastlingVector.kfm:
-                return castlingPossibilities
-                        .change(boundVec.to.colorSegm(),
-                                CastlingPossibilities.ColorEntry.No);
-        }
-        return castlingPossibilities;
+        return before.castlingPossibilities.afterMove(
+                who(), what().type, boundVec.from.toInt(), boundVec.to.toInt());
     }
 
     public boolean couldYouDoItEvenIfYouWouldGetChecked() {
-        try {
-            //noinspection ResultOfMethodCallIgnored
-            afterWOEvaluatingDeath();
-        } catch (NeedsToBePromotedException ignored) {
-        } catch (IllegalMoveException ignored) {
-            return false;
-        }
-        return true;
+        final int status = tryAfterWOEvaluatingDeath(false, null);
+        return status == LEGAL || status == NEEDS_PROMOTION;
     }
 
     @Contract(pure = true)
@@ -281,8 +401,23 @@ public class VecMove {
     @NotNull
     public GameState afterWOEvaluatingDeath(boolean useImmutableBoard) throws
             NeedsToBePromotedException, ImpossibleMoveException, CheckInitiatedThruMoatException {
-        throwImpossibility();
-        checkIfNotPromotedDespiteSuchANeed();
+        final Outcome outcome = new Outcome(true);
+        tryAfterWOEvaluatingDeath(useImmutableBoard, outcome);
+        outcome.rethrow();
+        assert outcome.state != null;
+        return outcome.state;
+    }
+
+    /**
+     * Exception-free counterpart of afterWOEvaluatingDeath
+     *
+     * @param useImmutableBoard whether the board after should be immutable
+     * @param into              where to put the outcome (and the state after), or null
+     * @return LEGAL, IMPOSSIBLE, NEEDS_PROMOTION or CHECK_INITIATED_THRU_MOAT
+     */
+    public int tryAfterWOEvaluatingDeath(boolean useImmutableBoard, @Nullable Outcome into) {
+        final int status = status(into);
+        if (status != LEGAL) return status;
         Board b;
         try {
             b = boundVec.vec.afterBoard(useImmutableBoard,
@@ -303,22 +438,73 @@ public class VecMove {
                     boundVec.to,
                     before.alivePlayers,
                     enPassantStore
-            )
-                    ) throw new CheckInitiatedThruMoatException();
+            ))
+                return into == null ? CHECK_INITIATED_THRU_MOAT
+                        : into.fail(CHECK_INITIATED_THRU_MOAT, null);
         }
-        return new GameState(
+        final MoatsState moatsState = afterMoatsState(b);
+        final Color movesNext = before.alivePlayers.get(before.movesNext.next())
+                ? before.movesNext.next()
+                : before.movesNext.previous();
+        final CastlingPossibilities castlingPossibilities = afterCastling();
+        long zobrist = before.zobrist()
+                ^ Zobrist.header(before.moatsState, before.movesNext,
+                before.castlingPossibilities, before.enPassantStore, before.alivePlayers)
+                ^ Zobrist.header(moatsState, movesNext,
+                castlingPossibilities, enPassantStore, before.alivePlayers);
+        for (final int square : touchedSquares())
+            zobrist ^= Zobrist.square(before.board, square) ^ Zobrist.square(b, square);
+        if (into != null) into.state = new GameState(
                 b,
-                afterMoatsState(b),
-                before.alivePlayers.get(before.movesNext.next())
-                        ? before.movesNext.next()
-                        : before.movesNext.previous(),
-                afterCastling(),
+                moatsState,
+                movesNext,
+                castlingPossibilities,
                 enPassantStore,
                 what().type == FigType.Pawn || toSquare() != null ? 0 :
                         before.halfMoveClock + 1,
                 before.fullMoveNumber + 1,
-                before.alivePlayers
+                before.alivePlayers,
+                zobrist
         );
+        return LEGAL;
+    }
+
+    /**
+     * @return indices of all the squares the move may change, without repetitions:
+     * from and to, the square of a pawn captured en passant, the rook's ones when castling
+     */
+    @Contract(pure = true)
+    @NotNull
+    public int[] touchedSquares() {
+        final int from = boundVec.from.toInt();
+        final int to = boundVec.to.toInt();
+        if (boundVec.vec instanceof PawnCapVector) {
+            final int enPassant = PawnCapVector.enPassantCaptured(to);
+            if (enPassant != from && enPassant != to)
+                return new int[]{from, to, enPassant};
+        } else if (boundVec.vec instanceof CastlingVector) {
+            final CastlingVector castling = (CastlingVector) boundVec.vec;
+            return new int[]{from, to, castling.rookFrom(from), castling.rookTo(from)};
+        }
+        return new int[]{from, to};
+    }
+
+    /**
+     * Exception-free counterpart of throwCheck
+     *
+     * @param next      the state after a move
+     * @param whatColor the color that has just moved
+     * @param into      where to record the outcome, or null; its state is not touched if LEGAL
+     * @return LEGAL or WE_IN_CHECK
+     */
+    public static int checkStatus(GameState next, Color whatColor, @Nullable Outcome into) {
+        if (into == null || !into.diagnostic)
+            return !next.isInCheck(whatColor) ? LEGAL
+                    : into == null ? WE_IN_CHECK : into.fail(WE_IN_CHECK, null);
+        Optional<Pos> heyItsCheck = next.amIinCheck(whatColor).findFirst();
+        return heyItsCheck.isPresent()
+                ? into.fail(WE_IN_CHECK, new Impossibility.WeInCheck(heyItsCheck.get()))
+                : LEGAL;
     }
 
     public static void throwCheck(GameState next, Color whatColor)
@@ -352,8 +538,49 @@ public class VecMove {
             CheckInitiatedThruMoatException,
             ImpossibleMoveException,
             NeedsToBePromotedException {
-        return evaluateDeathThrowingCheck(
-                afterWOEvaluatingDeath(useImmutableBoard),
-                who());
+        final Outcome outcome = new Outcome(true);
+        tryAfter(useImmutableBoard, outcome);
+        outcome.rethrow();
+        return outcome.state;
     }
+
+    /**
+     * Exception-free counterpart of after
+     *
+     * @param useImmutableBoard whether the board after should be immutable
+     * @param into              where to put the outcome (and the state after), or null
+     * @return one of the status codes
+     */
+    public int tryAfter(boolean useImmutableBoard, @Nullable Outcome into) {
+        return tryAfter(useImmutableBoard, true, into);
+    }
+
+    /**
+     * Exception-free counterpart of after, checking check
+     * but evaluating death only if asked to
+     *
+     * @param useImmutableBoard whether the board after should be immutable
+     * @param evaluateDeath     whether to evaluate death after the move
+     * @param into              where to put the outcome (and the state after), or null
+     * @return one of the status codes
+     */
+    public int tryAfter(boolean useImmutableBoard, boolean evaluateDeath, @Nullable Outcome into) {
+        if (into == null) {
+            final Outcome outcome = scratch.get();
+            final int status = tryAfter(useImmutableBoard, false, outcome);
+            outcome.state = null;
+            return status;
+        }
+        final int status = tryAfterWOEvaluatingDeath(useImmutableBoard, into);
+        if (status != LEGAL) return status;
+        assert into.state != null;
+        if (checkStatus(into.state, who(), into) != LEGAL) return WE_IN_CHECK;
+        if (evaluateDeath) into.state = evaluateDeath(into.state);
+        return LEGAL;
+    }
+
+    /**
+     * the Outcome of the calls of tryAfter without one, reused by every thread
+     */
+    private static final ThreadLocal<Outcome> scratch = ThreadLocal.withInitial(Outcome::new);
 }
@@ -0,0 +1,142 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.SplittableRandom;
+
+import static pl.edu.platinum.archiet.jchess3man.engine.BitBoard.SQUARES;
+
+/**
+ * Zobrist keys of game states: a 64-bit key is the xor of a random key
+ * for every fig on its square (by its seven-bit code, so pawnCenter counts),
+ * and of random keys for MoatsState, CastlingPossibilities, both files
+ * of EnPassantStore, movesNext and PlayersAlive.
+ * Clocks are not a part of the key.
+ * The keys are generated from a fixed seed, so they are the same in every run
+ * and a key may be stored.
+ */
+public final class Zobrist {
+    private Zobrist() {
+    }
+
+    private static final long[] pieces = new long[SQUARES * 128];
+    private static final long[] moats = new long[8];
+    private static final long[] castling = new long[64];
+    private static final long[] enPassantPrev = new long[25];
+    private static final long[] enPassantLast = new long[25];
+    private static final long[] movesNext = new long[4];
+    private static final long[] alive = new long[8];
+
+    static {
+        final SplittableRandom random = new SplittableRandom(0x3A4E_C4E5_5B0A_2D17L);
+        for (int sq = 0; sq < SQUARES; sq++)
+            for (int code = 1; code < 128; code++)
+                pieces[sq * 128 + code] = random.nextLong();
+        for (int i = 0; i < moats.length; i++) moats[i] = random.nextLong();
+        for (int i = 0; i < castling.length; i++) castling[i] = random.nextLong();
+        for (int i = 0; i < 24; i++) {
+            enPassantPrev[i] = random.nextLong();
+            enPassantLast[i] = random.nextLong();
+        }
+        for (int i = 1; i < movesNext.length; i++) movesNext[i] = random.nextLong();
+        for (int i = 0; i < alive.length; i++) alive[i] = random.nextLong();
+    }
+
+    /**
+     * @param square   square index
+     * @param sevenBit seven-bit code of a fig, as in Fig.sevenBitInt, 0 if empty
+     * @return the key of that fig on that square, 0 for an empty square
+     */
+    @Contract(pure = true)
+    public static long piece(int square, int sevenBit) {
+        return pieces[square * 128 + sevenBit];
+    }
+
+    @Contract(pure = true)
+    public static long moats(@NotNull MoatsState moatsState) {
+        return moats[moatsState.toInt()];
+    }
+
+    @Contract(pure = true)
+    public static long castling(@NotNull CastlingPossibilities castlingPossibilities) {
+        return castling[castlingPossibilities.toInt()];
+    }
+
+    @Contract(pure = true)
+    public static long enPassant(@NotNull EnPassantStore enPassantStore) {
+        return enPassantPrev[enPassantStore.prev == null ? 24 : enPassantStore.prev]
+                ^ enPassantLast[enPassantStore.last == null ? 24 : enPassantStore.last];
+    }
+
+    @Contract(pure = true)
+    public static long movesNext(@Nullable Color color) {
+        return movesNext[color == null ? 0 : color.index];
+    }
+
+    @Contract(pure = true)
+    public static long alive(@NotNull PlayersAlive playersAlive) {
+        return alive[playersAlive.toInt()];
+    }
+
+    /**
+     * @param board  the board
+     * @param square square index
+     * @return seven-bit code of what stands on the square, 0 if empty
+     */
+    static int sevenBit(@NotNull Board board, int square) {
+        return board.getCode(square / 24, square % 24);
+    }
+
+    /**
+     * @param board  the board
+     * @param square square index
+     * @return the key of what stands on the square
+     */
+    public static long square(@NotNull Board board, int square) {
+        return piece(square, sevenBit(board, square));
+    }
+
+    /**
+     * @param board the board
+     * @return xor of the keys of all the figs on the board
+     */
+    public static long board(@NotNull Board board) {
+        long ret = 0;
+        if (board instanceof BitBoard) {
+            final BitBoard b = (BitBoard) board;
+            for (int w = 0; w < BitBoard.WORDS; w++)
+                for (long s = b.occupiedWord(w); s != 0; s &= s - 1) {
+                    final int sq = BitBoard.squareOf(w, Long.numberOfTrailingZeros(s));
+                    ret ^= piece(sq, b.sevenBit(sq));
+                }
+        } else for (int sq = 0; sq < SQUARES; sq++)
+            ret ^= square(board, sq);
+        return ret;
+    }
+
+    /**
+     * @return xor of the keys of everything but the board
+     */
+    @Contract(pure = true)
+    public static long header(@NotNull MoatsState moatsState,
+                              @Nullable Color movesNext,
+                              @NotNull CastlingPossibilities castlingPossibilities,
+                              @NotNull EnPassantStore enPassantStore,
+                              @NotNull PlayersAlive alivePlayers) {
+        return moats(moatsState) ^ movesNext(movesNext) ^ castling(castlingPossibilities)
+                ^ enPassant(enPassantStore) ^ alive(alivePlayers);
+    }
+
+    /**
+     * Computes the key from scratch
+     *
+     * @param state the game state
+     * @return its key
+     */
+    public static long of(@NotNull GameState state) {
+        return board(state.board) ^ header(state.moatsState, state.movesNext,
+                state.castlingPossibilities, state.enPassantStore, state.alivePlayers);
+    }
+}
@@ -0,0 +1,72 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.edu.platinum.archiet.jchess3man.engine.AttackTables.*;
+
+class AttackTablesTest {
+    private static int mask(Iterable<Color> moats) {
+        int ret = 0;
+        for (final Color color : moats) ret |= moatBit(color);
+        return ret;
+    }
+
+    @Test
+    void vectorsLandWhereTheySay() throws VectorAdditionFailedException {
+        for (int from = 0; from < BitBoard.SQUARES; from++)
+            for (int to = 0; to < BitBoard.SQUARES; to++)
+                for (final ContinuousVector vec : continuousVectors(pos(from), pos(to)))
+                    assertEquals(pos(to), vec.addTo(pos(from)), vec.toString());
+    }
+
+    @Test
+    void betweenIsStrictlyBetween() {
+        for (int sq = 0; sq < BitBoard.SQUARES; sq++)
+            for (int dir = 0; dir < DIRECTIONS; dir++) {
+                final int[] ray = ray(sq, dir);
+                for (int abs = 1; abs <= ray.length; abs++) {
+                    final List<Pos> between = between(sq, dir, abs);
+                    assertNotNull(between);
+                    assertEquals(abs - 1, between.size());
+                    int bits = 0;
+                    for (int w = 0; w < BitBoard.WORDS; w++)
+                        bits += Long.bitCount(betweenWord(sq, dir, abs, w));
+                    assertEquals(abs - 1, bits);
+                    for (int i = 0; i < abs - 1; i++)
+                        assertEquals(pos(ray[i]), between.get(i));
+                }
+            }
+    }
+
+    @Test
+    void moatsAsBefore() {
+        for (int file = 0; file < 24; file++)
+            for (int abs = 1; abs <= MAX_ABS; abs++) {
+                assertEquals(mask(new FileVector(abs, true).moats(file)),
+                        moatsAt(file, FILE_PLUS, abs));
+                assertEquals(mask(new FileVector(abs, false).moats(file)),
+                        moatsAt(file, FILE_MINUS, abs));
+            }
+        for (int sq = 0; sq < BitBoard.SQUARES; sq++)
+            for (int dir = DIAG_IN_PLUS; dir <= DIAG_OUT_MINUS; dir++)
+                for (int abs = 1; abs <= ray(sq, dir).length; abs++) {
+                    //noinspection ConstantConditions
+                    if (((DiagonalVector) vector(dir, abs)).thruCenter(sq / 24)) continue;
+                    //noinspection ConstantConditions
+                    final Color moat = ((DiagonalVector) vector(dir, abs)).moat(pos(sq));
+                    assertEquals(moat == null ? 0 : moatBit(moat), moatsAt(sq, dir, abs));
+                }
+    }
+
+    @Test
+    void newGame() {
+        assertEquals(20, GameState.newGame.genDescMoves().count());
+        assertFalse(areEmptiesBetween(NewGameBoardImpl.c, 0, RANK_INWARD, 3));
+        assertTrue(areEmptiesBetween(new BitBoardImpl(NewGameBoardImpl.c),
+                new Pos(1, 0).toInt(), RANK_INWARD, 3));
+        AMFT.showAMFT(new Pos(0, 0), 12);
+    }
+}
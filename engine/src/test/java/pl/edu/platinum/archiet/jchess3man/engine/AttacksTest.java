@@ -0,0 +1,86 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttacksTest {
+    /**
+     * @return whether the fig on [from] threatens [to] the old way, a VecMove per vector;
+     * a pawn walk never captures, so it is left out
+     */
+    private static boolean reference(GameState state, Pos from, Pos to) {
+        final Fig fig = state.board.get(from);
+        assert fig != null;
+        final List<Vector> vecs = new ArrayList<>();
+        for (final Vector vec : fig.vecs(from, to))
+            if (!(vec instanceof PawnWalkVector)) vecs.add(vec);
+        return state.board.isThereAThreat(to, from, state.alivePlayers, state.enPassantStore, vecs);
+    }
+
+    @Test
+    void asReferenceInRandomGames() {
+        final Random random = new Random(11);
+        final MoveList moves = new MoveList();
+        int attacked = 0;
+        for (int game = 0; game < 2; game++) {
+            GameState state = GameState.newGame;
+            for (int ply = 0; ply < 60 && state.alivePlayers.equals(PlayersAlive.all); ply++) {
+                final BitBoard board = new BitBoardImpl(state.board);
+                for (int to = 0; to < BitBoard.SQUARES; to++) {
+                    final Fig victim = board.get(AttackTables.pos(to));
+                    if (victim == null) continue;
+                    for (final Color by : Color.colors) {
+                        if (by == victim.color) continue;
+                        boolean expected = false;
+                        for (int from = 0; from < BitBoard.SQUARES && !expected; from++) {
+                            final Fig fig = board.get(AttackTables.pos(from));
+                            expected = fig != null && fig.color == by
+                                    && reference(state, AttackTables.pos(from), AttackTables.pos(to));
+                        }
+                        assertEquals(expected, Attacks.isAttackedBy(board, to, by),
+                                by + " on " + AttackTables.pos(to) + "\n" + board.string());
+                        if (expected) attacked++;
+                    }
+                }
+                for (final Color who : Color.colors)
+                    assertEquals(state.amIinCheck(who).count() > 0, state.isInCheck(who));
+                moves.clear();
+                MoveGenerator.generate(state, moves);
+                final List<GameState> afters = new ArrayList<>();
+                for (int i = 0; i < moves.size(); i++)
+                    try {
+                        afters.add(new VecMove(PackedMove.toBoundVec(moves.get(i)), state).after());
+                    } catch (IllegalMoveException | NeedsToBePromotedException ignored) {
+                    }
+                if (afters.isEmpty()) break;
+                state = afters.get(random.nextInt(afters.size()));
+            }
+        }
+        assertTrue(attacked > 0);
+    }
+
+    @Test
+    void moatsAndCenter() {
+        final BitBoardImpl board = new BitBoardImpl();
+        board.put(new Pos(0, 0), new Fig.Rook(Color.White));
+        board.put(new Pos(0, 23), new Fig.King(Color.Black));
+        board.put(new Pos(5, 0), new Fig.Queen(Color.Gray));
+        board.put(new Pos(5, 12), new Fig.King(Color.White));
+        //the moat between Black and White is never crossed by a capture
+        assertFalse(Attacks.isAttackedBy(board, new Pos(0, 23).toInt(), Color.White));
+        //but the rank thru the center is
+        assertTrue(Attacks.isAttackedBy(board, new Pos(5, 12).toInt(), Color.Gray));
+        board.put(new Pos(4, 0), new Fig.Pawn(Color.Black));
+        assertTrue(Attacks.isAttackedBy(board, new Pos(5, 12).toInt(), Color.Gray));
+        board.put(new Pos(5, 12), null);
+        board.put(new Pos(4, 12), new Fig.King(Color.White));
+        assertTrue(Attacks.isAttackedBy(board, new Pos(4, 12).toInt(), Color.Gray));
+        board.put(new Pos(5, 12), new Fig.Knight(Color.Black));
+        assertFalse(Attacks.isAttackedBy(board, new Pos(4, 12).toInt(), Color.Gray));
+    }
+}
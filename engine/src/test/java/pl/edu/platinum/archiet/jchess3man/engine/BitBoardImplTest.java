@@ -0,0 +1,71 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitBoardImplTest {
+    @Test
+    void newGame() {
+        final BitBoardImpl b = new BitBoardImpl(NewGameBoardImpl.c);
+        System.out.println(b.string());
+        for (int sq = 0; sq < BitBoard.SQUARES; sq++) {
+            final Pos pos = Board.idx(true, sq);
+            assertEquals(NewGameBoardImpl.c.get(pos), b.get(pos));
+        }
+        for (final Color color : Color.colors) {
+            assertEquals(16, b.count(color));
+            assertEquals(NewGameBoardImpl.c.whereIsKing(color), b.whereIsKing(color));
+        }
+        assertEquals(16, b.friendsAndOthers(Color.White, PlayersAlive.all).v1.count());
+        assertEquals(32, b.friendsAndOthers(Color.White, PlayersAlive.all).v2.count());
+    }
+
+    @Test
+    void putClrMove() {
+        final BitBoardImpl b = new BitBoardImpl();
+        final Fig queen = Fig.fromSevenBit(Fig.toSevenBitInt(
+                new Fig.Queen(Color.Gray)));
+        b.put(3, 7, queen);
+        assertEquals(queen, b.get(3, 7));
+        assertFalse(b.isEmpty(3, 7));
+        b.move(new Pos(3, 7), new Pos(2, 20));
+        assertTrue(b.isEmpty(3, 7));
+        assertEquals(queen, b.get(2, 20));
+        b.clr(2, 20);
+        assertEquals(0, b.count(Color.Gray));
+    }
+
+    @Test
+    void immutable() {
+        final ImmutableBitBoardImpl i = new BitBoardImpl(NewGameBoardImpl.c).immutable();
+        final ImmutableBitBoardImpl j = i.clr(0, 4);
+        assertNotNull(i.get(0, 4));
+        assertNull(j.get(0, 4));
+        assertEquals(15, j.count(Color.White));
+    }
+
+    @Test
+    void kingsAndPieces() {
+        final java.util.Random random = new java.util.Random(23);
+        final BitBoardImpl b = new BitBoardImpl(NewGameBoardImpl.c);
+        final MutableArrayBoardImpl reference = new MutableArrayBoardImpl();
+        reference.fill(NewGameBoardImpl.c);
+        final int[] pieces = new int[BitBoard.SQUARES];
+        for (int i = 0; i < 2000; i++) {
+            final int square = random.nextInt(BitBoard.SQUARES);
+            final int code = random.nextInt(4) == 0 ? 0 : (random.nextInt(3) + 1) << 3
+                    | (random.nextInt(3) == 0 ? FigType.King.index : random.nextInt(6) + 1);
+            if (random.nextBoolean()) b.put(square, code);
+            else b.move(random.nextInt(BitBoard.SQUARES), square);
+            if (i % 7 == 0) b.fill(b.mutableCopy());
+            reference.fill(b);
+            for (final Color color : Color.colors) {
+                assertEquals(reference._whereIsKing(color), b._whereIsKing(color));
+                final int n = b.pieces(color, pieces);
+                assertEquals(b.count(color), n);
+                for (int j = 0; j < n; j++) assertEquals(color, b.get(AttackTables.pos(pieces[j])).color);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionTest {
+    @Test
+    void bothModesRun() throws ExecutionException, InterruptedException {
+        for (final Execution.Mode mode : Execution.Mode.values()) {
+            final ExecutorService executor = Execution.newExecutor(mode);
+            try {
+                final String name = executor.submit(() -> Thread.currentThread().toString()).get();
+                assertEquals(mode == Execution.Mode.Virtual && Execution.virtualThreadsAvailable(),
+                        name.startsWith("VirtualThread"), name);
+            } finally {
+                executor.shutdown();
+            }
+            assertTrue(Execution.threadFactory(Execution.Mode.Platform).newThread(() -> {
+            }).isDaemon());
+        }
+    }
+
+    @Test
+    void modeFollowsTheProperty() {
+        final String before = System.getProperty(Execution.PROPERTY);
+        try {
+            System.clearProperty(Execution.PROPERTY);
+            assertEquals(Execution.Mode.Platform, Execution.mode());
+            System.setProperty(Execution.PROPERTY, "virtual");
+            assertEquals(Execution.virtualThreadsAvailable() ? Execution.Mode.Virtual : Execution.Mode.Platform,
+                    Execution.mode());
+        } finally {
+            if (before == null) System.clearProperty(Execution.PROPERTY);
+            else System.setProperty(Execution.PROPERTY, before);
+        }
+    }
+}
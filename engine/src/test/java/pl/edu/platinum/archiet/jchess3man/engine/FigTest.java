@@ -0,0 +1,40 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FigTest {
+    @Test
+    void canonical() {
+        for (final Color color : Color.colors)
+            for (final FigType type : FigType.values()) {
+                final Fig fig = Fig.subClass(type, color, false);
+                assertNotNull(fig);
+                assertEquals(type, fig.type);
+                assertEquals(color, fig.color);
+                assertSame(fig, Fig.fromSevenBit(fig.sevenBitInt()));
+                assertSame(fig, Fig.subClass(type, color));
+            }
+        final Fig pc = Fig.subClass(FigType.Pawn, Color.Gray, true);
+        assertEquals(new Fig.Pawn(Color.Gray, true), pc);
+        assertSame(pc, Fig.fromSevenBit(pc.sevenBitInt()));
+        assertNotSame(pc, Fig.subClass(FigType.Pawn, Color.Gray, false));
+        assertNull(Fig.fromSevenBit(0));
+    }
+
+    @Test
+    void getCode() {
+        final Board[] boards = {NewGameBoardImpl.c, new BitBoardImpl(NewGameBoardImpl.c),
+                NewGameBoardImpl.c.mutableCopy(), new FunHashMapBoardImpl(NewGameBoardImpl.c)};
+        final MutableArrayBoardImpl array = new MutableArrayBoardImpl();
+        array.fill(NewGameBoardImpl.c);
+        for (final Board board : boards)
+            for (final Pos pos : new AllPosIterable()) {
+                assertEquals(Fig.toSevenBitInt(NewGameBoardImpl.c.get(pos)), board.getCode(pos));
+                assertEquals(board.getCode(pos), array.getCode(pos));
+            }
+        for (final Color color : Color.colors)
+            assertSame(NewGameBoardImpl.c.get(Pos.newGameKingPos(color)), array.get(Pos.newGameKingPos(color)));
+    }
+}
@@ -2,6 +2,8 @@ package pl.edu.platinum.archiet.jchess3man.engine;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 /**
  * Created by Michał Krzysztof Feiler on 26.03.17.
  */
@@ -33,4 +35,15 @@ class Fun1DSeqBoardImplTest {
         System.out.println(board.string());
     }
 
-}
\ No newline at end of file
+    @Test
+    void put() {
+        for (final boolean rnf : new boolean[]{true, false}) {
+            final Fun1DSeqBoardImpl board = new Fun1DSeqBoardImpl(NewGameBoardImpl.c, rnf)
+                    .put(0, 3, null).put(2, 5, new Fig.Queen(Color.Gray));
+            assertEquals(144, board.b.length());
+            assertNull(board.get(0, 3));
+            assertEquals(new Fig.Queen(Color.Gray), board.get(2, 5));
+            assertEquals(NewGameBoardImpl.c.get(0, 4), board.get(0, 4));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecordTest {
+    @Test
+    void writeAndReplayRandomGames() throws IOException, IllegalMoveException, NeedsToBePromotedException {
+        final Random random = new Random(47);
+        final MoveList moves = new MoveList();
+        final StringWriter text = new StringWriter();
+        final List<List<GameState>> games = new ArrayList<>();
+        try (GameRecordWriter writer = new GameRecordWriter(text)) {
+            for (int game = 0; game < 5; game++) {
+                final Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", "game \"" + game + "\" \\o/");
+                GameState state = game == 4
+                        ? StateNotation.parse(StateNotation.write(games.get(0).get(20)))
+                        : GameState.newGame;
+                writer.startGame(tags, state);
+                final List<GameState> states = new ArrayList<>();
+                states.add(state);
+                for (int ply = 0; ply < 150 && state.alivePlayers.get(state.movesNext); ply++) {
+                    moves.clear();
+                    MoveGenerator.generateLegal(state, moves);
+                    if (moves.isEmpty()) break;
+                    final int move = moves.get(random.nextInt(moves.size()));
+                    writer.move(move);
+                    state = new VecMove(PackedMove.toBoundVec(move), state).after();
+                    states.add(state);
+                }
+                games.add(states);
+            }
+        }
+        try (GameRecordReader reader = new GameRecordReader(new StringReader(text.toString()))) {
+            for (int game = 0; game < games.size(); game++) {
+                assertTrue(reader.nextGame());
+                assertEquals("game \"" + game + "\" \\o/", reader.tags().get("Event"));
+                final List<GameState> states = games.get(game);
+                assertEquals(states.get(0), reader.state().view());
+                int ply = 0;
+                while (reader.nextMove())
+                    assertEquals(states.get(++ply), reader.state().view());
+                assertEquals(states.size() - 1, ply);
+                assertEquals(ply, reader.ply());
+            }
+            assertFalse(reader.nextGame());
+        }
+    }
+
+    @Test
+    void skipsAndReports() throws IOException {
+        final String text = "[White \"a\"]\n\n1. e1e3 {a comment} m1m3 u1u3 2. a1a3 *\n"
+                + "[White \"b\"]\n1. e1e4\n\n"
+                + "[White \"c\"]\n1. e1e3 m1m3 u1u3 2. a1a3 x9\n";
+        try (GameRecordReader reader = new GameRecordReader(new StringReader(text))) {
+            assertTrue(reader.nextGame());
+            assertTrue(reader.nextMove());
+            assertEquals("e1e3", GameRecord.moveText(reader.move()));
+            assertTrue(reader.nextGame());
+            assertEquals("b", reader.tags().get("White"));
+            final IOException illegal = assertThrows(IOException.class, reader::nextMove);
+            assertTrue(illegal.getMessage().startsWith("line 5"), illegal.getMessage());
+            assertTrue(reader.nextGame());
+            for (int i = 0; i < 4; i++) assertTrue(reader.nextMove());
+            assertThrows(IOException.class, reader::nextMove);
+        }
+    }
+}
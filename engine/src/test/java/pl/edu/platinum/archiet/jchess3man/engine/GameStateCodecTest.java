@@ -0,0 +1,51 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStateCodecTest {
+    @Test
+    void roundTripInRandomGames() {
+        final List<GameState> states = RandomGames.states(37, 1, 80);
+        final int count = states.size();
+        final ByteBuffer heap = ByteBuffer.allocate(GameStateCodec.BYTES * count);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(GameStateCodec.BYTES * count);
+        final BitBoardImpl into = new BitBoardImpl();
+        for (int i = 0; i < count; i++) {
+            GameStateCodec.write(states.get(i), heap);
+            GameStateCodec.write(new MutableGameState(states.get(i)), direct, i * GameStateCodec.BYTES);
+        }
+        heap.flip();
+        for (int i = 0; i < count; i++) {
+            final GameState read = GameStateCodec.read(heap);
+            assertEquals(read, GameStateCodec.read(direct, i * GameStateCodec.BYTES));
+            final long header = GameStateCodec.readInto(direct, i * GameStateCodec.BYTES, into);
+            assertEquals(read, PackedHeader.toGameState(into, header));
+            if (i == 0) assertEquals(GameState.newGame, read);
+        }
+        assertFalse(heap.hasRemaining());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void rejectsInvalidCodes() {
+        final ByteBuffer buffer = ByteBuffer.allocate(GameStateCodec.BYTES);
+        GameStateCodec.write(GameState.newGame, buffer, 0);
+        buffer.put(50, (byte) (Color.White.index << 3 | 7));
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.read(buffer, 0));
+        buffer.put(50, (byte) (1 << 6 | Color.White.index << 3 | FigType.Rook.index));
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.read(buffer, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> GameStateCodec.read(buffer, 1));
+        for (final Pos pos : new AllPosIterable()) {
+            final Fig fig = GameState.newGame.board.get(pos);
+            if (fig != null) assertTrue(GameStateCodec.isValidCode(fig.sevenBitInt()));
+        }
+        assertTrue(GameStateCodec.isValidCode(1 << 6 | Color.Black.index << 3 | FigType.Pawn.index));
+        assertFalse(GameStateCodec.isValidCode(FigType.Queen.index));
+        assertFalse(GameStateCodec.isValidCode(Color.Gray.index << 3));
+    }
+}
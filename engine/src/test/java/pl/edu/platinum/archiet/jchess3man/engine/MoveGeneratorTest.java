@@ -0,0 +1,155 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+    private static final FigType[] proms = {
+            FigType.Queen, FigType.Rook, FigType.Bishop, FigType.Knight};
+
+    /**
+     * @return pseudo-legal moves the old way: all AMFT candidates, all vecs, checkPossibility
+     */
+    private static int[] reference(GameState state) {
+        final List<Integer> ret = new ArrayList<>();
+        for (final Pos from : new AllPosIterable()) {
+            final Fig fig = state.board.get(from);
+            if (fig == null || fig.color != state.movesNext) continue;
+            for (final Pos to : AMFT.getIterableFor(from))
+                for (final Vector vec : fig.vecs(from, to)) {
+                    final List<BoundVec> boundVecs = new ArrayList<>();
+                    try {
+                        boundVecs.add(new BoundVec(vec, from));
+                    } catch (VectorAdditionFailedException ignored) {
+                    } catch (NeedsToBePromotedException e) {
+                        for (final FigType prom : proms)
+                            try {
+                                boundVecs.add(new BoundVec(
+                                        PawnPromVector.fromPawnVector((PawnVector) vec, prom), from));
+                            } catch (VectorAdditionFailedException | NeedsToBePromotedException e1) {
+                                throw new AssertionError(e1);
+                            }
+                    }
+                    for (final BoundVec boundVec : boundVecs)
+                        if (!new VecMove(boundVec, state).checkPossibility().isPresent())
+                            ret.add(PackedMove.of(boundVec, state.board));
+                }
+        }
+        final int[] array = ret.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static int[] generated(GameState state) {
+        final MoveList list = new MoveList();
+        MoveGenerator.generate(state, list);
+        final int[] array = list.toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    @Test
+    void asReferenceInRandomGames() {
+        for (final GameState state : RandomGames.states(7, 2, 40))
+            if (state.alivePlayers.equals(PlayersAlive.all))
+                assertArrayEquals(reference(state), generated(state));
+    }
+
+    @Test
+    void legalAsTryAfterInRandomGames() {
+        final MoveList pseudo = new MoveList();
+        final MoveList legal = new MoveList();
+        int checks = 0;
+        for (final GameState state : RandomGames.states(13, 4, 80)) {
+            if (!state.alivePlayers.get(state.movesNext)) continue;
+            pseudo.clear();
+            MoveGenerator.generate(state, pseudo);
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < pseudo.size(); i++) {
+                final VecMove.Outcome outcome = new VecMove.Outcome();
+                try {
+                    new VecMove(PackedMove.toBoundVec(pseudo.get(i)), state)
+                            .tryAfter(false, outcome);
+                } catch (NeedsToBePromotedException e) {
+                    throw new AssertionError(e);
+                }
+                if (outcome.isLegal()) expected.add(pseudo.get(i));
+            }
+            legal.clear();
+            MoveGenerator.generateLegal(state, legal);
+            final int[] array = legal.toArray();
+            Arrays.sort(array);
+            final int[] expectedArray = expected.stream().mapToInt(Integer::intValue).sorted().toArray();
+            assertArrayEquals(expectedArray, array, state.board.string());
+            if (state.isInCheck(state.movesNext)) checks++;
+        }
+        assertTrue(checks > 0);
+    }
+
+    @Test
+    void hasLegalMoveAsGenerateLegalInRandomGames() {
+        final MoveList legal = new MoveList();
+        for (final GameState state : RandomGames.states(17, 4, 80)) {
+            final BitBoard board = new BitBoardImpl(state.board);
+            for (final Color who : Color.colors) {
+                legal.clear();
+                MoveGenerator.generateLegal(board, who, state.moatsState, state.castlingPossibilities,
+                        state.enPassantStore, state.alivePlayers, legal);
+                assertEquals(legal.size() > 0, MoveGenerator.hasLegalMove(board, who, state.moatsState,
+                        state.castlingPossibilities, state.enPassantStore, state.alivePlayers),
+                        who + "\n" + board.string());
+            }
+        }
+    }
+
+    @Test
+    void enPassant() throws IllegalMoveException, NeedsToBePromotedException,
+            VectorAdditionFailedException {
+        final BitBoardImpl board = new BitBoardImpl(NewGameBoardImpl.c);
+        board.put(3, 4, new Fig.Pawn(Color.Gray, true));
+        GameState state = new GameState(GameState.newGame, board, null, null, null, null, null, null, null);
+        state = new VecMove(new PawnLongJumpVector(), new Pos(1, 3), state).after();
+        assertEquals(Color.Gray, state.movesNext);
+        final int[] moves = generated(state);
+        assertArrayEquals(reference(state), moves);
+        int enPassant = PackedMove.NONE;
+        for (final int move : moves) if (PackedMove.isEnPassant(move)) enPassant = move;
+        assertEquals(new Pos(3, 4).toInt(), PackedMove.from(enPassant));
+        assertEquals(new Pos(2, 3).toInt(), PackedMove.to(enPassant));
+        final GameState after = new VecMove(PackedMove.toBoundVec(enPassant), state).after();
+        assertNull(after.board.get(3, 3));
+        assertNull(after.board.get(3, 4));
+        assertEquals(new Fig.Pawn(Color.Gray, true), after.board.get(2, 3));
+    }
+
+    @Test
+    void crossingAndPromotion() throws IllegalMoveException, NeedsToBePromotedException {
+        final BitBoardImpl board = new BitBoardImpl(NewGameBoardImpl.c);
+        board.put(5, 1, new Fig.Pawn(Color.White, false));
+        board.put(1, 19, new Fig.Pawn(Color.White, true));
+        board.clr(0, 19);
+        final GameState state = new GameState(GameState.newGame, board, null, null, null, null, null, null, null);
+        final int[] moves = generated(state);
+        assertArrayEquals(reference(state), moves);
+        int promotions = 0;
+        for (final int move : moves) {
+            if (PackedMove.promotion(move) != null) promotions++;
+            if (PackedMove.from(move) == new Pos(5, 1).toInt()
+                    && PackedMove.kind(move) == PackedMove.PAWN_WALK) {
+                final GameState after = new VecMove(PackedMove.toBoundVec(move), state).after();
+                assertEquals(new Fig.Pawn(Color.White, true), after.board.get(5, 13));
+            }
+        }
+        //walk onto (0,19) and captures onto (0,18) and (0,20)
+        assertEquals(12, promotions);
+        final int promotion = PackedMove.of(new Pos(1, 19).toInt(), new Pos(0, 19).toInt(),
+                PackedMove.PAWN_WALK, AttackTables.RANK_OUTWARD, 0, FigType.Knight.index, false);
+        assertEquals(new Fig.Knight(Color.White), new VecMove(PackedMove.toBoundVec(promotion), state)
+                .afterWOEvaluatingDeath().board.get(0, 19));
+    }
+}
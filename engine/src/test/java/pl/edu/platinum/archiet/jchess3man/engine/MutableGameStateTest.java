@@ -0,0 +1,134 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutableGameStateTest {
+    private static List<BoundVec> boundVecs(GameState state) {
+        final List<BoundVec> ret = new ArrayList<>();
+        for (final Desc desc : state.genDescMoves().toList()) {
+            //noinspection ConstantConditions
+            for (final Vector vec : state.board.get(desc.from).vecs(desc.from, desc.to))
+                try {
+                    ret.add(new BoundVec(vec, desc.from));
+                } catch (VectorAdditionFailedException | NeedsToBePromotedException ignored) {
+                }
+        }
+        return ret;
+    }
+
+    private static void assertSame(GameState expected, MutableGameState actual) {
+        assertEquals(expected.board.toSeqOfSevenBitConcatRanks().toList(),
+                actual.board.toSeqOfSevenBitConcatRanks().toList());
+        assertEquals(expected.moatsState, actual.moatsState());
+        assertEquals(expected.movesNext, actual.movesNext());
+        assertEquals(expected.castlingPossibilities.toInt(), actual.castlingPossibilities().toInt());
+        assertArrayEquals(expected.enPassantStore.toArray(), actual.enPassantStore().toArray());
+        assertEquals(expected.halfMoveClock, actual.halfMoveClock());
+        assertEquals(expected.fullMoveNumber, actual.fullMoveNumber());
+        assertEquals(expected.alivePlayers, actual.alivePlayers());
+        assertEquals(expected.zobrist(), actual.zobrist());
+        assertEquals(Zobrist.of(expected), actual.zobrist());
+    }
+
+    private static GameState newGameWith(Consumer<MutableBoard> setup, Color movesNext,
+                                         EnPassantStore enPassantStore) {
+        final MutableBoard board = GameState.newGame.board.mutableCopy();
+        setup.accept(board);
+        return new GameState(board, MoatsState.noBridges, movesNext,
+                CastlingPossibilities.all, enPassantStore, 0, 0, PlayersAlive.all);
+    }
+
+    /**
+     * Makes every legal move of that [kind] in [start] with makeLegal,
+     * checking it against VecMove.after
+     *
+     * @return how many such moves there were
+     */
+    private static int makeLegalAsAfter(GameState start, int kind)
+            throws IllegalMoveException, NeedsToBePromotedException {
+        final MutableGameState state = start.mutable();
+        final MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(state, moves);
+        int ret = 0;
+        for (int i = 0; i < moves.size(); i++)
+            if (PackedMove.kind(moves.get(i)) == kind) {
+                state.makeLegal(moves.get(i));
+                assertSame(new VecMove(PackedMove.toBoundVec(moves.get(i)), start).after(), state);
+                state.unmake();
+                ret++;
+            }
+        assertSame(start, state);
+        return ret;
+    }
+
+    @Test
+    void makeUnmakeAsAfter() throws IllegalMoveException, NeedsToBePromotedException {
+        final GameState start = GameState.newGame;
+        final MutableGameState state = start.mutable();
+        final List<BoundVec> moves = boundVecs(start);
+        assertEquals(20, moves.size());
+        for (final BoundVec move : moves) {
+            final GameState after = new VecMove(move, start).after();
+            state.make(move);
+            assertEquals(1, state.depth());
+            assertSame(after, state);
+            for (final BoundVec reply : boundVecs(after)) {
+                state.make(reply);
+                assertSame(new VecMove(reply, after).after(), state);
+                state.unmake();
+            }
+            state.unmake();
+            assertSame(start, state);
+        }
+        assertEquals(0, state.depth());
+        assertThrows(IllegalStateException.class, state::unmake);
+    }
+
+    @Test
+    void makeLegalAsAfterInRandomGames() throws IllegalMoveException, NeedsToBePromotedException {
+        final MoveList moves = new MoveList();
+        for (final GameState start : RandomGames.states(53, 2, 100)) {
+            final MutableGameState state = start.mutable();
+            moves.clear();
+            MoveGenerator.generateLegalDistinct(state, moves);
+            final int[] bases = moves.toArray();
+            for (int i = 0; i < bases.length; i++) bases[i] = PackedMove.base(bases[i]);
+            assertEquals(start.genDescMoves().count(), Arrays.stream(bases).distinct().count());
+            assertEquals(bases.length, Arrays.stream(bases).distinct().count());
+            for (int i = 0; i < moves.size(); i++) {
+                state.makeLegal(moves.get(i));
+                assertSame(new VecMove(PackedMove.toBoundVec(moves.get(i)), start).after(), state);
+                state.unmake();
+            }
+            assertSame(start, state);
+        }
+    }
+
+    @Test
+    void makeLegalEnPassantAsAfter() throws IllegalMoveException, NeedsToBePromotedException {
+        final GameState start = newGameWith(b -> {
+            b.move(new Pos(1, 17), new Pos(3, 17));
+            b.clr(1, 18);
+            b.put(3, 18, new Fig.Pawn(Color.White, true));
+        }, Color.White, EnPassantStore.empty.appeared(17));
+        assertEquals(1, makeLegalAsAfter(start, PackedMove.EN_PASSANT));
+    }
+
+    @Test
+    void makeLegalCastlingAsAfter() throws IllegalMoveException, NeedsToBePromotedException {
+        for (final Color who : Color.colors) {
+            final GameState start = newGameWith(b -> {
+                for (final int file : new int[]{1, 2, 3, 5, 6}) b.clr(0, who.segm() * 8 + file);
+            }, who, EnPassantStore.empty);
+            assertEquals(1, makeLegalAsAfter(start, PackedMove.KINGSIDE_CASTLING));
+            assertEquals(1, makeLegalAsAfter(start, PackedMove.QUEENSIDE_CASTLING));
+        }
+    }
+}
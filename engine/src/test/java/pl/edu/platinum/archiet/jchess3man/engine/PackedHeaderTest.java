@@ -0,0 +1,72 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedHeaderTest {
+    @Test
+    void roundTrip() {
+        final Random random = new Random(29);
+        for (int i = 0; i < 2000; i++) {
+            final MoatsState moats = MoatsState.of(random.nextInt(8));
+            final Color movesNext = Color.byIndex(random.nextInt(4));
+            final CastlingPossibilities castling = CastlingPossibilities.of(random.nextInt(64));
+            final int prev = random.nextInt(25);
+            final int last = random.nextInt(25);
+            final EnPassantStore ep = new EnPassantStore(
+                    prev == 24 ? null : Integer.valueOf(prev), last == 24 ? null : Integer.valueOf(last));
+            final PlayersAlive alive = PlayersAlive.of(random.nextInt(8));
+            final int half = random.nextInt(PackedHeader.MAX_CLOCK + 1);
+            final int full = random.nextInt(PackedHeader.MAX_CLOCK + 1);
+            final long header = PackedHeader.of(moats, movesNext, castling, ep, half, full, alive);
+            assertSame(moats, PackedHeader.moatsState(header));
+            assertEquals(movesNext, PackedHeader.movesNext(header));
+            assertSame(castling, PackedHeader.castlingPossibilities(header));
+            assertEquals(ep.prev, PackedHeader.enPassantStore(header).prev);
+            assertEquals(ep.last, PackedHeader.enPassantStore(header).last);
+            assertSame(alive, PackedHeader.alivePlayers(header));
+            assertEquals(half, PackedHeader.halfMoveClock(header));
+            assertEquals(full, PackedHeader.fullMoveNumber(header));
+            assertEquals(PackedHeader.of(moats, movesNext, castling, ep, alive),
+                    PackedHeader.position(header));
+            final long changed = PackedHeader.withEnPassantStore(
+                    PackedHeader.withMovesNext(header, Color.Gray), ep.appeared(3));
+            assertEquals(Color.Gray, PackedHeader.movesNext(changed));
+            assertEquals(Integer.valueOf(3), PackedHeader.enPassantStore(changed).last);
+            assertSame(castling, PackedHeader.castlingPossibilities(changed));
+            assertEquals(full, PackedHeader.fullMoveNumber(changed));
+        }
+        assertThrows(IllegalArgumentException.class, () -> PackedHeader.withClocks(0, -1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> PackedHeader.withClocks(0, 0, PackedHeader.MAX_CLOCK + 1));
+    }
+
+    @Test
+    void sharedInstances() {
+        assertSame(MoatsState.noBridges.bridgeOnBothSidesOf(Color.Gray),
+                MoatsState.of(false, true, true));
+        assertSame(CastlingPossibilities.all.sayNoTo(Color.Black).sayNoTo(Color.Gray),
+                CastlingPossibilities.all.sayNoTo(Color.Gray).sayNoTo(Color.Black));
+        assertSame(EnPassantStore.empty.appeared(5).nothing(), EnPassantStore.of(5, null));
+        assertSame(PlayersAlive.all.die(Color.White), PlayersAlive.of(0b011));
+    }
+
+    @Test
+    void inRandomGames() throws IllegalMoveException, NeedsToBePromotedException {
+        final Random random = new Random(31);
+        final MoveList moves = new MoveList();
+        GameState state = GameState.newGame;
+        for (int ply = 0; ply < 60 && state.alivePlayers.get(state.movesNext); ply++) {
+            final GameState decoded = PackedHeader.toGameState(state.board, state.header());
+            assertEquals(state, decoded);
+            assertEquals(state.zobrist(), decoded.zobrist());
+            moves.clear();
+            MoveGenerator.generateLegal(state, moves);
+            if (moves.isEmpty()) break;
+            state = new VecMove(PackedMove.toBoundVec(moves.get(random.nextInt(moves.size()))), state).after();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+    private static List<BoundVec> boundVecs(GameState state) {
+        final List<BoundVec> ret = new ArrayList<>();
+        for (final Desc desc : state.genDescMoves().toList()) {
+            //noinspection ConstantConditions
+            for (final Vector vec : state.board.get(desc.from).vecs(desc.from, desc.to))
+                try {
+                    ret.add(new BoundVec(vec, desc.from));
+                } catch (VectorAdditionFailedException | NeedsToBePromotedException ignored) {
+                }
+        }
+        return ret;
+    }
+
+    private static void roundTrip(GameState state, BoundVec boundVec)
+            throws IllegalMoveException, NeedsToBePromotedException {
+        final int move = PackedMove.of(boundVec, state.board);
+        assertTrue(move > 0);
+        assertEquals(boundVec.from.toInt(), PackedMove.from(move));
+        assertEquals(boundVec.to.toInt(), PackedMove.to(move));
+        assertEquals(!state.board.isEmpty(boundVec.to), PackedMove.isCapture(move));
+        final BoundVec back = PackedMove.toBoundVec(move);
+        assertEquals(boundVec.to, back.to);
+        assertEquals(new VecMove(boundVec, state).after(), new VecMove(back, state).after());
+        final DescMove desc = PackedMove.toDescMove(move, state);
+        assertEquals(boundVec.from, desc.from);
+        assertEquals(boundVec.to, desc.to);
+    }
+
+    @Test
+    void roundTrips() throws IllegalMoveException, NeedsToBePromotedException {
+        final GameState start = GameState.newGame;
+        final MoveList list = new MoveList(4);
+        for (final BoundVec move : boundVecs(start)) {
+            roundTrip(start, move);
+            list.add(PackedMove.of(move, start.board));
+            final GameState after = new VecMove(move, start).after();
+            for (final BoundVec reply : boundVecs(after)) roundTrip(after, reply);
+        }
+        assertEquals(20, list.size());
+        assertEquals(20, list.toDescMoves(start).size());
+        assertTrue(list.containsBase(list.get(7)));
+        list.removeUnordered(0);
+        assertEquals(19, list.size());
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(0));
+    }
+
+    @Test
+    void fields() {
+        final int move = PackedMove.of(20, 44, PackedMove.PAWN_CAP,
+                AttackTables.DIAG_IN_MINUS, 0, FigType.Queen.index, true);
+        assertEquals(20, PackedMove.from(move));
+        assertEquals(44, PackedMove.to(move));
+        assertEquals(FigType.Queen, PackedMove.promotion(move));
+        assertEquals(PackedMove.PAWN_CAP, PackedMove.kind(move));
+        assertEquals(AttackTables.DIAG_IN_MINUS, PackedMove.direction(move));
+        assertTrue(PackedMove.isCapture(move));
+        assertTrue(PackedMove.isPawnMove(move));
+        assertFalse(PackedMove.isCastling(move));
+        assertEquals(FigType.Knight,
+                PackedMove.promotion(PackedMove.withPromotion(move, FigType.Knight)));
+        assertEquals(20 | (44 << 8) | (4 << 16), PackedMove.base(move));
+        final int slide = PackedMove.continuous(0, AttackTables.FILE_MINUS, 23, false);
+        assertEquals(1, PackedMove.to(slide));
+        assertEquals(23, PackedMove.abs(slide));
+        assertTrue(PackedMove.vector(slide) instanceof FileVector);
+    }
+}
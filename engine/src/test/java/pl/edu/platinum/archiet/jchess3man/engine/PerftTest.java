@@ -0,0 +1,40 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+    @Test
+    void newGame() {
+        assertEquals(20, Perft.perft(GameState.newGame, 1));
+        assertEquals(7844, Perft.perft(GameState.newGame, 3));
+        assertEquals(Perft.referenceDivide(GameState.newGame, 2),
+                Perft.divide(GameState.newGame, 2, null, null));
+    }
+
+    @Test
+    void asReferenceInRandomGames() {
+        for (long seed = 19; seed < 21; seed++) {
+            final List<GameState> game = RandomGames.states(seed, 1, 40);
+            final GameState state = game.get(game.size() - 1);
+            assertEquals(Perft.reference(Perft.withBoard(state, "MutableArrayBoardImpl"), 2),
+                    Perft.perft(state, 2), state.board.string());
+        }
+    }
+
+    @Test
+    void parallelWithHash() {
+        final long nodes = Perft.perft(GameState.newGame, 4);
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        assertEquals(nodes, Perft.perft(GameState.newGame, 4, pool, new Perft.Hash(4)));
+        final Map<Desc, Long> divide = Perft.divide(GameState.newGame, 4, pool, new Perft.Hash(4));
+        assertEquals(20, divide.size());
+        assertEquals(nodes, divide.values().stream().mapToLong(Long::longValue).sum());
+        pool.shutdown();
+    }
+}
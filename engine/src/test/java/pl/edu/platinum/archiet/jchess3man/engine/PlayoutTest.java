@@ -0,0 +1,93 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PlayoutTest {
+    @Test
+    void playsInPlaceAndGoesBack() {
+        final MutableGameState state = new MutableGameState(GameState.newGame);
+        final Random random = new Random(3);
+        for (final Playout.Policy policy : Playout.Policy.values()) {
+            final Playout playout = new Playout(policy);
+            final int plies = playout.play(state, 40, random);
+            assertEquals(40, plies);
+            assertEquals(plies, state.depth());
+            for (int i = 0; i < plies; i++) state.unmake();
+            assertEquals(GameState.newGame, state.view());
+            assertEquals(GameState.newGame.zobrist(), state.zobrist());
+        }
+    }
+
+    @Test
+    void batchDoesNotDependOnThePool() {
+        final Playout.Result sequential =
+                Playout.batch(GameState.newGame, 150, 30, Playout.Policy.Weighted, 7, null);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        final Playout.Result parallel;
+        try {
+            parallel = Playout.batch(GameState.newGame, 150, 30, Playout.Policy.Weighted, 7, pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(150, sequential.playouts());
+        assertEquals(sequential.toString(), parallel.toString());
+        double sum = 0;
+        for (final Color color : Color.colors) {
+            assertTrue(sequential.survivals(color) <= 150);
+            sum += sequential.score(color);
+        }
+        assertEquals(1, sum, 1e-9);
+    }
+
+    /**
+     * After a warm-up, which grows the MoveList and the undo journal,
+     * playing, scoring and unmaking allocate nothing. A round may still see
+     * a few bytes while the JIT settles (it does not with -Xint), so a round
+     * without any is looked for, which one allocation per ply would never give.
+     */
+    @Test
+    void pliesDoNotAllocate() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        final long thread = Thread.currentThread().getId();
+        final MutableGameState state = new MutableGameState(GameState.newGame);
+        final Random random = new Random(5);
+        final double[] scores = new double[3];
+        final Playout[] playouts = {new Playout(Playout.Policy.Uniform), new Playout(Playout.Policy.Weighted)};
+        long allocated = -1;
+        long plies = 0;
+        for (int round = 0; round < 10 && allocated != 0; round++) {
+            plies = 0;
+            final long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 200; i++) {
+                final int made = playouts[i % 2].play(state, 150, random);
+                Playout.scores(state, scores);
+                for (int j = 0; j < made; j++) state.unmake();
+                plies += made;
+            }
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+        }
+        assertEquals(0, allocated, "bytes over " + plies + " plies");
+        assertEquals(GameState.newGame.zobrist(), state.zobrist());
+    }
+
+    @Test
+    void lastAliveScoresOne() {
+        final String newGame = StateNotation.write(GameState.newGame);
+        final MutableGameState state = new MutableGameState(
+                StateNotation.parse(newGame.replace(" wgb ", " g ")));
+        final double[] scores = new double[3];
+        Playout.scores(state, scores);
+        assertArrayEquals(new double[]{0, 1, 0}, scores);
+        Playout.scores(new MutableGameState(GameState.newGame), scores);
+        assertArrayEquals(new double[]{1 / 3., 1 / 3., 1 / 3.}, scores, 1e-9);
+    }
+}
@@ -0,0 +1,54 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionArchiveTest {
+    @Test
+    void addFindReopenAndRebuild() throws IOException {
+        final Path dir = Files.createTempDirectory("archive");
+        final Path path = dir.resolve("positions");
+        try {
+            final List<GameState> states = RandomGames.states(41, 80, 40);
+            final List<Long> records = new ArrayList<>();
+            try (PositionArchive archive = PositionArchive.open(path)) {
+                for (final GameState state : states) records.add(archive.add(state));
+                //every game starts with newGame, so it is added once
+                assertEquals(0L, (long) records.get(0));
+                assertTrue(archive.size() > 2048 && archive.size() < states.size());
+                for (int i = 0; i < states.size(); i++) {
+                    assertEquals((long) records.get(i), archive.find(states.get(i)));
+                    assertEquals(states.get(i), archive.get(records.get(i)));
+                }
+                assertEquals(-1, archive.find(new GameState(GameState.newGame,
+                        null, null, null, null, null, null, 7, null)));
+            }
+            try (PositionArchive archive = PositionArchive.open(path)) {
+                for (int i = 0; i < states.size(); i++)
+                    assertEquals((long) records.get(i), archive.add(states.get(i)));
+            }
+            Files.delete(dir.resolve("positions.idx"));
+            try (PositionArchive archive = PositionArchive.open(path)) {
+                final BitBoardImpl board = new BitBoardImpl();
+                for (int i = 0; i < states.size(); i++) {
+                    assertEquals((long) records.get(i), archive.find(states.get(i)));
+                    final long header = archive.readInto(records.get(i), board);
+                    assertEquals(states.get(i), PackedHeader.toGameState(board, header));
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RandomGames are games of random legal moves from the new game,
+ * the same for the same seed, for the tests to have many reachable
+ * positions to check on. The benchmarks measure on them too,
+ * through the test-jar of the engine.
+ * Every game is played up to a number of plies, or until the player
+ * to move is dead or has no legal move.
+ */
+public final class RandomGames {
+    private RandomGames() {
+    }
+
+    /**
+     * @return all the states of the games one after another, each game
+     * from GameState.newGame to the state after its last move
+     */
+    @NotNull
+    public static List<GameState> states(long seed, int games, int plies) {
+        return states(seed, games, plies, false);
+    }
+
+    /**
+     * @param preferCaptures whether to make the last capture among the legal moves,
+     *                       if there is one, instead of the random move,
+     *                       which leaves the board sparse after many plies
+     * @see #states(long, int, int)
+     */
+    @NotNull
+    public static List<GameState> states(long seed, int games, int plies, boolean preferCaptures) {
+        final Random random = new Random(seed);
+        final MoveList moves = new MoveList();
+        final List<GameState> ret = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            GameState state = GameState.newGame;
+            ret.add(state);
+            for (int ply = 0; ply < plies && state.alivePlayers.get(state.movesNext); ply++) {
+                moves.clear();
+                MoveGenerator.generateLegal(state, moves);
+                if (moves.isEmpty()) break;
+                int move = moves.get(random.nextInt(moves.size()));
+                if (preferCaptures)
+                    for (int i = 0; i < moves.size(); i++)
+                        if (PackedMove.isCapture(moves.get(i))) move = moves.get(i);
+                try {
+                    state = new VecMove(PackedMove.toBoundVec(move), state).after();
+                } catch (IllegalMoveException | NeedsToBePromotedException e) {
+                    throw new AssertionError(e);
+                }
+                ret.add(state);
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,53 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateNotationTest {
+    private static final String newGame = "24/24/24/24/"
+            + "wPwPwPwPwPwPwPwPgPgPgPgPgPgPgPgPbPbPbPbPbPbPbPbP/"
+            + "wRwNwBwQwKwBwNwRgRgNgBgQgKgBgNgRbRbNbBbQbKbBbNbR w wKQgKQbKQ -- - wgb 0 0";
+
+    @Test
+    void newGame() {
+        assertEquals(newGame, StateNotation.write(GameState.newGame));
+        assertEquals(GameState.newGame, StateNotation.parse(newGame));
+    }
+
+    @Test
+    void roundTripInRandomGames() {
+        for (final GameState state : RandomGames.states(43, 4, 120)) {
+            final String notation = StateNotation.write(state);
+            final GameState parsed = StateNotation.parse(notation);
+            assertEquals(state, parsed, notation);
+            assertEquals(notation, StateNotation.write(parsed));
+            assertEquals(notation, StateNotation.write(Perft.withBoard(state, "MutableArrayBoardImpl")));
+        }
+    }
+
+    @Test
+    void headerFields() {
+        final GameState state = new GameState(GameState.newGame, null,
+                MoatsState.of(false, true, false), null,
+                CastlingPossibilities.all.sayNoTo(Color.Gray).change(Color.Black,
+                        CastlingPossibilities.ColorEntry.QueensideOnly),
+                EnPassantStore.of(null, 23), 12, 345, PlayersAlive.of(0b101));
+        final String notation = StateNotation.write(state);
+        assertTrue(notation.endsWith(" w wKQbQ -x g wb 12 345"), notation);
+        assertEquals(state, StateNotation.parse(notation));
+    }
+
+    @Test
+    void malformed() {
+        for (final String notation : new String[]{
+                "", newGame.replace("24/24/24/24", "24/24/24/25"),
+                newGame.replace("wR", "xR"), newGame.replace(" w w", " z w"),
+                newGame.replace("wKQgKQ", "wgKQ"), newGame.replace(" -- ", " -y "),
+                newGame.replace(" 0 0", " 0"), newGame.replace(" 0 0", " 0 9999999"),
+                newGame + " ", newGame.replaceFirst("24/", "4294967320/"),
+                newGame.replace("wKQgKQbKQ", "wKQwKQ"), newGame.replace(" -- - ", " -- ww "),
+                newGame.replace(" wgb ", " wwg ")})
+            assertThrows(IllegalArgumentException.class, () -> StateNotation.parse(notation));
+    }
+}
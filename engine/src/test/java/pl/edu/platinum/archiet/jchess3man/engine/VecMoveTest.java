@@ -3,8 +3,10 @@ package pl.edu.platinum.archiet.jchess3man.engine;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,6 +40,164 @@ class VecMoveTest {
         System.out.println(firstAfter.board.string());
     }
 
+    /**
+     * @return newGame, White to move, with [setup] done on a copy of its board
+     */
+    private static GameState newGameWith(Consumer<MutableBoard> setup, EnPassantStore enPassantStore) {
+        final MutableBoard board = newGame.board.mutableCopy();
+        setup.accept(board);
+        return new GameState(board, MoatsState.noBridges, Color.White,
+                CastlingPossibilities.all, enPassantStore, 0, 0, PlayersAlive.all);
+    }
+
+    /**
+     * A plain capture used to be refused as an en passant that cannot be made,
+     * and an en passant used to throw a NullPointerException
+     * or, on an immutable board, leave the capturing pawn where it was
+     */
+    @Test
+    void pawnCaptures() throws
+            VectorAdditionFailedException,
+            NeedsToBePromotedException,
+            IllegalMoveException {
+        final GameState capture = newGameWith(
+                b -> b.put(2, 1, new Fig.Knight(Color.Black)), EnPassantStore.empty);
+        final GameState enPassant = newGameWith(b -> {
+            b.move(new Pos(1, 17), new Pos(3, 17));
+            b.clr(1, 18);
+            b.put(3, 18, new Fig.Pawn(Color.White, true));
+        }, EnPassantStore.empty.appeared(17));
+        for (final boolean immutable : new boolean[]{false, true}) {
+            Board after = new VecMove(new PawnCapVector(true, true), new Pos(1, 0), capture)
+                    .after(immutable).board;
+            assertTrue(after.isEmpty(1, 0));
+            assertEquals(new Fig.Pawn(Color.White), after.get(2, 1));
+            after = new VecMove(new PawnCapVector(false, false), new Pos(3, 18), enPassant)
+                    .after(immutable).board;
+            assertTrue(after.isEmpty(3, 18));
+            assertTrue(after.isEmpty(3, 17));
+            assertEquals(FigType.Pawn, after.get(2, 17).type);
+            assertEquals(Color.White, after.get(2, 17).color);
+        }
+        final GameState noJump = new GameState(enPassant, Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.of(EnPassantStore.empty),
+                Optional.empty(), Optional.empty(), Optional.empty());
+        assertThrows(ImpossibleMoveException.class,
+                () -> new VecMove(new PawnCapVector(false, false), new Pos(3, 18), noJump).after());
+    }
+
+    /**
+     * A pawn walk used to capture whatever stood in front of the pawn
+     */
+    @Test
+    void pawnWalksDoNotCapture() throws
+            VectorAdditionFailedException,
+            NeedsToBePromotedException,
+            IllegalMoveException {
+        final GameState blocked = newGameWith(
+                b -> b.put(2, 0, new Fig.Knight(Color.Black)), EnPassantStore.empty);
+        assertThrows(ImpossibleMoveException.class,
+                () -> new VecMove(new PawnWalkVector(true), new Pos(1, 0), blocked).after());
+        final Board after = new VecMove(new PawnWalkVector(true), new Pos(1, 1), blocked).after().board;
+        assertEquals(new Fig.Pawn(Color.White), after.get(2, 1));
+    }
+
+    /**
+     * A pawn crossing the center used to keep pawnCenter unset,
+     * and Fig.Pawn did not report it anyway, so its seven-bit code lost it
+     */
+    @Test
+    void pawnsCrossingTheCenterGetPawnCenter() throws
+            VectorAdditionFailedException,
+            NeedsToBePromotedException,
+            IllegalMoveException {
+        final Fig crossed = new Fig.Pawn(Color.White, true);
+        assertEquals(Boolean.TRUE, crossed.pawnCenter());
+        assertEquals(1, crossed.sevenBitInt() >> 6);
+        final PawnCapVector cap = new PawnCapVector(true, true);
+        final Pos capTo = cap.addTo(new Pos(5, 0));
+        final GameState atCenter = newGameWith(b -> {
+            b.move(new Pos(1, 0), new Pos(5, 0));
+            b.put(capTo, new Fig.Knight(Color.Gray));
+        }, EnPassantStore.empty);
+        for (final boolean immutable : new boolean[]{false, true}) {
+            Board after = new VecMove(new PawnWalkVector(true), new Pos(5, 0), atCenter)
+                    .after(immutable).board;
+            assertEquals(crossed, after.get(5, 12));
+            after = new VecMove(cap, new Pos(5, 0), atCenter).after(immutable).board;
+            assertEquals(crossed, after.get(capTo));
+        }
+    }
+
+    /**
+     * A promoting pawn used to stay a pawn on the last rank,
+     * and a walk onto the last rank did not require a promotion at all
+     */
+    @Test
+    void promotionReplacesThePawn() throws
+            VectorAdditionFailedException,
+            NeedsToBePromotedException,
+            IllegalMoveException {
+        final GameState beforeLastRank = newGameWith(b -> {
+            b.put(1, 10, new Fig.Pawn(Color.White, true));
+            b.clr(0, 10);
+        }, EnPassantStore.empty);
+        assertThrows(NeedsToBePromotedException.class,
+                () -> new VecMove(new PawnWalkVector(false), new Pos(1, 10), beforeLastRank));
+        for (final boolean immutable : new boolean[]{false, true}) {
+            Board after = new VecMove(new PawnPromVector.Walk(FigType.Queen, false),
+                    new Pos(1, 10), beforeLastRank).after(immutable).board;
+            assertEquals(new Fig.Queen(Color.White), after.get(0, 10));
+            after = new VecMove(new PawnPromVector.Cap(FigType.Knight, false, true),
+                    new Pos(1, 10), beforeLastRank).after(immutable).board;
+            assertEquals(new Fig.Knight(Color.White), after.get(0, 11));
+        }
+    }
+
+    /**
+     * castlingVector used to look only at the file of the destination within
+     * a segment, so that a king could castle into another segment
+     */
+    @Test
+    void castlingStaysInTheSegment() throws CannotConstructVectorException {
+        for (int segm = 0; segm < 3; segm++) {
+            final Pos king = new Pos(0, segm * 8 + CastlingVector.kfm);
+            assertSame(KingsideCastlingVector.c,
+                    CastlingVector.castlingVector(king, new Pos(0, segm * 8 + 6)));
+            assertSame(QueensideCastlingVector.c,
+                    CastlingVector.castlingVector(king, new Pos(0, segm * 8 + 2)));
+            for (int other = 1; other < 3; other++) {
+                final int otherSegm = (segm + other) % 3;
+                for (final int file : new int[]{2, 6})
+                    assertThrows(CannotConstructVectorException.class,
+                            () -> CastlingVector.castlingVector(king, new Pos(0, otherSegm * 8 + file)));
+            }
+        }
+    }
+
+    /**
+     * afterMoatsState used to bridge the moats of a player as soon as an own fig
+     * stood on their segment of the first rank, instead of once none does,
+     * and threw a NullPointerException on an empty square there
+     */
+    @Test
+    void moatsGetBridgedOnceTheFirstRankIsLeft() throws
+            VectorAdditionFailedException,
+            NeedsToBePromotedException,
+            IllegalMoveException {
+        final Pos knight = new Pos(0, 1);
+        final Vector jump = newGame.board.get(knight).vecs(knight, new Pos(2, 0)).iterator().next();
+        assertEquals(MoatsState.noBridges, new VecMove(jump, knight, newGame).after().moatsState);
+        final GameState withoutRook = newGameWith(b -> b.clr(0, 0), EnPassantStore.empty);
+        assertEquals(MoatsState.noBridges, new VecMove(jump, knight, withoutRook).after().moatsState);
+        final GameState leftFirstRank = newGameWith(b -> {
+            for (int file = 0; file < 8; file++) b.clr(0, file);
+            b.put(2, 4, new Fig.King(Color.White));
+        }, EnPassantStore.empty);
+        assertEquals(new MoatsState(true, true, false),
+                new VecMove(new RankVector(1, true), new Pos(2, 4), leftFirstRank).after().moatsState);
+    }
+
     @Test
     void simpleGenNoPanic() throws NeedsToBePromotedException {
         DescMove first = new DescMove(
@@ -217,4 +377,48 @@ class VecMoveTest {
         }
         System.out.println("State after another 3 moves: \n" + statePointer.get().board.string());
     }
-}
\ No newline at end of file
+
+    @Test
+    void tryAfterAgreesWithAfter() throws NeedsToBePromotedException {
+        final GameState second = new DescMove(new Pos(1, 3), new Pos(3, 3), newGame)
+                .generateAfterStates(true, false).findAny().orElseThrow(AssertionError::new);
+        final VecMove.Outcome outcome = new VecMove.Outcome();
+        final VecMove.Outcome diagnostic = new VecMove.Outcome(true);
+        int legal = 0;
+        for (final GameState state : new GameState[]{newGame, second})
+            for (final Pos from : new AllPosIterable()) {
+                final Fig fig = state.board.get(from);
+                if (fig == null) continue;
+                for (final Pos to : AMFT.getIterableFor(from))
+                    for (final Vector vec : fig.vecs(from, to)) {
+                        final VecMove move;
+                        try {
+                            move = new VecMove(vec, from, state);
+                        } catch (VectorAdditionFailedException e) {
+                            throw new AssertionError(e);
+                        }
+                        final int status = move.tryAfter(false, outcome);
+                        assertEquals(status, outcome.status());
+                        assertEquals(status, move.tryAfter(false, diagnostic));
+                        assertEquals(status, move.tryAfter(false, null));
+                        assertNull(outcome.impossibility());
+                        try {
+                            final GameState after = move.after();
+                            assertEquals(VecMove.LEGAL, status);
+                            assertEquals(after, outcome.state());
+                            legal++;
+                        } catch (NeedsToBePromotedException e) {
+                            assertEquals(VecMove.NEEDS_PROMOTION, status);
+                        } catch (ImpossibleMoveException e) {
+                            assertTrue(status == VecMove.IMPOSSIBLE || status == VecMove.WE_IN_CHECK);
+                            assertNull(outcome.state());
+                            assertNotNull(diagnostic.impossibility());
+                            assertEquals(e.impossibility.msg(), diagnostic.impossibility().msg());
+                        } catch (CheckInitiatedThruMoatException e) {
+                            assertEquals(VecMove.CHECK_INITIATED_THRU_MOAT, status);
+                        }
+                    }
+            }
+        assertEquals(40, legal);
+    }
+}
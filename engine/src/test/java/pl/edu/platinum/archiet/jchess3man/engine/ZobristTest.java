@@ -0,0 +1,62 @@
+package pl.edu.platinum.archiet.jchess3man.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristTest {
+    private static Set<GameState> afters(GameState state) {
+        final Set<GameState> ret = new HashSet<>();
+        for (final Desc desc : state.genDescMoves().toList()) {
+            //noinspection ConstantConditions
+            for (final Vector vec : state.board.get(desc.from).vecs(desc.from, desc.to))
+                try {
+                    ret.add(new VecMove(vec, desc.from, state).after());
+                } catch (VectorAdditionFailedException | NeedsToBePromotedException
+                        | IllegalMoveException ignored) {
+                }
+        }
+        return ret;
+    }
+
+    @Test
+    void incrementalAsFromScratch() {
+        assertEquals(Zobrist.of(GameState.newGame), GameState.newGame.zobrist());
+        assertEquals(Zobrist.board(NewGameBoardImpl.c),
+                Zobrist.board(new BitBoardImpl(NewGameBoardImpl.c)));
+        final Set<GameState> first = afters(GameState.newGame);
+        assertEquals(20, first.size());
+        final Set<Long> keys = new HashSet<>();
+        final Set<GameState> states = new HashSet<>();
+        for (final GameState after : first) {
+            assertEquals(Zobrist.of(after), after.zobrist());
+            keys.add(after.zobrist());
+            states.add(after);
+            for (final GameState reply : afters(after)) {
+                assertEquals(Zobrist.of(reply), reply.zobrist());
+                keys.add(reply.zobrist());
+                states.add(reply);
+            }
+        }
+        assertEquals(states.size(), keys.size());
+    }
+
+    @Test
+    void equalsAndHashCode() {
+        final GameState copy = new GameState(
+                new BitBoardImpl(NewGameBoardImpl.c),
+                MoatsState.noBridges, Color.White, CastlingPossibilities.all,
+                EnPassantStore.empty, 0, 0, PlayersAlive.all);
+        assertEquals(GameState.newGame, copy);
+        assertEquals(GameState.newGame.hashCode(), copy.hashCode());
+        final GameState grayNext = new GameState(copy, null, null, Color.Gray,
+                null, null, null, null, null);
+        assertNotEquals(copy, grayNext);
+        assertNotEquals(copy.zobrist(), grayNext.zobrist());
+        final GameState grayDead = new GameState(copy, PlayersAlive.all.die(Color.Gray));
+        assertEquals(Zobrist.of(grayDead), grayDead.zobrist());
+    }
+}
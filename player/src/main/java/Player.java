@@ -7,6 +7,11 @@ import java.util.concurrent.Future;
  * Created by Michał Krzysztof Feiler on 18.03.17.
  */
 public interface Player {
+    /**
+     * Implementations that wait for a move, of a human or an AI,
+     * should wait on Execution.executor() threads, which are virtual ones
+     * if the virtual mode is chosen, so that idle games are cheap
+     */
     Future<DescMove> yourMove(GameState stateNow);
 
     void spectateChange(DescMove move, GameState stateAfter);